@@ -0,0 +1,29 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import parsing.DocumentGenerator;
+
+@State(Scope.Benchmark)
+public class GeneratedDocument {
+	
+	@Param({ "65536", "1048576" })
+	public int size;
+	
+	@Param({ "4", "16" })
+	public int depth;
+	
+	@Param({ "0.2", "0.8" })
+	public double textRatio;
+	
+	public String text;
+	
+	@Setup
+	public void generate() {
+		text = new DocumentGenerator(1).size(size).depth(depth).textRatio(textRatio).generate();
+	}
+	
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lexicalanalysis.FirstFollow;
+import parsing.ParseTable;
+import parsing.Parser;
+
+// What the static initializer of Parser does with the grammar, short of defining the rules - loading the
+// table compiled by the build, or computing it when that is missing
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrammarBenchmark {
+	
+	@Benchmark
+	public FirstFollow firstFollow() {
+		return new FirstFollow(Parser.getRules());
+	}
+	
+	@Benchmark
+	public ParseTable parseTable() {
+		return new FirstFollow(Parser.getRules()).compileRuleTable();
+	}
+	
+	@Benchmark
+	public ParseTable loadParseTable() throws IOException {
+		try (InputStream in = Parser.class.getResourceAsStream("parse-table.bin")) {
+			return ParseTable.read(Parser.getRules(), in);
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parsing.DocumentGenerator;
+import parsing.IncrementalParser;
+import parsing.ParseResult;
+
+// An 8 MB document parsed whole, and edited a word at a time at random places after it was parsed once
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalParserBenchmark {
+	
+	private String text;
+	
+	private IncrementalParser parser;
+	
+	private final Random random = new Random(411);
+	
+	@Setup
+	public void setUp() {
+		text = new DocumentGenerator(410).size(8 * 1024 * 1024).generate();
+		parser = new IncrementalParser(text);
+	}
+	
+	@Benchmark
+	public ParseResult full() {
+		return new IncrementalParser(text).getResult();
+	}
+	
+	// A word after a space, the document stays accepted
+	@Benchmark
+	public ParseResult edit() {
+		CharSequence current = parser.getText();
+		int offset = random.nextInt(current.length() - 100);
+		while (current.charAt(offset) != ' ') {
+			offset++;
+		}
+		return parser.edit(offset, 0, " word");
+	}
+	
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lexicalanalysis.TextScanner;
+import lexicalanalysis.Token;
+import lexicalanalysis.TokenStream;
+
+// One operation lexes the whole document. Text is scanned with vectors once the parser is installed
+// with the vector profile, the scalar benchmarks scan it a character at a time.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class LexerBenchmark {
+	
+	@State(Scope.Benchmark)
+	public static class Scanners {
+		
+		public final TextScanner scanner = TokenStream.getTrie().getScanner();
+		
+		public final TextScanner scalar = TextScanner.scalar(scanner);
+		
+		public char[] chars;
+		
+		@Setup
+		public void setUp(GeneratedDocument document) {
+			chars = document.text.toCharArray();
+		}
+	
+	}
+	
+	private static long lex(String text) throws Exception {
+		long tokens = 0;
+		try (TokenStream tokenStream = new TokenStream(new StringReader(text))) {
+			while (tokenStream.read() != Token.EOF) {
+				tokens++;
+			}
+		}
+		return tokens;
+	}
+	
+	// Only the runs of plain text, which the lexer goes through without the trie
+	private static int runs(TextScanner scanner, char[] chars) {
+		int runs = 0;
+		for (int i = 0; i < chars.length; i = scanner.plainEnd(chars, i, chars.length) + 1) {
+			runs++;
+		}
+		return runs;
+	}
+
+	@Benchmark
+	public long read(GeneratedDocument document) throws Exception {
+		return lex(document.text);
+	}
+	
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector", "-Dparser.vectorScanning=false" })
+	public long readScalar(GeneratedDocument document) throws Exception {
+		return lex(document.text);
+	}
+	
+	@Benchmark
+	public int scan(Scanners scanners) {
+		return runs(scanners.scanner, scanners.chars);
+	}
+	
+	@Benchmark
+	public int scanScalar(Scanners scanners) {
+		return runs(scanners.scalar, scanners.chars);
+	}
+	
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import lexicalanalysis.TokenStream;
+import parsing.GeneratedHtmlParser;
+import parsing.Grammar;
+import parsing.ParseResult;
+import parsing.ParseStep;
+import parsing.Parser;
+
+// One operation parses the whole document
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+	
+	@Benchmark
+	public void step(GeneratedDocument document, Blackhole blackhole) throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(document.text)))) {
+			ParseStep step;
+			do {
+				step = parser.step();
+				blackhole.consume(step);
+			} while (!step.isDone());
+		}
+	}
+	
+	@Benchmark
+	public ParseResult parse(GeneratedDocument document) throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(document.text)))) {
+			return parser.parse();
+		}
+	}
+	
+	// The same document with its runs of text read as single tokens
+	@Benchmark
+	public ParseResult textRuns(GeneratedDocument document) throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(document.text)))) {
+			parser.setTextRuns(true);
+			return parser.parse();
+		}
+	}
+	
+	// The same document through the parser written by ParserGenerator
+	@Benchmark
+	public ParseResult generated(GeneratedDocument document) throws Exception {
+		try (GeneratedHtmlParser parser = new GeneratedHtmlParser(new TokenStream(new StringReader(document.text)), Grammar.html())) {
+			return parser.parse();
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lexicalanalysis.TokenStream;
+import parsing.DocumentGenerator;
+import parsing.ParseResult;
+import parsing.Parser;
+import parsing.SplitParser;
+
+// One operation parses a 16 MB file split into a piece per thread, or as a whole on a single thread
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitParserBenchmark {
+	
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+	
+	private Path file;
+	
+	private ExecutorService executor;
+	
+	@Setup
+	public void setUp() throws Exception {
+		file = Files.createTempFile("split", ".html");
+		Files.write(file, new DocumentGenerator(320).size(16 * 1024 * 1024).generate().getBytes(StandardCharsets.UTF_8));
+		executor = Executors.newFixedThreadPool(threads);
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		executor.shutdown();
+		Files.delete(file);
+	}
+	
+	@Benchmark
+	public ParseResult parse() throws Exception {
+		if (threads == 1) {
+			try (Parser parser = new Parser(TokenStream.open(file))) {
+				return parser.parse();
+			}
+		}
+		return new SplitParser(executor, threads).parse(file);
+	}
+
+}
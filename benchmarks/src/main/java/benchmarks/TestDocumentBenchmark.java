@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import lexicalanalysis.TokenStream;
+import parsing.GeneratedHtmlParser;
+import parsing.Grammar;
+import parsing.ParseResult;
+import parsing.Parser;
+import parsing.TraceListener;
+
+// Parses the test documents the way Program does, formatting every step of the trace
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestDocumentBenchmark {
+	
+	@Param({ "test1.html", "test2.html", "test3.html", "test4.html" })
+	public String name;
+	
+	private String text;
+	
+	// The documents come with the test jar of the parser
+	@Setup
+	public void load() throws Exception {
+		try (InputStream input = TestDocumentBenchmark.class.getClassLoader().getResourceAsStream(name)) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				output.write(buffer, 0, read);
+			}
+			text = new String(output.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+	
+	@Benchmark
+	public ParseResult trace(Blackhole blackhole) throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			return parser.parse(new TraceListener(step -> blackhole.consume(step.toString())));
+		}
+	}
+	
+	@Benchmark
+	public ParseResult parse() throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			return parser.parse();
+		}
+	}
+
+	@Benchmark
+	public ParseResult parseGenerated() throws Exception {
+		try (GeneratedHtmlParser parser = new GeneratedHtmlParser(new TokenStream(new StringReader(text)), Grammar.html())) {
+			return parser.parse();
+		}
+	}
+	
+}
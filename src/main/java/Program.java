@@ -1,30 +1,265 @@
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import lexicalanalysis.FirstFollow;
-import lexicalanalysis.InvalidTokenException;
-import lexicalanalysis.TokenStream;
+import parsing.BatchParser;
+import parsing.BatchParser.BatchResult;
+import parsing.BinaryTraceReader;
+import parsing.BinaryTraceWriter;
+import parsing.GeneratedHtmlParser;
+import parsing.Grammar;
+import parsing.ParseCheckpoint;
+import parsing.ParseClient;
 import parsing.ParseException;
-import parsing.ParseStep;
+import parsing.ParseError;
+import parsing.ParseMetrics;
+import parsing.ParseResult;
+import parsing.ParseServer;
 import parsing.Parser;
+import parsing.SplitParser;
+import parsing.TraceListener;
 
 public class Program {
 
+	// Errors a trace goes on after, unless given with --max-errors
+	private static final int MAX_ERRORS = 100;
+	
+	// Bytes of input between two checkpoints, unless given with --checkpoint-interval
+	private static final long CHECKPOINT_INTERVAL = 64 << 20;
+	
 	public static void main(String[] args) throws IOException {
 
+		// Parsing recovers from errors until this many are found
+		int maxErrors = -1;
+		// Counters of the parser are printed at the end
+		boolean withMetrics = false;
+		// Rules read from a file instead of the built-in HTML grammar
+		Grammar grammar = Grammar.html();
+		List<String> rest = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--max-errors") && i + 1 < args.length) {
+				maxErrors = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--metrics")) {
+				withMetrics = true;
+			} else if (args[i].equals("--grammar") && i + 1 < args.length) {
+				try {
+					grammar = Grammar.load(Paths.get(args[++i]));
+				} catch (ParseException e) {
+					System.out.println("Invalid grammar: " + e.getMessage());
+					System.exit(1);
+				}
+			} else {
+				rest.add(args[i]);
+			}
+		}
+		args = rest.toArray(new String[rest.size()]);
+		ParseMetrics metrics = withMetrics ? new ParseMetrics(grammar) : null;
+		
 		if (args.length < 1) {
-			System.out.println("Usage: parser source-file | --command");
+			System.out.println("Usage: parser [--grammar grammar-file] [--max-errors n] [--metrics] source-file "
+					+ "| --validate [--threads n | --generated | --text-runs | --checkpoint file [--checkpoint-interval bytes]] [--max-errors n] [--metrics] source-file... "
+					+ "| --batch [--threads n] [--max-errors n] file-or-directory... "
+					+ "| --serve [--port n] [--connections n] [--in-flight n] [--max-errors n] | --send [--port n] [--trace | --events | --stats] source-file... "
+					+ "| --write-trace [--max-errors n] source-file trace-file | --read-trace trace-file | --find-first-follow | --find-conflicts");
 			System.exit(1);
 		}
 		
 		String cmd = args[0];
+		if (withMetrics && Arrays.asList("--batch", "--serve", "--send", "--read-trace", "--find-first-follow", "--find-conflicts").contains(cmd)) {
+			System.out.println("Metrics are counted for a trace, --write-trace and --validate");
+			System.exit(1);
+		}
 		if (cmd.equals("--find-first-follow")) {
 			
-			FirstFollow firstFollow = Parser.getFirstFollow();
+			FirstFollow firstFollow = grammar.getFirstFollow();
 			System.out.println(firstFollow.report());
 			
+		} else if (cmd.equals("--find-conflicts")) {
+			
+			// Cells of the LL(1) table that more than one rule applies to, and the rule chosen
+			System.out.print(grammar.getFirstFollow().conflictReport());
+			
+		} else if (cmd.equals("--validate")) {
+			
+			int threads = 1;
+			// The parser written by ParserGenerator instead of the table-driven one
+			boolean generated = false;
+			// Runs of text read as single tokens
+			boolean textRuns = false;
+			// Parsing goes on from the checkpoint in the file, if there is one, and writes it as it goes
+			Path checkpoint = null;
+			long checkpointInterval = CHECKPOINT_INTERVAL;
+			List<Path> paths = new ArrayList<>();
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("--threads") && i + 1 < args.length) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--generated")) {
+					generated = true;
+				} else if (args[i].equals("--text-runs")) {
+					textRuns = true;
+				} else if (args[i].equals("--checkpoint") && i + 1 < args.length) {
+					checkpoint = Paths.get(args[++i]);
+				} else if (args[i].equals("--checkpoint-interval") && i + 1 < args.length) {
+					checkpointInterval = Long.parseLong(args[++i]);
+				} else {
+					paths.add(Paths.get(args[i]));
+				}
+			}
+			
+			if (generated && (grammar != Grammar.html() || maxErrors > 1)) {
+				System.out.println("The generated parser is the one of the built-in grammar, it stops at the first error");
+				System.exit(1);
+			}
+			if (textRuns && (generated || threads > 1)) {
+				System.out.println("Text runs are read by the table-driven parser on one thread");
+				System.exit(1);
+			}
+			if (withMetrics && (generated || threads > 1)) {
+				System.out.println("Metrics are counted by the table-driven parser on one thread");
+				System.exit(1);
+			}
+			if (checkpoint != null && (generated || threads > 1 || paths.size() != 1)) {
+				System.out.println("Checkpoints are written for one document, parsed by the table-driven parser on one thread");
+				System.exit(1);
+			}
+			
+			if (generated) {
+				for (Path path : paths) {
+					try (GeneratedHtmlParser parser = new GeneratedHtmlParser(grammar.open(path), grammar)) {
+						System.out.println(path + ": " + parser.parse());
+					}
+				}
+			} else if (threads < 2 || grammar != Grammar.html()) {
+				// Documents of other grammars are not split
+				for (Path path : paths) {
+					try (Parser parser = open(path, grammar, checkpoint)) {
+						parser.setMetrics(metrics);
+						parser.setTextRuns(textRuns);
+						if (checkpoint != null) {
+							parser.setCheckpoints(checkpoint, checkpointInterval);
+						}
+						ParseResult result = parser.parse(null, Math.max(maxErrors, 1));
+						System.out.println(path + ": " + result);
+						printErrors(result);
+					}
+					if (checkpoint != null) {
+						Files.deleteIfExists(checkpoint);
+					}
+				}
+			} else {
+				// Large documents are split and their pieces parsed in parallel
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				try {
+					SplitParser parser = new SplitParser(pool, threads, Math.max(maxErrors, 1));
+					for (Path path : paths) {
+						ParseResult result = parser.parse(path);
+						System.out.println(path + ": " + result);
+						printErrors(result);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					pool.shutdown();
+				}
+			}
+			
+		} else if (cmd.equals("--batch")) {
+			
+			int threads = Runtime.getRuntime().availableProcessors();
+			List<Path> paths = new ArrayList<>();
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("--threads") && i + 1 < args.length) {
+					threads = Integer.parseInt(args[++i]);
+				} else {
+					paths.add(Paths.get(args[i]));
+				}
+			}
+			
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				BatchResult result = new BatchParser(pool, Math.max(maxErrors, 1), grammar).parse(BatchParser.collect(paths));
+				result.getFiles().forEach(System.out::println);
+				System.out.println(result);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				pool.shutdown();
+			}
+			
+		} else if (cmd.equals("--serve")) {
+			
+			int port = ParseServer.DEFAULT_PORT;
+			int connections = ParseServer.DEFAULT_CONNECTIONS;
+			int inFlight = Runtime.getRuntime().availableProcessors();
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("--port") && i + 1 < args.length) {
+					port = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--connections") && i + 1 < args.length) {
+					connections = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--in-flight") && i + 1 < args.length) {
+					inFlight = Integer.parseInt(args[++i]);
+				}
+			}
+			
+			try (ParseServer server = new ParseServer(port, connections, inFlight, Math.max(maxErrors, 1), grammar)) {
+				System.out.println("Listening on port " + server.getPort());
+				server.run();
+			}
+			
+		} else if (cmd.equals("--send")) {
+			
+			// Documents to a server started with --serve, the answers are printed
+			int port = ParseServer.DEFAULT_PORT;
+			byte kind = ParseServer.VALIDATE;
+			List<Path> paths = new ArrayList<>();
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("--port") && i + 1 < args.length) {
+					port = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("--trace")) {
+					kind = ParseServer.TRACE;
+				} else if (args[i].equals("--events")) {
+					kind = ParseServer.EVENTS;
+				} else if (args[i].equals("--stats")) {
+					kind = ParseServer.STATS;
+				} else {
+					paths.add(Paths.get(args[i]));
+				}
+			}
+			
+			try (ParseClient client = new ParseClient(port)) {
+				if (kind == ParseServer.STATS) {
+					System.out.println(client.stats());
+				}
+				for (Path path : paths) {
+					System.out.print(path + ": " + client.send(kind, Files.readAllBytes(path)));
+				}
+			}
+			
+		} else if (cmd.equals("--write-trace") && args.length == 3) {
+			
+			// The same trace as below, in a binary file that --read-trace prints
+			try (Parser parser = new Parser(grammar.open(Paths.get(args[1])), grammar);
+					BinaryTraceWriter trace = new BinaryTraceWriter(Paths.get(args[2]), grammar)) {
+				parser.setMetrics(metrics);
+				ParseResult result = parser.parse(trace, maxErrors < 0 ? MAX_ERRORS : maxErrors);
+				printTraceErrors(result);
+			}
+			
+		} else if (cmd.equals("--read-trace") && args.length == 2) {
+			
+			PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+			BinaryTraceReader.decode(Paths.get(args[1]), grammar, out::println);
+			out.flush();
+			
 		} else {
 		
 			Path source = Paths.get(args[0]);
@@ -33,22 +268,43 @@ public class Program {
 				System.exit(1);
 			}
 			
-			try (Parser parser = new Parser(new TokenStream(Files.newBufferedReader(source)))) {
-				ParseStep ps = null;
-				do {
-					try {
-						ps = parser.step();
-						System.out.println(ps.toString());
-					} catch (ParseException | InvalidTokenException e) {
-						ps = null;
-						System.err.println("Error in parsing:");
-						System.err.println("   " + e.getMessage());
-					}
-				} while (ps == null || !ps.isDone());
+			PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+			try (Parser parser = new Parser(grammar.open(source), grammar)) {
+				parser.setMetrics(metrics);
+				ParseResult result = parser.parse(new TraceListener(grammar, out::println), maxErrors < 0 ? MAX_ERRORS : maxErrors);
+				out.flush();
+				printTraceErrors(result);
 			}
 		
 		}
 		
+		if (metrics != null) {
+			System.err.print(metrics.report());
+		}
+		
+	}
+
+	private static Parser open(Path path, Grammar grammar, Path checkpoint) throws IOException {
+		if (checkpoint == null || !Files.exists(checkpoint)) {
+			return new Parser(grammar.open(path), grammar);
+		}
+		ParseCheckpoint saved = ParseCheckpoint.read(checkpoint, grammar);
+		System.out.println("Resuming at position " + saved.getPosition());
+		return Parser.resume(path, saved, grammar);
+	}
+
+	private static void printTraceErrors(ParseResult result) {
+		for (ParseError error : result.getErrors()) {
+			System.err.println("Error in parsing:");
+			System.err.println("   " + error.getMessage());
+		}
+	}
+
+	// Only the first error is in the summary line
+	private static void printErrors(ParseResult result) {
+		if (result.getErrors().size() > 1) {
+			result.getErrors().forEach(error -> System.out.println("   " + error));
+		}
 	}
 
 }
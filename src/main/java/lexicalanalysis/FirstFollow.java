@@ -1,197 +1,357 @@
 package lexicalanalysis;
 
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Stream;
 
 import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 
-import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toSet;
 
 import parsing.NonTerminal;
+import parsing.ParseTable;
 import parsing.Rule;
 
+// FIRST and FOLLOW sets as bit sets by terminal id. Nonterminals deriving nothing are found with a worklist,
+// the sets by closing the inclusions between them, in time linear in the size of the grammar and the sets.
+// Empty derivations are kept apart in nullable flags, the sets handed out contain EPSILON for them.
 public class FirstFollow {
-
-	private final Map<Rule, Set<Terminal>> firstForR = new HashMap<>();
 	
-	private final Map<NonTerminal, Set<Terminal>> firstForNT = new HashMap<>();
+	// Two rules of a nonterminal apply for the same terminal, the one with the longer expansion is chosen
+	public static class Conflict {
+		
+		private final NonTerminal nonTerminal;
+		
+		private final Terminal terminal;
+		
+		private final Rule chosen;
+		
+		private final Rule discarded;
+		
+		private Conflict(NonTerminal nonTerminal, Terminal terminal, Rule chosen, Rule discarded) {
+			this.nonTerminal = nonTerminal;
+			this.terminal = terminal;
+			this.chosen = chosen;
+			this.discarded = discarded;
+		}
+		
+		public NonTerminal getNonTerminal() {
+			return nonTerminal;
+		}
+		
+		public Terminal getTerminal() {
+			return terminal;
+		}
+		
+		public Rule getChosen() {
+			return chosen;
+		}
+		
+		public Rule getDiscarded() {
+			return discarded;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%s;%s;%s;%s", nonTerminal, terminal, chosen, discarded);
+		}
+	
+	}
 	
-	private final Map<NonTerminal, Set<Terminal>> follow = new HashMap<>();
-	private final Map<NonTerminal, Set<NonTerminal>> followToExpand = new HashMap<>();
+	private static final Comparator<Terminal> LONGEST_FIRST = Comparator.comparingInt(Terminal::getLength).reversed()
+			.thenComparingInt(Terminal::getId);
 	
 	private final List<Rule> ruleList;
-
-	private final Map<NonTerminal, List<Rule>> rulesByNT;
+	
+	private final Map<NonTerminal, Integer> nonTerminalIds = new HashMap<>();
+	
+	private final List<NonTerminal> nonTerminals = new ArrayList<>();
+	
+	// Terminals of the rules and DOLLAR by id
+	private final Terminal[] terminals;
+	
+	// Expansions as symbols - terminal ids, nonterminals as the complement of their ids
+	private final int[][] expansions;
+	
+	private final int[] ruleNonTerminals;
+	
+	private final BitSet[] firstForNT;
+	private final boolean[] nullableNT;
+	
+	private final BitSet[] firstForR;
+	private final boolean[] nullableR;
+	
+	private final BitSet[] follow;
+	
+	// Of the last rule table created
+	private List<Conflict> conflicts;
 	
 	public FirstFollow(List<Rule> ruleList) {
 		this.ruleList = ruleList;
-		rulesByNT = ruleList.stream().collect(groupingBy(Rule::getRuleOf));
-		ruleList.forEach(this::getFirstForRule);
 		
-		addToFollow(ruleList.get(0).getRuleOf(), Terminal.DOLLAR);
-		ruleList.forEach(this::findFollow);
-		expandFollow();
+		int maxId = Terminal.DOLLAR.getId();
+		for (Rule rule : ruleList) {
+			idOf(rule.getRuleOf());
+		}
+		for (Rule rule : ruleList) {
+			for (GrammaticalUnit unit : rule.getExpansion()) {
+				if (unit instanceof Terminal) {
+					maxId = Math.max(maxId, ((Terminal) unit).getId());
+				} else {
+					idOf((NonTerminal) unit);
+				}
+			}
+		}
+		
+		terminals = new Terminal[maxId + 1];
+		terminals[Terminal.DOLLAR.getId()] = Terminal.DOLLAR;
+		expansions = new int[ruleList.size()][];
+		ruleNonTerminals = new int[ruleList.size()];
+		for (int r = 0; r < ruleList.size(); r++) {
+			Rule rule = ruleList.get(r);
+			ruleNonTerminals[r] = idOf(rule.getRuleOf());
+			List<GrammaticalUnit> expansion = rule.getExpansion();
+			expansions[r] = new int[expansion.size()];
+			for (int i = 0; i < expansion.size(); i++) {
+				GrammaticalUnit unit = expansion.get(i);
+				if (unit instanceof Terminal) {
+					terminals[((Terminal) unit).getId()] = (Terminal) unit;
+					expansions[r][i] = ((Terminal) unit).getId();
+				} else {
+					expansions[r][i] = ~idOf((NonTerminal) unit);
+				}
+			}
+		}
+		
+		firstForNT = newSets(nonTerminals.size());
+		nullableNT = new boolean[nonTerminals.size()];
+		firstForR = newSets(ruleList.size());
+		nullableR = new boolean[ruleList.size()];
+		follow = newSets(nonTerminals.size());
+		
+		findNullable();
+		findFirst();
+		findFollow();
 	}
 	
-	private Set<Terminal> getFirstForNonTerminal(NonTerminal nt) {
-		return firstForNT.computeIfAbsent(nt, this::findFirstForNonTerminal);
+	private int idOf(NonTerminal nt) {
+		Integer id = nonTerminalIds.get(nt);
+		if (id == null) {
+			id = nonTerminals.size();
+			nonTerminalIds.put(nt, id);
+			nonTerminals.add(nt);
+		}
+		return id;
 	}
 	
-	private Set<Terminal> findFirstForNonTerminal(NonTerminal nt) {
-		List<Rule> rulesForNT = rulesByNT.get(nt);
-		if (rulesForNT == null) {
-			return Collections.emptySet();
+	private static BitSet[] newSets(int count) {
+		BitSet[] sets = new BitSet[count];
+		for (int i = 0; i < count; i++) {
+			sets[i] = new BitSet();
 		}
-		
-		return rulesForNT.stream()
-				.flatMap(rule -> getFirstForRule(rule).stream())
-				.collect(toSet());
+		return sets;
 	}
 	
-	private Set<Terminal> getFirstForRule(Rule rule) {
-		return firstForR.computeIfAbsent(rule, this::findFirstForRule);
+	// Adds FIRST of the symbols from start on to first, returns whether they can all derive nothing
+	private boolean addFirst(int[] symbols, int start, BitSet first) {
+		for (int i = start; i < symbols.length; i++) {
+			int symbol = symbols[i];
+			if (symbol >= 0) {
+				first.set(symbol);
+				return false;
+			}
+			first.or(firstForNT[~symbol]);
+			if (!nullableNT[~symbol]) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
-	private Set<Terminal> findFirstForRule(Rule rule) {
-		List<GrammaticalUnit> expansion = rule.getExpansion();
-		
-		if (expansion.isEmpty()) {
-			return Stream.of(Terminal.EPSILON).collect(toSet());
+	// A rule derives nothing once every nonterminal in it does, each occurrence is counted down
+	private void findNullable() {
+		List<List<Integer>> occurrences = new ArrayList<>();
+		for (int nt = 0; nt < nonTerminals.size(); nt++) {
+			occurrences.add(new ArrayList<>());
 		}
-
-		Set<Terminal> all = new HashSet<>();
-		for (GrammaticalUnit unit : expansion) {
-			if (unit instanceof Terminal) {
-				return Stream.of((Terminal) unit).collect(toSet());
+		int[] pending = new int[expansions.length];
+		ArrayDeque<Integer> worklist = new ArrayDeque<>();
+		for (int r = 0; r < expansions.length; r++) {
+			for (int symbol : expansions[r]) {
+				if (symbol >= 0) {
+					pending[r] = -1;
+					break;
+				}
+				occurrences.get(~symbol).add(r);
+				pending[r]++;
 			}
-			
-			if (unit instanceof NonTerminal) {
-				if (unit == rule.getRuleOf()) {
-					if (!all.contains(Terminal.EPSILON)) {
-						return all;
-					} else {
-						continue;
+			if (pending[r] == 0) {
+				nullableR[r] = true;
+				if (!nullableNT[ruleNonTerminals[r]]) {
+					nullableNT[ruleNonTerminals[r]] = true;
+					worklist.add(ruleNonTerminals[r]);
+				}
+			}
+		}
+		while (!worklist.isEmpty()) {
+			for (int r : occurrences.get(worklist.poll())) {
+				if (pending[r] > 0 && --pending[r] == 0) {
+					nullableR[r] = true;
+					if (!nullableNT[ruleNonTerminals[r]]) {
+						nullableNT[ruleNonTerminals[r]] = true;
+						worklist.add(ruleNonTerminals[r]);
 					}
 				}
-				
-				all.addAll(getFirstForNonTerminal((NonTerminal) unit));
-				if (!all.contains(Terminal.EPSILON)) {
-					return all;
+			}
+		}
+	}
+	
+	// Terminals a nonterminal starts with directly, and the nonterminals whose FIRST is part of its own
+	private void findFirst() {
+		BitSet[] includes = newSets(nonTerminals.size());
+		for (int r = 0; r < expansions.length; r++) {
+			int nt = ruleNonTerminals[r];
+			for (int symbol : expansions[r]) {
+				if (symbol >= 0) {
+					firstForNT[nt].set(symbol);
+					break;
 				}
-				
-				if (unit != expansion.get(expansion.size() - 1)) {
-					all.remove(Terminal.EPSILON);
+				if (~symbol != nt) {
+					includes[nt].set(~symbol);
+				}
+				if (!nullableNT[~symbol]) {
+					break;
 				}
 			}
 		}
+		digraph(firstForNT, includes);
 		
-		return all;
-		
+		for (int r = 0; r < expansions.length; r++) {
+			addFirst(expansions[r], 0, firstForR[r]);
+		}
 	}
 	
-	private void findFollow(Rule rule) {
-		List<GrammaticalUnit> expansion = rule.getExpansion();
-		
-		Set<NonTerminal> current = new HashSet<>();
-		for (GrammaticalUnit unit : expansion) {
-			
-			if (unit instanceof Terminal) {
-				current.forEach(nt -> {
-					addToFollow(nt, (Terminal) unit);
-				});
-				current.clear();
-			} else if (unit instanceof NonTerminal) {
-				Set<Terminal> firstForNext = getFirstForNonTerminal((NonTerminal) unit);
-				current.forEach(nt -> {
-					addToFollow(nt, firstForNext);
-				});
-				if (!firstForNext.contains(Terminal.EPSILON)) {
-					current.clear();
+	// FIRST of what follows a nonterminal goes into its FOLLOW directly, FOLLOW of the nonterminal of the rule
+	// when all that follows can derive nothing
+	private void findFollow() {
+		BitSet[] includes = newSets(nonTerminals.size());
+		if (!ruleList.isEmpty()) {
+			follow[ruleNonTerminals[0]].set(Terminal.DOLLAR.getId());
+		}
+		for (int r = 0; r < expansions.length; r++) {
+			int[] symbols = expansions[r];
+			for (int i = 0; i < symbols.length; i++) {
+				if (symbols[i] >= 0) {
+					continue;
+				}
+				int nt = ~symbols[i];
+				if (addFirst(symbols, i + 1, follow[nt]) && nt != ruleNonTerminals[r]) {
+					includes[nt].set(ruleNonTerminals[r]);
 				}
 			}
-			
-			if (unit instanceof NonTerminal) {
-				current.add((NonTerminal) unit);
-			}
-			
 		}
-		
-		current.forEach(nt -> {
-			addToFollow(nt, rule.getRuleOf());
-		});
-		
-	}
-
-	private void addToFollow(NonTerminal nt, NonTerminal toExpand) {
-		followToExpand.merge(nt, Stream.of(toExpand).collect(toSet()), Sets::union);
+		digraph(follow, includes);
 	}
-
-	private void addToFollow(NonTerminal nt, Terminal term) {
-		addToFollow(nt, Arrays.asList(term));
-	}
-	
-	private void addToFollow(NonTerminal nt, Collection<Terminal> terms) {
-		follow.merge(nt, terms.stream().filter(t -> t != Terminal.EPSILON).collect(toSet()), Sets::union);
-	}
-	
-	private void expandFollow() {
-		int i = 0;
-		boolean appliedExpand = true;
-		while (appliedExpand && (i++) < ruleList.size()) {
-			appliedExpand = false;
-			for (NonTerminal nt : followToExpand.keySet()) {
-				Set<NonTerminal> ntsToExpand = followToExpand.get(nt);
-				Set<NonTerminal> toRemove = new HashSet<>();
-				for (NonTerminal link : ntsToExpand) {
-					if (link != nt) {
-						appliedExpand = true;
-						Set<Terminal> expandedLink = follow.getOrDefault(link, Collections.emptySet());
-						addToFollow(nt, expandedLink);
-					}
-					if (link == nt || followToExpand.getOrDefault(link, Collections.emptySet())
-							.stream().filter(_nt -> _nt != nt).count() == 0) {
-						toRemove.add(link);
+	
+	// Adds to each set the sets it includes, transitively - the digraph algorithm of DeRemer and Pennello,
+	// a depth-first search that gives every strongly connected component one union. Sets are visited once,
+	// the search keeps its own stack so that long chains of nonterminals do not overflow the thread's.
+	private static void digraph(BitSet[] sets, BitSet[] includes) {
+		int count = sets.length;
+		int[] depth = new int[count];
+		int[] stack = new int[count];
+		int top = 0;
+		int[] frames = new int[count];
+		int[] next = new int[count];
+		int frameTop = 0;
+		
+		for (int root = 0; root < count; root++) {
+			if (depth[root] != 0) {
+				continue;
+			}
+			stack[top++] = root;
+			depth[root] = top;
+			frames[frameTop] = root;
+			next[frameTop++] = includes[root].nextSetBit(0);
+			
+			while (frameTop > 0) {
+				int x = frames[frameTop - 1];
+				int y = next[frameTop - 1];
+				if (y >= 0) {
+					next[frameTop - 1] = includes[x].nextSetBit(y + 1);
+					if (depth[y] == 0) {
+						stack[top++] = y;
+						depth[y] = top;
+						frames[frameTop] = y;
+						next[frameTop++] = includes[y].nextSetBit(0);
+					} else {
+						depth[x] = Math.min(depth[x], depth[y]);
+						sets[x].or(sets[y]);
 					}
+					continue;
+				}
+				
+				frameTop--;
+				if (stack[depth[x] - 1] == x) {
+					// x is the first of its component on the stack, the rest of it gets the same set
+					int w;
+					do {
+						w = stack[--top];
+						depth[w] = Integer.MAX_VALUE;
+						if (w != x) {
+							sets[w].or(sets[x]);
+						}
+					} while (w != x);
+				}
+				if (frameTop > 0) {
+					int parent = frames[frameTop - 1];
+					depth[parent] = Math.min(depth[parent], depth[x]);
+					sets[parent].or(sets[x]);
 				}
-				followToExpand.put(nt, Sets.difference(ntsToExpand, toRemove));
 			}
 		}
 	}
 	
+	private Set<Terminal> toSet(BitSet set, boolean nullable) {
+		Set<Terminal> terminals = new LinkedHashSet<>();
+		for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+			terminals.add(this.terminals[id]);
+		}
+		if (nullable) {
+			terminals.add(Terminal.EPSILON);
+		}
+		return terminals;
+	}
+	
+	private static String format(Set<Terminal> terminals) {
+		return "{" + terminals.stream().sorted(LONGEST_FIRST).map(t -> t.toString()).collect(joining(", ")) + "}";
+	}
+	
+	private Set<Terminal> getFirstForRule(int ruleId) {
+		return toSet(firstForR[ruleId], nullableR[ruleId]);
+	}
+	
 	public String first() {
 		StringBuilder builder = new StringBuilder();
-		int i = 0;
-		for (Rule rule : ruleList) {
-			builder.append(++i + ". " + rule.getRuleOf().getName() + " | {"
-				+ getFirstForRule(rule).stream()
-					.sorted((t1, t2) -> Integer.compare(t2.getLength(), t1.getLength()))
-					.map(t -> t.toString()).collect(joining(", ")) + "}\n");
+		for (int r = 0; r < ruleList.size(); r++) {
+			builder.append((r + 1) + ". " + ruleList.get(r).getRuleOf().getName() + " | " + format(getFirstForRule(r)) + "\n");
 		}
 		return builder.toString();
 	}
 	
 	public String follow() {
 		StringBuilder builder = new StringBuilder();
-		Set<NonTerminal> handled = new HashSet<>();
-		for (Rule rule : ruleList) {
-			if (!handled.contains(rule.getRuleOf())) {
-				builder.append(rule.getRuleOf().getName() + " | {"
-					+ follow.get(rule.getRuleOf()).stream()
-						.sorted((t1, t2) -> Integer.compare(t2.getLength(), t1.getLength()))
-						.map(t -> t.toString()).collect(joining(", ")) + "}\n");
-				handled.add(rule.getRuleOf());
-			}
+		for (int nt = 0; nt < nonTerminals.size(); nt++) {
+			builder.append(nonTerminals.get(nt).getName() + " | " + format(getFollow(nonTerminals.get(nt))) + "\n");
 		}
 		return builder.toString();
 	}
@@ -199,49 +359,105 @@ public class FirstFollow {
 	public String report() {
 		StringBuilder builder = new StringBuilder();
 		builder.append(String.format("%s;%s;%s\n", "RULE", "FIRST", "FOLLOW"));
-		Set<NonTerminal> handled = new HashSet<>();
-		int i = 0;
-		for (Rule rule : ruleList) {
-			
-			String first = "{" + getFirstForRule(rule).stream()
-					.sorted((t1, t2) -> Integer.compare(t2.getLength(), t1.getLength()))
-					.map(t -> t.toString()).collect(joining(", ")) + "}";
-			
-			String follow;
-			if (!handled.contains(rule.getRuleOf())) {
-				follow = "{" + this.follow.getOrDefault(rule.getRuleOf(), Collections.emptySet()).stream()
-							.sorted((t1, t2) -> Integer.compare(t2.getLength(), t1.getLength()))
-							.map(t -> t.toString()).collect(joining(", ")) + "}";
-				handled.add(rule.getRuleOf());
-			} else {
-				follow = "-";
+		BitSet handled = new BitSet();
+		for (int r = 0; r < ruleList.size(); r++) {
+			String follow = "-";
+			if (!handled.get(ruleNonTerminals[r])) {
+				follow = format(getFollow(ruleList.get(r).getRuleOf()));
+				handled.set(ruleNonTerminals[r]);
 			}
-			
-			builder.append(String.format("%d. %s;%s;%s\n", ++i, rule.toString(), first, follow));
+			builder.append(String.format("%d. %s;%s;%s\n", r + 1, ruleList.get(r).toString(), format(getFirstForRule(r)), follow));
 		}
 		return builder.toString();
 	}
 	
+	public Set<Terminal> getFirst(NonTerminal nt) {
+		Integer id = nonTerminalIds.get(nt);
+		if (id == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(toSet(firstForNT[id], nullableNT[id]));
+	}
+	
+	public Set<Terminal> getFollow(NonTerminal nt) {
+		Integer id = nonTerminalIds.get(nt);
+		if (id == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(toSet(follow[id], false));
+	}
+	
 	public Set<Terminal> getTerminalsForRuleApplication(Rule rule) {
-		Set<Terminal> ret = new HashSet<>(getFirstForRule(rule));
-		if (ret.contains(Terminal.EPSILON)) {
-			ret.addAll(follow.getOrDefault(rule.getRuleOf(), Collections.emptySet()));
-			ret.remove(Terminal.EPSILON);
+		int ruleId = ruleList.indexOf(rule);
+		return ruleId < 0 ? Collections.emptySet() : toSet(lookahead(ruleId), false);
+	}
+	
+	private BitSet lookahead(int ruleId) {
+		BitSet lookahead = (BitSet) firstForR[ruleId].clone();
+		if (nullableR[ruleId]) {
+			lookahead.or(follow[ruleNonTerminals[ruleId]]);
 		}
-		return ret;
+		return lookahead;
 	}
 	
+	// Conflicts are recorded, see getConflicts, and resolved the way the grammar of Parser needs them -
+	// a rule with the terminal in FIRST wins over one applying through FOLLOW, of two with it in FIRST
+	// the longer one, of two applying through FOLLOW the shorter one, so that an empty rule ends a repetition
 	public Table<NonTerminal, Terminal, Rule> createRuleTable() {
-		Table<NonTerminal, Terminal, Rule> ruleTable = HashBasedTable.create(40, 20);
-		for (Rule rule : ruleList) {
-			for (Terminal term : getTerminalsForRuleApplication(rule)) {
-				Rule old = ruleTable.get(rule.getRuleOf(), term);
-				if (old == null || rule.getExpansion().size() > old.getExpansion().size()) {
-					ruleTable.put(rule.getRuleOf(), term, rule);
+		long columns = terminals.length;
+		// Rule ids by nonterminal and terminal id
+		Map<Long, Integer> chosen = new LinkedHashMap<>();
+		List<Conflict> conflicts = new ArrayList<>();
+		for (int r = 0; r < ruleList.size(); r++) {
+			int nt = ruleNonTerminals[r];
+			BitSet lookahead = lookahead(r);
+			for (int id = lookahead.nextSetBit(0); id >= 0; id = lookahead.nextSetBit(id + 1)) {
+				Integer old = chosen.putIfAbsent(nt * columns + id, r);
+				if (old == null) {
+					continue;
+				}
+				if (wins(r, old, id)) {
+					chosen.put(nt * columns + id, r);
+					conflicts.add(new Conflict(nonTerminals.get(nt), terminals[id], ruleList.get(r), ruleList.get(old)));
+				} else {
+					conflicts.add(new Conflict(nonTerminals.get(nt), terminals[id], ruleList.get(old), ruleList.get(r)));
 				}
 			}
 		}
+		
+		Table<NonTerminal, Terminal, Rule> ruleTable = HashBasedTable.create(nonTerminals.size(), 20);
+		chosen.forEach((cell, r) -> ruleTable.put(nonTerminals.get((int) (cell / columns)), terminals[(int) (cell % columns)], ruleList.get(r)));
+		this.conflicts = conflicts;
 		return ruleTable;
 	}
 	
+	private boolean wins(int rule, int old, int terminal) {
+		boolean first = firstForR[rule].get(terminal);
+		if (first != firstForR[old].get(terminal)) {
+			return first;
+		}
+		int length = expansions[rule].length;
+		int oldLength = expansions[old].length;
+		return first ? length > oldLength : length < oldLength;
+	}
+	
+	public ParseTable compileRuleTable() {
+		return new ParseTable(ruleList, createRuleTable(), this::getFollow);
+	}
+	
+	// The grammar is LL(1) when there are none
+	public List<Conflict> getConflicts() {
+		if (conflicts == null) {
+			createRuleTable();
+		}
+		return Collections.unmodifiableList(conflicts);
+	}
+	
+	public String conflictReport() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%s;%s;%s;%s\n", "NONTERMINAL", "TERMINAL", "CHOSEN", "DISCARDED"));
+		getConflicts().forEach(conflict -> builder.append(conflict).append('\n'));
+		return builder.toString();
+	}
+
 }
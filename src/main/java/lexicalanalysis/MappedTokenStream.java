@@ -0,0 +1,291 @@
+package lexicalanalysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import lexicalanalysis.Terminal.LiteralTerminal;
+
+// Lexes UTF-8 bytes of a mapped file, or of a buffer in memory, positions are offsets of bytes
+class MappedTokenStream extends TokenStream {
+	
+	// A single mapping is limited to 2 GB, larger files are mapped region by region
+	private final static long REGION_SIZE = 1L << 30;
+	
+	// Null for bytes in memory, they are a single region
+	private final FileChannel channel;
+	
+	private final long size;
+	
+	private final long regionSize;
+	
+	// Literals are ASCII, a decoded character takes up to 4 bytes
+	private final int lookahead;
+	
+	private ByteBuffer region;
+	
+	private long regionOffset;
+	
+	// Length in bytes of the sequence last decoded
+	private int sequenceLength;
+
+	// Bytes from runStart to runEnd are plain, they are lexed without the trie
+	private long runStart;
+	private long runEnd;
+
+	MappedTokenStream(Path path, TerminalTrie trie) throws IOException {
+		this(path, trie, 0, -1, REGION_SIZE);
+	}
+	
+	MappedTokenStream(Path path, TerminalTrie trie, long start, long end) throws IOException {
+		this(path, trie, start, end, REGION_SIZE);
+	}
+	
+	MappedTokenStream(Path path, long regionSize) throws IOException {
+		this(path, getTrie(), 0, -1, regionSize);
+	}
+	
+	MappedTokenStream(ByteBuffer bytes, TerminalTrie trie) {
+		super(trie);
+		this.lookahead = Math.max(trie.getMaxLength(), 4);
+		this.channel = null;
+		this.region = bytes.slice();
+		this.size = region.limit();
+		this.regionSize = size;
+	}
+	
+	// An end of -1 stands for the end of the file
+	private MappedTokenStream(Path path, TerminalTrie trie, long start, long end, long regionSize) throws IOException {
+		super(trie);
+		this.lookahead = Math.max(trie.getMaxLength(), 4);
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.size = end < 0 ? channel.size() : Math.min(end, channel.size());
+		this.regionSize = regionSize;
+		setPosition(start);
+		setTokenPosition(start);
+		map(Math.min(start, size));
+	}
+	
+	private void map(long offset) throws IOException {
+		if (channel == null) {
+			return;
+		}
+		regionOffset = offset;
+		runStart = 0;
+		runEnd = 0;
+		region = channel.map(MapMode.READ_ONLY, offset, Math.min(regionSize, size - offset));
+	}
+	
+	@Override
+	public Token read() throws IOException, InvalidTokenException {
+		
+		TerminalTrie trie = getTerminalTrie();
+		TextScanner scanner = trie.getScanner();
+		while (true) {
+			long position = getPosition();
+			if (position < runEnd && position >= runStart) {
+				int offset = (int) (position - regionOffset);
+				byte b = region.get(offset);
+				Terminal terminal = trie.matchSingle((char) b);
+				setTokenPosition(position);
+				
+				// Whitespace is skipped, up to the end of the run at once
+				if (terminal == TokenStream.WHITESPACE) {
+					setPosition(regionOffset + scanner.skippedEnd(region, offset + 1, (int) (runEnd - regionOffset)));
+					continue;
+				}
+				setPosition(position + 1);
+				return Token.of((char) b, terminal);
+			}
+			
+			if (position >= size) {
+				setTokenPosition(position);
+				return Token.EOF;
+			}
+			
+			int offset = (int) (position - regionOffset);
+			if (region.limit() - offset < lookahead && regionOffset + region.limit() < size) {
+				map(position);
+				offset = 0;
+			}
+			int available = region.limit() - offset;
+			
+			byte first = region.get(offset);
+			if (first >= 0 && scanner.isPlain((char) first)) {
+				runStart = position;
+				runEnd = regionOffset + scanner.plainEnd(region, offset + 1, region.limit());
+				continue;
+			}
+			
+			Token token = null;
+			char c = (char) first;
+			int length;
+			Terminal terminal = trie.match(region, offset, available);
+			if (terminal != null) {
+				length = terminal.getLength();
+				if (terminal instanceof LiteralTerminal) {
+					token = ((LiteralTerminal) terminal).getToken();
+				} else {
+					token = Token.of(c, terminal);
+				}
+			} else {
+				// Only text outside of ASCII gets decoded
+				int decoded = first < 0 ? decode(offset, available) : -1;
+				terminal = decoded < 0 ? null : trie.matchSingle((char) decoded);
+				if (terminal == null) {
+					throw new InvalidTokenException(text(offset, available), position);
+				}
+				length = sequenceLength;
+				c = (char) decoded;
+				token = Token.of(c, terminal);
+			}
+			
+			setTokenPosition(position);
+			setPosition(position + length);
+			
+			// Whitespace is skipped
+			if (terminal != TokenStream.WHITESPACE) {
+				return token;
+			}
+		}
+		
+	}
+	
+	@Override
+	public Token read(boolean[] textTerminals) throws IOException, InvalidTokenException {
+		Token token = read();
+		if (!isText(token, textTerminals)) {
+			return token;
+		}
+		TerminalTrie trie = getTerminalTrie();
+		TextScanner scanner = trie.getScanner();
+		long start = getTokenPosition();
+		long position = getPosition();
+		long end = position;
+		int length = 1;
+		while (position < size) {
+			if (position >= runEnd || position < runStart) {
+				int offset = (int) (position - regionOffset);
+				if (region.limit() - offset < lookahead && regionOffset + region.limit() < size) {
+					map(position);
+					offset = 0;
+				}
+				int available = region.limit() - offset;
+				byte b = region.get(offset);
+				if (b >= 0 && scanner.isPlain((char) b)) {
+					runStart = position;
+					runEnd = regionOffset + scanner.plainEnd(region, offset + 1, region.limit());
+					continue;
+				}
+				
+				// Starts a literal, or is outside of ASCII
+				int characterLength = 1;
+				Terminal terminal = trie.match(region, offset, available);
+				if (terminal == null && b < 0) {
+					int decoded = decode(offset, available);
+					terminal = decoded < 0 ? null : trie.matchSingle((char) decoded);
+					characterLength = sequenceLength;
+				}
+				if (terminal != TokenStream.WHITESPACE && !isText(terminal, textTerminals)) {
+					break;
+				}
+				position += characterLength;
+				if (terminal != TokenStream.WHITESPACE) {
+					end = position;
+					length++;
+				}
+				continue;
+			}
+			
+			int offset = (int) (position - regionOffset);
+			Terminal terminal = trie.matchSingle((char) region.get(offset));
+			if (terminal == TokenStream.WHITESPACE) {
+				position = regionOffset + scanner.skippedEnd(region, offset + 1, (int) (runEnd - regionOffset));
+				continue;
+			}
+			if (!isText(terminal, textTerminals)) {
+				break;
+			}
+			position++;
+			end = position;
+			length++;
+		}
+		getTextRun().set(start, end, length);
+		setPosition(position);
+		setTokenPosition(start);
+		return Token.TEXT;
+	}
+	
+	// Skips a whole UTF-8 sequence, with its continuation bytes
+	@Override
+	public void skipCharacter() throws IOException {
+		long position = getPosition();
+		if (position >= size) {
+			return;
+		}
+		if (position < regionOffset || position >= regionOffset + region.limit()) {
+			map(position);
+		}
+		int offset = (int) (position - regionOffset);
+		int length = 1;
+		while (length < 4 && offset + length < region.limit() && (region.get(offset + length) & 0xC0) == 0x80) {
+			length++;
+		}
+		setPosition(position + length);
+	}
+	
+	private int decode(int offset, int available) {
+		sequenceLength = sequenceLength(region.get(offset));
+		return decode(region, offset, available);
+	}
+	
+	// Bytes of the UTF-8 sequence the lead byte starts, 1 for those that are not decoded
+	static int sequenceLength(byte lead) {
+		int b = lead & 0xFF;
+		if (b >= 0xC2 && b <= 0xDF) {
+			return 2;
+		}
+		return b >= 0xE0 && b <= 0xEF ? 3 : 1;
+	}
+	
+	// Decodes a UTF-8 sequence into a character, or -1 for sequences outside of the BMP and malformed ones
+	static int decode(ByteBuffer buffer, int offset, int available) {
+		int length = sequenceLength(buffer.get(offset));
+		if (length == 1 || length > available) {
+			return -1;
+		}
+		int c = buffer.get(offset) & (length == 2 ? 0x1F : 0x0F);
+		for (int i = 1; i < length; i++) {
+			int b = buffer.get(offset + i) & 0xFF;
+			if ((b & 0xC0) != 0x80) {
+				return -1;
+			}
+			c = (c << 6) | (b & 0x3F);
+		}
+		
+		if ((length == 3 && c < 0x800) || Character.isSurrogate((char) c)) {
+			return -1;
+		}
+		return c;
+	}
+	
+	private String text(int offset, int available) {
+		byte[] bytes = new byte[Math.min(available, getTerminalTrie().getMaxLength())];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = region.get(offset + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+	}
+	
+}
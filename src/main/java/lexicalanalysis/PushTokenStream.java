@@ -0,0 +1,176 @@
+package lexicalanalysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import lexicalanalysis.Terminal.LiteralTerminal;
+
+// Lexes UTF-8 bytes that are handed to it in chunks instead of read. A token is lexed ahead as soon as
+// it is sure not to go on in the next chunk, read only hands out that one - ask isReady before reading.
+// Positions are byte offsets, as of mapped files.
+public class PushTokenStream extends TokenStream {
+	
+	private static final int INITIAL_SIZE = 256;
+	
+	// Bytes from start to end are not lexed yet
+	private byte[] bytes = new byte[INITIAL_SIZE];
+	private ByteBuffer buffer = ByteBuffer.wrap(bytes);
+	private int start = 0;
+	private int end = 0;
+	
+	private boolean ended = false;
+	
+	// Lexed ahead, with where it starts and ends, or why there is no token
+	private Token next;
+	private long nextPosition;
+	private long nextEnd;
+	private InvalidTokenException invalid;
+	private int invalidLength;
+	
+	// Position of the first byte from start
+	private long offset = 0;
+	
+	public PushTokenStream() {
+		this(TokenStream.getTrie());
+	}
+	
+	public PushTokenStream(TerminalTrie trie) {
+		super(trie);
+	}
+	
+	// Takes all remaining bytes of the chunk
+	public void feed(ByteBuffer chunk) {
+		if (ended) {
+			throw new IllegalStateException("Input has ended");
+		}
+		int length = chunk.remaining();
+		if (end + length > bytes.length) {
+			int kept = end - start;
+			byte[] target = kept + length > bytes.length ? new byte[Math.max(bytes.length * 2, kept + length)] : bytes;
+			System.arraycopy(bytes, start, target, 0, kept);
+			bytes = target;
+			buffer = ByteBuffer.wrap(bytes);
+			start = 0;
+			end = kept;
+		}
+		chunk.get(bytes, end, length);
+		end += length;
+	}
+	
+	// No more chunks, what is left is lexed as it is and the stream ends with EOF
+	public void end() {
+		ended = true;
+	}
+	
+	public boolean isEnded() {
+		return ended;
+	}
+	
+	// Whether read has a token to hand out, EOF or an invalid token included
+	public boolean isReady() {
+		return next != null || invalid != null || lex();
+	}
+	
+	private boolean lex() {
+		while (true) {
+			int available = end - start;
+			if (available == 0) {
+				if (!ended) {
+					return false;
+				}
+				next = Token.EOF;
+				nextPosition = offset;
+				nextEnd = offset;
+				return true;
+			}
+			
+			byte first = bytes[start];
+			Terminal terminal;
+			int length;
+			char c;
+			if (first >= 0) {
+				// A literal that the bytes start could go on in the next chunk
+				if (!ended && available < getTerminalTrie().getMaxLength() && getTerminalTrie().matchesLonger(buffer, start, available)) {
+					return false;
+				}
+				terminal = getTerminalTrie().match(buffer, start, available);
+				length = terminal == null ? 1 : terminal.getLength();
+				c = (char) first;
+			} else {
+				// So could a UTF-8 sequence
+				length = MappedTokenStream.sequenceLength(first);
+				if (!ended && available < length) {
+					return false;
+				}
+				int decoded = MappedTokenStream.decode(buffer, start, available);
+				terminal = decoded < 0 ? null : getTerminalTrie().matchSingle((char) decoded);
+				c = (char) decoded;
+			}
+			
+			if (terminal == null) {
+				// With as much of the text in the message as other streams give
+				if (!ended && available < getTerminalTrie().getMaxLength()) {
+					return false;
+				}
+				invalid = new InvalidTokenException(
+						new String(bytes, start, Math.min(available, getTerminalTrie().getMaxLength()), StandardCharsets.UTF_8), offset);
+				invalidLength = Math.min(length, available);
+				return true;
+			}
+			
+			long position = offset;
+			start += length;
+			offset += length;
+			
+			// Whitespace is skipped
+			if (terminal == WHITESPACE) {
+				continue;
+			}
+			next = terminal instanceof LiteralTerminal ? ((LiteralTerminal) terminal).getToken() : Token.of(c, terminal);
+			nextPosition = position;
+			nextEnd = offset;
+			return true;
+		}
+	}
+	
+	@Override
+	public Token read() throws InvalidTokenException {
+		if (!isReady()) {
+			throw new IllegalStateException("The next token needs more input");
+		}
+		if (invalid != null) {
+			throw invalid;
+		}
+		Token token = next;
+		next = null;
+		setTokenPosition(nextPosition);
+		setPosition(nextEnd);
+		return token;
+	}
+	
+	// A run of text may go on in the next chunk, so its characters are read one by one
+	@Override
+	public Token read(boolean[] textTerminals) throws InvalidTokenException {
+		return read();
+	}
+	
+	// Moves past the character an InvalidTokenException was thrown for
+	@Override
+	public void skipCharacter() {
+		if (invalid != null) {
+			start += invalidLength;
+			offset += invalidLength;
+			invalid = null;
+		}
+	}
+	
+	// Bytes fed and not lexed yet
+	public int getBuffered() {
+		return end - start;
+	}
+	
+	@Override
+	public void close() {
+	}
+
+}
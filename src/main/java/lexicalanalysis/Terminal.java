@@ -1,5 +1,7 @@
 package lexicalanalysis;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 import com.google.common.base.CharMatcher;
@@ -7,6 +9,7 @@ import com.google.common.base.CharMatcher;
 public interface Terminal extends GrammaticalUnit {
 	
 	public static final Terminal EPSILON = new Terminal() {
+		private final int id = TerminalIds.next();
 		@Override
 		public boolean test(String text) {
 			return false;
@@ -15,12 +18,17 @@ public interface Terminal extends GrammaticalUnit {
 		public int getLength() {
 			return -1;
 		}
+		@Override
+		public int getId() {
+			return id;
+		}
 		public String toString() {
 			return "Ɛ";
 		};
 	};
 	
 	public static final Terminal DOLLAR = new Terminal() {
+		private final int id = TerminalIds.next();
 		@Override
 		public boolean test(String text) {
 			return false;
@@ -29,6 +37,10 @@ public interface Terminal extends GrammaticalUnit {
 		public int getLength() {
 			return -1;
 		}
+		@Override
+		public int getId() {
+			return id;
+		}
 		public String toString() {
 			return "$";
 		};
@@ -38,24 +50,51 @@ public interface Terminal extends GrammaticalUnit {
 	
 	public int getLength();
 	
+	public int getId();
+	
+	// Upper bound of the ids of all terminals created so far
+	public static int count() {
+		return TerminalIds.count();
+	}
+	
 	public static class LiteralTerminal implements Terminal {
 		
+		private static final Map<String, LiteralTerminal> LITERAL_CACHE = new ConcurrentHashMap<>();
+		
+		private final int id = TerminalIds.next();
+		
 		private final String text;
+		
+		private final Token token;
 
 		private LiteralTerminal(String text) {
 			this.text = text;
+			this.token = Token.of(text, this);
 		}
 
 		@Override
 		public boolean test(String text) {
 			return this.text.equals(text);
 		}
+		
+		public String getText() {
+			return text;
+		}
+		
+		public Token getToken() {
+			return token;
+		}
 
 		@Override
 		public int getLength() {
 			return text.length();
 		}
 		
+		@Override
+		public int getId() {
+			return id;
+		}
+		
 		@Override
 		public String toString() {
 			return String.format("\"%s\"", text);
@@ -65,6 +104,8 @@ public interface Terminal extends GrammaticalUnit {
 	
 	public static class PredicateCharTerminal implements Terminal {
 		
+		private final int id = TerminalIds.next();
+		
 		private final Predicate<Character> predicate;
 		
 		private final String name;
@@ -80,12 +121,21 @@ public interface Terminal extends GrammaticalUnit {
 				&& text.length() == 1
 				&& predicate.test(text.charAt(0));
 		}
+		
+		public boolean test(char c) {
+			return predicate.test(c);
+		}
 
 		@Override
 		public int getLength() {
 			return 1;
 		}
 		
+		@Override
+		public int getId() {
+			return id;
+		}
+		
 		@Override
 		public String toString() {
 			return name;
@@ -93,8 +143,9 @@ public interface Terminal extends GrammaticalUnit {
 		
 	}
 	
+	// Literals are interned, so the grammar and the lexer share the same terminals
 	public static Terminal newLiteralTerminal(String text) {
-		return new LiteralTerminal(text);
+		return LiteralTerminal.LITERAL_CACHE.computeIfAbsent(text, LiteralTerminal::new);
 	}
 	
 	public static Terminal newCharacterSetTerminal(String name, CharMatcher charMatcher) {
@@ -0,0 +1,21 @@
+package lexicalanalysis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Terminals are numbered in order of creation, so parse tables can index them densely
+final class TerminalIds {
+	
+	private static final AtomicInteger NEXT = new AtomicInteger();
+	
+	private TerminalIds() {
+	}
+	
+	static int next() {
+		return NEXT.getAndIncrement();
+	}
+	
+	static int count() {
+		return NEXT.get();
+	}
+	
+}
@@ -0,0 +1,199 @@
+package lexicalanalysis;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lexicalanalysis.Terminal.LiteralTerminal;
+import lexicalanalysis.Terminal.PredicateCharTerminal;
+
+// Longest-match automaton over the terminals - literals form a trie, single characters
+// are resolved through a lookup table, so a token costs one pass over its characters
+public class TerminalTrie {
+	
+	private static final int ASCII = 128;
+	
+	private static class Node {
+		
+		private final Node[] ascii = new Node[ASCII];
+		
+		private Map<Character, Node> other;
+		
+		private Terminal terminal;
+		
+		// A longer literal goes on from here
+		private boolean continued;
+		
+		private Node next(char c) {
+			if (c < ASCII) {
+				return ascii[c];
+			}
+			return other == null ? null : other.get(c);
+		}
+		
+		private Node add(char c) {
+			Node node = next(c);
+			if (node == null) {
+				node = new Node();
+				continued = true;
+				if (c < ASCII) {
+					ascii[c] = node;
+				} else {
+					if (other == null) {
+						other = new HashMap<>();
+					}
+					other.put(c, node);
+				}
+			}
+			return node;
+		}
+	
+	}
+	
+	private final List<Terminal> terminals;
+	
+	private final Node root = new Node();
+	
+	// Terminals of length 1 in priority order, for characters outside of the table
+	private final List<Terminal> singleChar = new ArrayList<>();
+	
+	private final Terminal[] singleAscii = new Terminal[ASCII];
+	
+	private final int maxLength;
+	
+	private final TextScanner scanner;
+	
+	// Terminals are in priority order - on equal length, the earlier one wins
+	public TerminalTrie(List<Terminal> terminals) {
+		this.terminals = terminals;
+		
+		int max = 0;
+		for (Terminal terminal : terminals) {
+			max = Math.max(max, terminal.getLength());
+			if (terminal.getLength() == 1) {
+				singleChar.add(terminal);
+			} else if (terminal instanceof LiteralTerminal) {
+				Node node = root;
+				for (char c : ((LiteralTerminal) terminal).getText().toCharArray()) {
+					node = node.add(c);
+				}
+				if (node.terminal == null) {
+					node.terminal = terminal;
+				}
+			}
+		}
+		maxLength = max;
+		
+		for (char c = 0; c < ASCII; c++) {
+			singleAscii[c] = findSingle(c);
+		}
+		scanner = TextScanner.create(this);
+	}
+	
+	private Terminal findSingle(char c) {
+		for (Terminal terminal : singleChar) {
+			if (terminal instanceof PredicateCharTerminal) {
+				if (((PredicateCharTerminal) terminal).test(c)) {
+					return terminal;
+				}
+			} else if (terminal instanceof LiteralTerminal) {
+				if (((LiteralTerminal) terminal).getText().charAt(0) == c) {
+					return terminal;
+				}
+			}
+		}
+		return null;
+	}
+	
+	public Terminal match(char[] buffer, int offset, int length) {
+		if (length < 1) {
+			return null;
+		}
+		
+		Terminal longest = null;
+		Node node = root;
+		int end = offset + Math.min(length, maxLength);
+		for (int i = offset; i < end; i++) {
+			node = node.next(buffer[i]);
+			if (node == null) {
+				break;
+			}
+			if (node.terminal != null) {
+				longest = node.terminal;
+			}
+		}
+		if (longest != null) {
+			return longest;
+		}
+		
+		return matchSingle(buffer[offset]);
+	}
+	
+	// Bytes are matched as ASCII characters, anything else has to be decoded and given to matchSingle
+	public Terminal match(ByteBuffer buffer, int offset, int length) {
+		if (length < 1) {
+			return null;
+		}
+		
+		Terminal longest = null;
+		Node node = root;
+		int end = offset + Math.min(length, maxLength);
+		for (int i = offset; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b < 0) {
+				break;
+			}
+			node = node.ascii[b];
+			if (node == null) {
+				break;
+			}
+			if (node.terminal != null) {
+				longest = node.terminal;
+			}
+		}
+		if (longest != null) {
+			return longest;
+		}
+		
+		byte b = buffer.get(offset);
+		return b < 0 ? null : singleAscii[b];
+	}
+	
+	// Whether a literal longer than the bytes starts with all of them, so that more bytes could match longer
+	public boolean matchesLonger(ByteBuffer buffer, int offset, int length) {
+		Node node = root;
+		for (int i = offset; i < offset + length; i++) {
+			byte b = buffer.get(i);
+			if (b < 0 || node.ascii[b] == null) {
+				return false;
+			}
+			node = node.ascii[b];
+		}
+		return node.continued;
+	}
+	
+	public Terminal matchSingle(char c) {
+		return c < ASCII ? singleAscii[c] : findSingle(c);
+	}
+	
+	// Whether a literal longer than one character starts with the character
+	public boolean startsLiteral(char c) {
+		return root.next(c) != null;
+	}
+	
+	// Runs of characters that can be lexed without the trie
+	public TextScanner getScanner() {
+		return scanner;
+	}
+	
+	public List<Terminal> getTerminals() {
+		return terminals;
+	}
+	
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+}
@@ -0,0 +1,32 @@
+package lexicalanalysis;
+
+// Where the run of text read last as a TEXT token lies, from its first character to the end of its last,
+// whitespace in between skipped. Each stream reuses its run.
+public class TextRun {
+	
+	private long start;
+	
+	private long end;
+	
+	private int length;
+	
+	void set(long start, long end, int length) {
+		this.start = start;
+		this.end = end;
+		this.length = length;
+	}
+	
+	public long getStart() {
+		return start;
+	}
+	
+	public long getEnd() {
+		return end;
+	}
+	
+	// Characters of the run, the whitespace skipped not counted
+	public int getLength() {
+		return length;
+	}
+
+}
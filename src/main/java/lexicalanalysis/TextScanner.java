@@ -0,0 +1,100 @@
+package lexicalanalysis;
+
+import java.nio.ByteBuffer;
+
+// Finds where runs of text and of skipped characters end. Plain characters are ASCII characters lexed
+// as single characters that start no longer literal, so a run of them needs no trie. This one scans a
+// character at a time, VectorTextScanner of the vector profile a block of characters at a time.
+public class TextScanner {
+	
+	// Set to false to scan a character at a time where the Vector API is available
+	public static final String VECTOR_PROPERTY = "parser.vectorScanning";
+	
+	static final int ASCII = 128;
+	
+	private static final String VECTOR_SCANNER = "lexicalanalysis.VectorTextScanner";
+	
+	protected final boolean[] plain;
+	
+	// Plain characters the lexer skips
+	protected final boolean[] skipped;
+	
+	protected TextScanner(boolean[] plain, boolean[] skipped) {
+		this.plain = plain;
+		this.skipped = skipped;
+	}
+	
+	// Whitespace is the only terminal the lexer skips
+	public static TextScanner create(TerminalTrie trie) {
+		boolean[] plain = new boolean[ASCII];
+		boolean[] skipped = new boolean[ASCII];
+		for (char c = 0; c < ASCII; c++) {
+			Terminal terminal = trie.matchSingle(c);
+			plain[c] = terminal != null && !trie.startsLiteral(c);
+			skipped[c] = plain[c] && terminal == TokenStream.WHITESPACE;
+		}
+		
+		if (Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))) {
+			try {
+				return (TextScanner) Class.forName(VECTOR_SCANNER)
+						.getDeclaredConstructor(boolean[].class, boolean[].class)
+						.newInstance(plain, skipped);
+			} catch (ReflectiveOperationException | LinkageError e) {
+				// Built without the vector profile, run without jdk.incubator.vector, with too narrow vectors or too many ranges
+			}
+		}
+		return new TextScanner(plain, skipped);
+	}
+	
+	// The same classes, scanned a character at a time
+	public static TextScanner scalar(TextScanner scanner) {
+		return new TextScanner(scanner.plain, scanner.skipped);
+	}
+	
+	public boolean isVectorized() {
+		return false;
+	}
+	
+	public boolean isPlain(char c) {
+		return c < ASCII && plain[c];
+	}
+	
+	// Index of the first character from offset that is not plain, or end
+	public int plainEnd(char[] buffer, int offset, int end) {
+		return find(plain, buffer, offset, end);
+	}
+	
+	public int plainEnd(ByteBuffer buffer, int offset, int end) {
+		return find(plain, buffer, offset, end);
+	}
+	
+	// Index of the first character from offset that is not skipped, or end
+	public int skippedEnd(char[] buffer, int offset, int end) {
+		return find(skipped, buffer, offset, end);
+	}
+	
+	public int skippedEnd(ByteBuffer buffer, int offset, int end) {
+		return find(skipped, buffer, offset, end);
+	}
+	
+	protected static int find(boolean[] table, char[] buffer, int offset, int end) {
+		for (int i = offset; i < end; i++) {
+			char c = buffer[i];
+			if (c >= ASCII || !table[c]) {
+				return i;
+			}
+		}
+		return end;
+	}
+	
+	protected static int find(boolean[] table, ByteBuffer buffer, int offset, int end) {
+		for (int i = offset; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b < 0 || !table[b]) {
+				return i;
+			}
+		}
+		return end;
+	}
+
+}
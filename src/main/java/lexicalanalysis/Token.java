@@ -1,39 +1,87 @@
 package lexicalanalysis;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Token {
 	
-	public static final Token EOF = new Token("") {
+	public static final Token EOF = new Token("", Terminal.DOLLAR) {
 		public String toString() {
 			return "__EOF__";
 		};
 	};
-	public static final Token WS = new Token("") {
+	public static final Token WS = new Token("", null) {
 		public String toString() {
 			return "__WS__";
 		}
 	};
+	// Stands for a run of text, where it lies is in the TextRun of the stream that read it
+	public static final Token TEXT = new Token("", null) {
+		public String toString() {
+			return "__TEXT__";
+		}
+	};
 	
-	private static final Map<String, Token> TOKEN_CACHE = new HashMap<>();
+	private static final Map<String, Token> TOKEN_CACHE = new ConcurrentHashMap<>();
+	
+	private static final Token[] ASCII_TOKENS = new Token[128];
+	static {
+		for (char c = 0; c < ASCII_TOKENS.length; c++) {
+			ASCII_TOKENS[c] = of(String.valueOf(c));
+		}
+	}
 	
 	public static Token of(String text) {
 		if (text.length() == 0) {
 			return EOF;
 		}
-		return TOKEN_CACHE.computeIfAbsent(text, Token::new);
+		return TOKEN_CACHE.computeIfAbsent(text, t -> new Token(t, null));
+	}
+	
+	public static Token of(char c) {
+		if (c < ASCII_TOKENS.length) {
+			return ASCII_TOKENS[c];
+		}
+		return of(String.valueOf(c));
+	}
+	
+	// The lexer tags tokens with the terminal they were matched as
+	static Token of(String text, Terminal terminal) {
+		return of(text).tag(terminal);
+	}
+	
+	static Token of(char c, Terminal terminal) {
+		return of(c).tag(terminal);
 	}
 
 	private final String text;
+	
+	// Set once by the first lexer to see the token, possibly from several threads
+	private volatile Terminal terminal;
 
-	private Token(String text) {
+	private Token(String text, Terminal terminal) {
 		this.text = text;
+		this.terminal = terminal;
+	}
+	
+	private Token tag(Terminal terminal) {
+		if (this.terminal == null) {
+			this.terminal = terminal;
+		}
+		return this;
 	}
 
 	public String getText() {
 		return text;
 	}
+	
+	public Terminal getTerminal() {
+		return terminal;
+	}
+	
+	public int getTerminalId() {
+		return terminal == null ? -1 : terminal.getId();
+	}
 
 	@Override
 	public int hashCode() {
@@ -2,8 +2,13 @@ package lexicalanalysis;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 import java.util.stream.Stream.Builder;
@@ -11,12 +16,14 @@ import java.util.stream.Stream.Builder;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Splitter;
 
+import lexicalanalysis.Terminal.LiteralTerminal;
+import lexicalanalysis.Terminal.PredicateCharTerminal;
+
 import static java.util.stream.Collectors.toList;
 
 public class TokenStream implements Closeable, AutoCloseable {
 	
-	private final static List<Terminal> TERMINALS;
-	private final static int MAX_TOKEN_LENGTH;
+	private final static TerminalTrie TRIE;
 	
 	public final static Terminal WHITESPACE = Terminal.newCharacterSetTerminal("WS", CharMatcher.whitespace());
 	public final static Terminal LETTER = Terminal.newCharacterSetTerminal("[a-zA-Z]", CharMatcher.javaLetter());
@@ -24,6 +31,15 @@ public class TokenStream implements Closeable, AutoCloseable {
 	public final static Terminal OTHERSYMBOL = Terminal.newCharacterSetTerminal("[.,!- ...]", CharMatcher.anyOf(".,-!/_:'\"|;+-*"));
 	
 	static {
+		String allLiteralTokens = "<html>;</html>;<head>;</head>;<title>;</title>;<meta;name=;content=;>;"
+								+ "<body>;</body>;<p>;</p>;<table>;</table>;<tr>;</tr>;<td>;</td>;<ul>;"
+								+ "</ul>;<ol>;</ol>;<li>;<dl>;</dl>;<dt>;<dd>";
+		
+		TRIE = createTrie(Splitter.on(';').splitToList(allLiteralTokens).stream().map(Terminal::newLiteralTerminal).collect(toList()));
+	}
+	
+	// Matches the character classes and the given literals, the longest terminal first
+	public static TerminalTrie createTrie(Collection<Terminal> literals) {
 		Builder<Terminal> builder = Stream.builder();
 		
 		builder.add(LETTER);
@@ -31,79 +47,275 @@ public class TokenStream implements Closeable, AutoCloseable {
 		builder.add(OTHERSYMBOL);
 		builder.add(WHITESPACE);
 		
-		String allLiteralTokens = "<html>;</html>;<head>;</head>;<title>;</title>;<meta;name=;content=;>;"
-								+ "<body>;</body>;<p>;</p>;<table>;</table>;<tr>;</tr>;<td>;</td>;<ul>;"
-								+ "</ul>;<ol>;</ol>;<li>;<dl>;</dl>;<dt>;<dd>";
-		
-		Stream<Terminal> tokens = Stream.concat(builder.build(),
-				Splitter.on(';').splitToList(allLiteralTokens).stream().map(Terminal::newLiteralTerminal));
-		
-		TERMINALS = tokens
+		List<Terminal> terminals = Stream.concat(builder.build(), literals.stream())
 				.sorted((t1, t2) -> Integer.compare(t2.getLength(), t1.getLength()))
 				.collect(toList());
-		
-		MAX_TOKEN_LENGTH = TERMINALS.get(0).getLength();
+		return new TerminalTrie(terminals);
 	}
 
+	private final static int WINDOW_SIZE = 64 * 1024;
+
 	private final Reader reader;
 	
-	private int position = 0;
+	private final TerminalTrie trie;
+	
+	private final TextScanner scanner;
+	
+	// Characters between windowStart and windowEnd are read, but not yet tokenized
+	private final char[] window;
+	private int windowStart = 0;
+	private int windowEnd = 0;
+	private boolean endOfInput = false;
+	
+	// Characters from windowStart to runEnd are plain, they are lexed without the trie
+	private int runEnd = 0;
+	
+	private long position = 0;
+	
+	private long tokenPosition = 0;
+	
+	// Offsets of the TEXT token read last
+	private final TextRun run = new TextRun();
 
 	public TokenStream(Reader reader) {
+		this(reader, TRIE);
+	}
+	
+	// Lexes the terminals of another grammar
+	public TokenStream(Reader reader, TerminalTrie trie) {
 		this.reader = reader;
+		this.trie = trie;
+		this.scanner = trie.getScanner();
+		this.window = new char[WINDOW_SIZE];
 	}
 	
-	public Token read() throws IOException, InvalidTokenException {
-		
-		char[] buffer = new char[MAX_TOKEN_LENGTH];
-		reader.mark(MAX_TOKEN_LENGTH);
-		int numRead = reader.read(buffer);
-		
-		if (numRead < 1) {
-			return Token.EOF;
+	// For streams that do not read from a Reader
+	protected TokenStream(TerminalTrie trie) {
+		this.reader = null;
+		this.trie = trie;
+		this.scanner = trie.getScanner();
+		this.window = null;
+	}
+	
+	public TokenStream(InputStream inputStream) {
+		this(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+	}
+	
+	// Lexes the bytes of a memory-mapped UTF-8 file, positions are byte offsets
+	public static TokenStream open(Path path) throws IOException {
+		return new MappedTokenStream(path, TRIE);
+	}
+	
+	public static TokenStream open(Path path, TerminalTrie trie) throws IOException {
+		return new MappedTokenStream(path, trie);
+	}
+	
+	// Lexes only the bytes from start to end, positions stay offsets into the whole file
+	public static TokenStream open(Path path, long start, long end) throws IOException {
+		return new MappedTokenStream(path, TRIE, start, end);
+	}
+	
+	public static TokenStream open(Path path, TerminalTrie trie, long start, long end) throws IOException {
+		return new MappedTokenStream(path, trie, start, end);
+	}
+	
+	// Lexes UTF-8 bytes in memory the way a file is lexed, positions are byte offsets from the position of the buffer
+	public static TokenStream open(ByteBuffer bytes) {
+		return new MappedTokenStream(bytes, TRIE);
+	}
+	
+	public static TokenStream open(ByteBuffer bytes, TerminalTrie trie) {
+		return new MappedTokenStream(bytes, trie);
+	}
+	
+	// Makes sure the longest terminal fits into the window, unless the input ends sooner
+	private int fill() throws IOException {
+		int available = windowEnd - windowStart;
+		if (available >= trie.getMaxLength() || endOfInput) {
+			return available;
 		}
 		
-		String subStr = null;
-		int lastLength = -1;
-		
-		for (Terminal terminal : TERMINALS) {
-			if (lastLength == -1) {
-				lastLength = terminal.getLength();
+		System.arraycopy(window, windowStart, window, 0, available);
+		windowStart = 0;
+		windowEnd = available;
+		runEnd = 0;
+		while (windowEnd < trie.getMaxLength()) {
+			int numRead = reader.read(window, windowEnd, window.length - windowEnd);
+			if (numRead < 0) {
+				endOfInput = true;
+				break;
 			}
-			if (subStr == null || terminal.getLength() < lastLength) {
-				subStr = new String(Arrays.copyOf(buffer, terminal.getLength()));
-				lastLength = terminal.getLength();
-			}
-			
-			if (terminal.test(subStr)) {
-				reader.reset();
-				reader.skip(lastLength);
-				position += lastLength;
+			windowEnd += numRead;
+		}
+		return windowEnd - windowStart;
+	}
+	
+	public Token read() throws IOException, InvalidTokenException {
+		
+		while (true) {
+			if (windowStart < runEnd) {
+				char c = window[windowStart];
+				Terminal terminal = trie.matchSingle(c);
+				tokenPosition = position;
+				windowStart++;
+				position++;
 				
-				// Whitespace is skipped
+				// Whitespace is skipped, up to the end of the run at once
 				if (terminal == WHITESPACE) {
-					return read();
+					int end = scanner.skippedEnd(window, windowStart, runEnd);
+					position += end - windowStart;
+					windowStart = end;
+					continue;
 				}
-				
-				return Token.of(subStr);
+				return Token.of(c, terminal);
+			}
+			
+			int available = fill();
+			if (available < 1) {
+				tokenPosition = position;
+				return Token.EOF;
+			}
+			
+			if (scanner.isPlain(window[windowStart])) {
+				runEnd = scanner.plainEnd(window, windowStart + 1, windowEnd);
+				continue;
+			}
+			
+			Terminal terminal = trie.match(window, windowStart, available);
+			if (terminal == null) {
+				throw new InvalidTokenException(new String(window, windowStart, Math.min(available, trie.getMaxLength())), position);
+			}
+			
+			int length = terminal.getLength();
+			char first = window[windowStart];
+			windowStart += length;
+			tokenPosition = position;
+			position += length;
+			
+			// Whitespace is skipped
+			if (terminal == WHITESPACE) {
+				continue;
 			}
+			
+			if (terminal instanceof LiteralTerminal) {
+				return ((LiteralTerminal) terminal).getToken();
+			}
+			return Token.of(first, terminal);
 		}
 		
-		throw new InvalidTokenException(new String(buffer), position);
-		
 	}
 	
-	public int getPosition() {
+	// Reads a run of characters of the given character class terminals, by terminal id, as one TEXT token,
+	// whitespace in between skipped. Any other token is read as read() does, and ends the run before it.
+	public Token read(boolean[] textTerminals) throws IOException, InvalidTokenException {
+		Token token = read();
+		if (!isText(token, textTerminals)) {
+			return token;
+		}
+		long start = tokenPosition;
+		long end = position;
+		int length = 1;
+		while (true) {
+			if (windowStart >= runEnd) {
+				int available = fill();
+				if (available < 1) {
+					break;
+				}
+				char c = window[windowStart];
+				if (scanner.isPlain(c)) {
+					runEnd = scanner.plainEnd(window, windowStart + 1, windowEnd);
+					continue;
+				}
+				// Starts a literal, or is outside of ASCII
+				Terminal terminal = trie.match(window, windowStart, available);
+				if (terminal != WHITESPACE && !isText(terminal, textTerminals)) {
+					break;
+				}
+				windowStart++;
+				position++;
+				if (terminal != WHITESPACE) {
+					end = position;
+					length++;
+				}
+				continue;
+			}
+			
+			Terminal terminal = trie.matchSingle(window[windowStart]);
+			if (terminal == WHITESPACE) {
+				int skipped = scanner.skippedEnd(window, windowStart, runEnd);
+				position += skipped - windowStart;
+				windowStart = skipped;
+				continue;
+			}
+			if (!isText(terminal, textTerminals)) {
+				break;
+			}
+			windowStart++;
+			position++;
+			end = position;
+			length++;
+		}
+		run.set(start, end, length);
+		tokenPosition = start;
+		return Token.TEXT;
+	}
+	
+	protected static boolean isText(Token token, boolean[] textTerminals) {
+		return textTerminals != null && isText(token.getTerminal(), textTerminals);
+	}
+	
+	protected static boolean isText(Terminal terminal, boolean[] textTerminals) {
+		return terminal instanceof PredicateCharTerminal && terminal.getId() < textTerminals.length && textTerminals[terminal.getId()];
+	}
+	
+	// Offsets of the TEXT token read last
+	public TextRun getTextRun() {
+		return run;
+	}
+	
+	static List<Terminal> getTerminals() {
+		return TRIE.getTerminals();
+	}
+	
+	// Moves past the character an InvalidTokenException was thrown for
+	public void skipCharacter() throws IOException {
+		if (fill() > 0) {
+			windowStart++;
+			position++;
+		}
+	}
+	
+	public static TerminalTrie getTrie() {
+		return TRIE;
+	}
+	
+	// Terminals this stream lexes
+	public TerminalTrie getTerminalTrie() {
+		return trie;
+	}
+	
+	public long getPosition() {
 		return position;
 	}
 
-	public void setPosition(int position) {
+	public void setPosition(long position) {
 		this.position = position;
 	}
+	
+	// Where the token read last starts
+	public long getTokenPosition() {
+		return tokenPosition;
+	}
+	
+	void setTokenPosition(long tokenPosition) {
+		this.tokenPosition = tokenPosition;
+	}
 
 	@Override
 	public void close() throws IOException {
-		reader.close();
+		if (reader != null) {
+			reader.close();
+		}
 	}
 
 }
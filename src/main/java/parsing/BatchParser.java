@@ -0,0 +1,175 @@
+package parsing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+
+// Validates many documents in parallel, one Parser per document sharing the static grammar
+public class BatchParser {
+	
+	public static class FileResult {
+		
+		private final Path path;
+		
+		private final ParseResult result;
+		
+		private final IOException error;
+		
+		private final long bytes;
+		
+		private final long nanos;
+
+		private FileResult(Path path, ParseResult result, IOException error, long bytes, long nanos) {
+			this.path = path;
+			this.result = result;
+			this.error = error;
+			this.bytes = bytes;
+			this.nanos = nanos;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		// Null when the file could not be read
+		public ParseResult getResult() {
+			return result;
+		}
+
+		public IOException getError() {
+			return error;
+		}
+		
+		public boolean isAccepted() {
+			return result != null && result.isAccepted();
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+		
+		@Override
+		public String toString() {
+			return path + ": " + (result != null ? result.toString() : "Cannot read: " + error.getMessage());
+		}
+		
+	}
+	
+	public static class BatchResult {
+		
+		private final List<FileResult> files;
+		
+		private final long nanos;
+
+		private BatchResult(List<FileResult> files, long nanos) {
+			this.files = files;
+			this.nanos = nanos;
+		}
+
+		// In the order the files were given
+		public List<FileResult> getFiles() {
+			return files;
+		}
+		
+		public long getNanos() {
+			return nanos;
+		}
+		
+		public long getAccepted() {
+			return files.stream().filter(FileResult::isAccepted).count();
+		}
+		
+		public long getBytes() {
+			return files.stream().mapToLong(FileResult::getBytes).sum();
+		}
+		
+		@Override
+		public String toString() {
+			double seconds = nanos / 1e9;
+			return String.format("%d files, %d accepted, %d rejected in %.3f s (%.1f files/s, %.1f MB/s)",
+					files.size(), getAccepted(), files.size() - getAccepted(), seconds,
+					files.size() / seconds, getBytes() / seconds / 1e6);
+		}
+		
+	}
+	
+	private final ExecutorService executor;
+
+	private final int maxErrors;
+	
+	private final Grammar grammar;
+	
+	public BatchParser(ExecutorService executor) {
+		this(executor, 1);
+	}
+	
+	// Documents with errors are parsed on until maxErrors of them are found
+	public BatchParser(ExecutorService executor, int maxErrors) {
+		this(executor, maxErrors, Grammar.html());
+	}
+	
+	public BatchParser(ExecutorService executor, int maxErrors, Grammar grammar) {
+		this.executor = executor;
+		this.maxErrors = maxErrors;
+		this.grammar = grammar;
+	}
+	
+	public BatchResult parse(List<Path> paths) throws InterruptedException {
+		long start = System.nanoTime();
+		List<Future<FileResult>> futures = paths.stream()
+				.map(path -> executor.submit(() -> parse(path)))
+				.collect(toList());
+		
+		List<FileResult> results = new ArrayList<>(futures.size());
+		for (Future<FileResult> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		return new BatchResult(results, System.nanoTime() - start);
+	}
+	
+	private FileResult parse(Path path) {
+		long start = System.nanoTime();
+		try (Parser parser = new Parser(grammar.open(path), grammar)) {
+			ParseResult result = parser.parse(null, maxErrors);
+			return new FileResult(path, result, null, Files.size(path), System.nanoTime() - start);
+		} catch (IOException e) {
+			return new FileResult(path, null, e, 0, System.nanoTime() - start);
+		}
+	}
+	
+	// Directories are searched for .html files, in a stable order
+	public static List<Path> collect(List<Path> paths) throws IOException {
+		List<Path> files = new ArrayList<>();
+		for (Path path : paths) {
+			if (Files.isDirectory(path)) {
+				try (Stream<Path> walk = Files.walk(path)) {
+					walk.filter(Files::isRegularFile)
+						.filter(p -> p.getFileName().toString().endsWith(".html"))
+						.sorted()
+						.forEach(files::add);
+				}
+			} else {
+				files.add(path);
+			}
+		}
+		return files;
+	}
+	
+}
@@ -0,0 +1,168 @@
+package parsing;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import lexicalanalysis.Token;
+
+// Reads a trace written by BinaryTraceWriter back as the steps it was written from
+public class BinaryTraceReader implements Closeable {
+	
+	private final ParseTable parseTable;
+	
+	private final FileChannel channel;
+	
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+	
+	private final List<Token> tokens = new ArrayList<>();
+	
+	private long position;
+	
+	// Of the step last read, consumed tokens also have an end
+	private long stepPosition;
+	private long stepEnd;
+	
+	public BinaryTraceReader(Path file) throws IOException {
+		this(file, Grammar.html());
+	}
+	
+	// Rules are written by their ids, a trace is read with the grammar it was written with
+	public BinaryTraceReader(Path file, Grammar grammar) throws IOException {
+		parseTable = grammar.getParseTable();
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		buffer.flip();
+		tokens.add(null);
+		
+		byte[] magic = new byte[BinaryTraceWriter.MAGIC.length];
+		for (int i = 0; i < magic.length; i++) {
+			magic[i] = readByte();
+		}
+		if (!Arrays.equals(magic, BinaryTraceWriter.MAGIC)) {
+			throw new IOException("Not a parse trace: " + file);
+		}
+		long version = readVarint();
+		if (version != BinaryTraceWriter.VERSION) {
+			throw new IOException("Unsupported trace version " + version);
+		}
+		long rules = readVarint();
+		if (rules != parseTable.getRuleCount()) {
+			throw new IOException("Trace of a grammar with " + rules + " rules, this one has " + parseTable.getRuleCount());
+		}
+	}
+	
+	// Null at the end of the trace
+	public ParseStep read() throws IOException {
+		while (true) {
+			if (!fill(1)) {
+				return null;
+			}
+			long header = readVarint();
+			int kind = (int) (header & 3);
+			if (kind == BinaryTraceWriter.DEFINE) {
+				byte[] text = new byte[(int) readVarint()];
+				for (int i = 0; i < text.length; i++) {
+					text[i] = readByte();
+				}
+				tokens.add(Token.of(new String(text, StandardCharsets.UTF_8)));
+				continue;
+			}
+			
+			int index = (int) (header >>> 2);
+			if (index >= tokens.size()) {
+				throw new IOException("Undefined token " + index);
+			}
+			Token token = tokens.get(index);
+			switch (kind) {
+			case BinaryTraceWriter.EXPAND:
+				int ruleId = (int) readVarint();
+				readPosition();
+				return ParseStep.expand(parseTable.getRule(ruleId), token);
+			case BinaryTraceWriter.CONSUME:
+				readPosition();
+				stepEnd = stepPosition + readVarint();
+				return ParseStep.consume(token);
+			default:
+				readPosition();
+				return ParseStep.accept();
+			}
+		}
+	}
+	
+	public long getStepPosition() {
+		return stepPosition;
+	}
+	
+	public long getStepEnd() {
+		return stepEnd;
+	}
+	
+	private void readPosition() throws IOException {
+		long zigzag = readVarint();
+		position += (zigzag >>> 1) ^ -(zigzag & 1);
+		stepPosition = position;
+		stepEnd = position;
+	}
+	
+	private long readVarint() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+	
+	private byte readByte() throws IOException {
+		if (!fill(1)) {
+			throw new EOFException("Trace ends in the middle of a record");
+		}
+		return buffer.get();
+	}
+	
+	private boolean fill(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return true;
+		}
+		buffer.compact();
+		while (buffer.position() < bytes) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer.remaining() >= bytes;
+	}
+	
+	// Hands out the steps of the trace in file in their text form
+	public static void decode(Path file, Consumer<String> out) throws IOException {
+		decode(file, Grammar.html(), out);
+	}
+	
+	public static void decode(Path file, Grammar grammar, Consumer<String> out) throws IOException {
+		try (BinaryTraceReader reader = new BinaryTraceReader(file, grammar)) {
+			ParseStep step;
+			while ((step = reader.read()) != null) {
+				out.accept(step.toString());
+			}
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
@@ -0,0 +1,151 @@
+package parsing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import lexicalanalysis.Token;
+
+// Writes the steps of a parse as varint records, to be turned back into the text trace by BinaryTraceReader.
+// A record starts with (token index << 2 | kind). Expansions go on with the rule id, all steps with the
+// position as a difference from the last one and consumed tokens with their length. The text of a token
+// is written once, in a definition record in front of the first step with it.
+public class BinaryTraceWriter implements ParseListener, Closeable {
+	
+	static final byte[] MAGIC = { 'P', 'T', 'R', 'C' };
+	static final int VERSION = 1;
+	
+	static final int EXPAND = 0;
+	static final int CONSUME = 1;
+	static final int ACCEPT = 2;
+	static final int DEFINE = 3;
+	
+	// Longest record other than a definition - three varints of a long and one of an int
+	private static final int MAX_RECORD = 3 * 10 + 5;
+	
+	private final FileChannel channel;
+	
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+	
+	// Tokens are shared, by their text, by every lexer
+	private final Map<Token, Integer> tokens = new IdentityHashMap<>();
+	
+	private long position;
+	
+	public BinaryTraceWriter(Path file) throws IOException {
+		this(file, Grammar.html());
+	}
+	
+	public BinaryTraceWriter(Path file, Grammar grammar) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		buffer.put(MAGIC);
+		writeVarint(VERSION);
+		writeVarint(grammar.getParseTable().getRuleCount());
+	}
+	
+	@Override
+	public void expand(int ruleId, Token token, long position) {
+		writeHeader(EXPAND, token);
+		writeVarint(ruleId);
+		writePosition(position);
+	}
+	
+	@Override
+	public void consume(Token token, long position, long end) {
+		writeHeader(CONSUME, token);
+		writePosition(position);
+		writeVarint(end - position);
+	}
+	
+	@Override
+	public void accept(long position) {
+		writeHeader(ACCEPT, null);
+		writePosition(position);
+	}
+	
+	private void writeHeader(int kind, Token token) {
+		int index = 0;
+		if (token != null) {
+			Integer known = tokens.get(token);
+			if (known == null) {
+				known = define(token);
+			}
+			index = known;
+		}
+		reserve(MAX_RECORD);
+		writeVarint((long) index << 2 | kind);
+	}
+	
+	// Index 0 is no token
+	private int define(Token token) {
+		int index = tokens.size() + 1;
+		tokens.put(token, index);
+		byte[] text = token.getText().getBytes(StandardCharsets.UTF_8);
+		reserve(2 * 5 + text.length);
+		writeVarint(DEFINE);
+		writeVarint(text.length);
+		if (text.length > buffer.remaining()) {
+			flush();
+			write(ByteBuffer.wrap(text));
+		} else {
+			buffer.put(text);
+		}
+		return index;
+	}
+	
+	// Zigzag encoded, recovery from errors can step back to a token read ahead
+	private void writePosition(long position) {
+		long delta = position - this.position;
+		this.position = position;
+		writeVarint((delta << 1) ^ (delta >> 63));
+	}
+	
+	private void writeVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+	
+	private void reserve(int bytes) {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+	
+	private void flush() {
+		buffer.flip();
+		write(buffer);
+		buffer.clear();
+	}
+	
+	private void write(ByteBuffer bytes) {
+		try {
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			channel.close();
+		}
+	}
+
+}
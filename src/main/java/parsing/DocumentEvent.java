@@ -0,0 +1,33 @@
+package parsing;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight recorder event for one document parsed by Parser
+@Name("parsing.Document")
+@Label("Document Parse")
+@Category("Parser")
+class DocumentEvent extends jdk.jfr.Event {
+	
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+	
+	@Label("Tokens")
+	long tokens;
+	
+	@Label("Expansions")
+	long expansions;
+	
+	@Label("Errors")
+	int errors;
+	
+	@Label("Accepted")
+	boolean accepted;
+	
+	@Label("Maximum Stack Depth")
+	int maxStackDepth;
+	
+}
@@ -0,0 +1,743 @@
+package parsing;
+
+import java.io.IOException;
+
+import lexicalanalysis.InvalidTokenException;
+import lexicalanalysis.TokenStream;
+
+// Written by ParserGenerator, to be generated again rather than edited
+public class GeneratedHtmlParser extends RecursiveDescentParser {
+	
+	private static final long FINGERPRINT = 0x094df1a3328bc522L;
+	
+	// Names of the terminals by column
+	private static final String[] TERMINALS = {
+		"\"<html>\"",
+		"\"</html>\"",
+		"\"<head>\"",
+		"\"</head>\"",
+		"\"<title>\"",
+		"\"</title>\"",
+		"\"<meta\"",
+		"\"name=\"",
+		"\"content=\"",
+		"\">\"",
+		"\"<body>\"",
+		"\"</body>\"",
+		"\"<p>\"",
+		"\"</p>\"",
+		"\"<table>\"",
+		"\"</table>\"",
+		"\"<tr>\"",
+		"\"</tr>\"",
+		"\"<td>\"",
+		"\"</td>\"",
+		"\"<ul>\"",
+		"\"</ul>\"",
+		"\"<ol>\"",
+		"\"</ol>\"",
+		"\"<li>\"",
+		"\"<dl>\"",
+		"\"</dl>\"",
+		"\"<dt>\"",
+		"\"<dd>\"",
+		"[a-zA-Z]",
+		"[0-9]",
+		"[.,!- ...]",
+	};
+	
+	private static final int HTMLDOCUMENT = 0;
+	private static final int DOCUMENTHEAD = 1;
+	private static final int HEADERTAGS = 2;
+	private static final int HEADERTAG = 3;
+	private static final int TITLETAG = 4;
+	private static final int METATAG = 5;
+	private static final int DOCUMENTBODY = 6;
+	private static final int BODYTAGS = 7;
+	private static final int BODYTAG = 8;
+	private static final int PARAGRAPH = 9;
+	private static final int PARAGRAPHEND = 10;
+	private static final int TABLE = 11;
+	private static final int TABLEROWS = 12;
+	private static final int TABLEROW = 13;
+	private static final int TABLECELLS = 14;
+	private static final int TABLECELL = 15;
+	private static final int TABLECELLEND = 16;
+	private static final int LIST = 17;
+	private static final int UNORDERED = 18;
+	private static final int ORDERED = 19;
+	private static final int LISTITEMS = 20;
+	private static final int DEFINITIONLIST = 21;
+	private static final int DEFTERMS = 22;
+	private static final int DEFTERM = 23;
+	private static final int CONTENT = 24;
+	private static final int WORD = 25;
+	private static final int CHAR = 26;
+	
+	// Rests of expansions after a nonterminal, by rule and position
+	private static final int HTMLDOCUMENT_0_2 = 27;
+	private static final int HTMLDOCUMENT_0_3 = 28;
+	private static final int DOCUMENTHEAD_1_2 = 29;
+	private static final int TITLETAG_6_2 = 30;
+	private static final int METATAG_7_3 = 31;
+	private static final int METATAG_7_5 = 32;
+	private static final int DOCUMENTBODY_8_2 = 33;
+	private static final int TABLE_18_2 = 34;
+	private static final int TABLEROW_21_2 = 35;
+	private static final int UNORDERED_30_2 = 36;
+	private static final int ORDERED_31_2 = 37;
+	private static final int DEFINITIONLIST_34_2 = 38;
+	
+	public GeneratedHtmlParser(TokenStream tokenStream, Grammar grammar) {
+		super(tokenStream, columns(grammar, FINGERPRINT, TERMINALS), TERMINALS);
+	}
+	
+	@Override
+	protected void parseDocument() throws ParseException, IOException, InvalidTokenException {
+		run(HTMLDOCUMENT);
+	}
+	
+	@Override
+	protected int dispatch(int nonTerminal) throws ParseException, IOException, InvalidTokenException {
+		switch (nonTerminal) {
+		case HTMLDOCUMENT:
+			return parseHtmldocument();
+		case DOCUMENTHEAD:
+			return parseDocumenthead();
+		case HEADERTAGS:
+			return parseHeadertags();
+		case HEADERTAG:
+			return parseHeadertag();
+		case TITLETAG:
+			return parseTitletag();
+		case METATAG:
+			return parseMetatag();
+		case DOCUMENTBODY:
+			return parseDocumentbody();
+		case BODYTAGS:
+			return parseBodytags();
+		case BODYTAG:
+			return parseBodytag();
+		case PARAGRAPH:
+			return parseParagraph();
+		case PARAGRAPHEND:
+			return parseParagraphend();
+		case TABLE:
+			return parseTable();
+		case TABLEROWS:
+			return parseTablerows();
+		case TABLEROW:
+			return parseTablerow();
+		case TABLECELLS:
+			return parseTablecells();
+		case TABLECELL:
+			return parseTablecell();
+		case TABLECELLEND:
+			return parseTablecellend();
+		case LIST:
+			return parseList();
+		case UNORDERED:
+			return parseUnordered();
+		case ORDERED:
+			return parseOrdered();
+		case LISTITEMS:
+			return parseListitems();
+		case DEFINITIONLIST:
+			return parseDefinitionlist();
+		case DEFTERMS:
+			return parseDefterms();
+		case DEFTERM:
+			return parseDefterm();
+		case CONTENT:
+			return parseContent();
+		case WORD:
+			return parseWord();
+		case CHAR:
+			return parseChar();
+		case HTMLDOCUMENT_0_2:
+			return parseHtmldocument0From2();
+		case HTMLDOCUMENT_0_3:
+			return parseHtmldocument0From3();
+		case DOCUMENTHEAD_1_2:
+			return parseDocumenthead1From2();
+		case TITLETAG_6_2:
+			return parseTitletag6From2();
+		case METATAG_7_3:
+			return parseMetatag7From3();
+		case METATAG_7_5:
+			return parseMetatag7From5();
+		case DOCUMENTBODY_8_2:
+			return parseDocumentbody8From2();
+		case TABLE_18_2:
+			return parseTable18From2();
+		case TABLEROW_21_2:
+			return parseTablerow21From2();
+		case UNORDERED_30_2:
+			return parseUnordered30From2();
+		case ORDERED_31_2:
+			return parseOrdered31From2();
+		case DEFINITIONLIST_34_2:
+			return parseDefinitionlist34From2();
+		default:
+			throw new IllegalArgumentException("No nonterminal " + nonTerminal);
+		}
+	}
+	
+	// htmldocument -> "<html>" documenthead documentbody "</html>"
+	private int parseHtmldocument() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 0: // "<html>"
+			expand(0);
+			match(0);
+			push(HTMLDOCUMENT_0_2);
+			return DOCUMENTHEAD;
+		default:
+			throw noRule("htmldocument");
+		}
+	}
+	
+	// documenthead -> "<head>" headertags "</head>"
+	private int parseDocumenthead() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 2: // "<head>"
+			expand(1);
+			match(2);
+			push(DOCUMENTHEAD_1_2);
+			return HEADERTAGS;
+		default:
+			throw noRule("documenthead");
+		}
+	}
+	
+	// headertags -> headertag headertags
+	// headertags -> Ɛ
+	private int parseHeadertags() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 4: // "<title>"
+		case 6: // "<meta"
+			expand(2);
+			push(HEADERTAGS);
+			return HEADERTAG;
+		case 3: // "</head>"
+			expand(3);
+			return END;
+		default:
+			throw noRule("headertags");
+		}
+	}
+	
+	// headertag -> titletag
+	// headertag -> metatag
+	private int parseHeadertag() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 4: // "<title>"
+			expand(4);
+			return TITLETAG;
+		case 6: // "<meta"
+			expand(5);
+			return METATAG;
+		default:
+			throw noRule("headertag");
+		}
+	}
+	
+	// titletag -> "<title>" content "</title>"
+	private int parseTitletag() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 4: // "<title>"
+			expand(6);
+			match(4);
+			push(TITLETAG_6_2);
+			return CONTENT;
+		default:
+			throw noRule("titletag");
+		}
+	}
+	
+	// metatag -> "<meta" "name=" word "content=" word ">"
+	private int parseMetatag() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 6: // "<meta"
+			expand(7);
+			match(6);
+			match(7);
+			push(METATAG_7_3);
+			return WORD;
+		default:
+			throw noRule("metatag");
+		}
+	}
+	
+	// documentbody -> "<body>" bodytags "</body>"
+	private int parseDocumentbody() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 10: // "<body>"
+			expand(8);
+			match(10);
+			push(DOCUMENTBODY_8_2);
+			return BODYTAGS;
+		default:
+			throw noRule("documentbody");
+		}
+	}
+	
+	// bodytags -> bodytag bodytags
+	// bodytags -> Ɛ
+	private int parseBodytags() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 12: // "<p>"
+		case 14: // "<table>"
+		case 20: // "<ul>"
+		case 22: // "<ol>"
+		case 25: // "<dl>"
+		case 29: // [a-zA-Z]
+		case 30: // [0-9]
+		case 31: // [.,!- ...]
+			expand(9);
+			push(BODYTAGS);
+			return BODYTAG;
+		case 11: // "</body>"
+		case 13: // "</p>"
+		case 17: // "</tr>"
+		case 18: // "<td>"
+		case 19: // "</td>"
+		case 21: // "</ul>"
+		case 23: // "</ol>"
+		case 24: // "<li>"
+		case 26: // "</dl>"
+		case 27: // "<dt>"
+		case 28: // "<dd>"
+			expand(10);
+			return END;
+		default:
+			throw noRule("bodytags");
+		}
+	}
+	
+	// bodytag -> table
+	// bodytag -> list
+	// bodytag -> paragraph
+	// bodytag -> content
+	private int parseBodytag() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 14: // "<table>"
+			expand(11);
+			return TABLE;
+		case 20: // "<ul>"
+		case 22: // "<ol>"
+		case 25: // "<dl>"
+			expand(12);
+			return LIST;
+		case 12: // "<p>"
+			expand(13);
+			return PARAGRAPH;
+		case 11: // "</body>"
+		case 13: // "</p>"
+		case 17: // "</tr>"
+		case 18: // "<td>"
+		case 19: // "</td>"
+		case 21: // "</ul>"
+		case 23: // "</ol>"
+		case 24: // "<li>"
+		case 26: // "</dl>"
+		case 27: // "<dt>"
+		case 28: // "<dd>"
+		case 29: // [a-zA-Z]
+		case 30: // [0-9]
+		case 31: // [.,!- ...]
+			expand(14);
+			return CONTENT;
+		default:
+			throw noRule("bodytag");
+		}
+	}
+	
+	// paragraph -> "<p>" bodytags paragraphend
+	private int parseParagraph() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 12: // "<p>"
+			expand(15);
+			match(12);
+			push(PARAGRAPHEND);
+			return BODYTAGS;
+		default:
+			throw noRule("paragraph");
+		}
+	}
+	
+	// paragraphend -> "</p>"
+	// paragraphend -> Ɛ
+	private int parseParagraphend() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 13: // "</p>"
+			expand(16);
+			match(13);
+			return END;
+		case 11: // "</body>"
+		case 12: // "<p>"
+		case 14: // "<table>"
+		case 17: // "</tr>"
+		case 18: // "<td>"
+		case 19: // "</td>"
+		case 20: // "<ul>"
+		case 21: // "</ul>"
+		case 22: // "<ol>"
+		case 23: // "</ol>"
+		case 24: // "<li>"
+		case 25: // "<dl>"
+		case 26: // "</dl>"
+		case 27: // "<dt>"
+		case 28: // "<dd>"
+		case 29: // [a-zA-Z]
+		case 30: // [0-9]
+		case 31: // [.,!- ...]
+			expand(17);
+			return END;
+		default:
+			throw noRule("paragraphend");
+		}
+	}
+	
+	// table -> "<table>" tablerows "</table>"
+	private int parseTable() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 14: // "<table>"
+			expand(18);
+			match(14);
+			push(TABLE_18_2);
+			return TABLEROWS;
+		default:
+			throw noRule("table");
+		}
+	}
+	
+	// tablerows -> tablerow tablerows
+	// tablerows -> Ɛ
+	private int parseTablerows() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 16: // "<tr>"
+			expand(19);
+			push(TABLEROWS);
+			return TABLEROW;
+		case 15: // "</table>"
+			expand(20);
+			return END;
+		default:
+			throw noRule("tablerows");
+		}
+	}
+	
+	// tablerow -> "<tr>" tablecells "</tr>"
+	private int parseTablerow() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 16: // "<tr>"
+			expand(21);
+			match(16);
+			push(TABLEROW_21_2);
+			return TABLECELLS;
+		default:
+			throw noRule("tablerow");
+		}
+	}
+	
+	// tablecells -> tablecell tablecells
+	// tablecells -> Ɛ
+	private int parseTablecells() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 18: // "<td>"
+			expand(22);
+			push(TABLECELLS);
+			return TABLECELL;
+		case 17: // "</tr>"
+			expand(23);
+			return END;
+		default:
+			throw noRule("tablecells");
+		}
+	}
+	
+	// tablecell -> "<td>" bodytags tablecellend
+	private int parseTablecell() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 18: // "<td>"
+			expand(24);
+			match(18);
+			push(TABLECELLEND);
+			return BODYTAGS;
+		default:
+			throw noRule("tablecell");
+		}
+	}
+	
+	// tablecellend -> "</td>"
+	// tablecellend -> Ɛ
+	private int parseTablecellend() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 19: // "</td>"
+			expand(25);
+			match(19);
+			return END;
+		case 17: // "</tr>"
+		case 18: // "<td>"
+			expand(26);
+			return END;
+		default:
+			throw noRule("tablecellend");
+		}
+	}
+	
+	// list -> unordered
+	// list -> ordered
+	// list -> definitionlist
+	private int parseList() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 20: // "<ul>"
+			expand(27);
+			return UNORDERED;
+		case 22: // "<ol>"
+			expand(28);
+			return ORDERED;
+		case 25: // "<dl>"
+			expand(29);
+			return DEFINITIONLIST;
+		default:
+			throw noRule("list");
+		}
+	}
+	
+	// unordered -> "<ul>" listitems "</ul>"
+	private int parseUnordered() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 20: // "<ul>"
+			expand(30);
+			match(20);
+			push(UNORDERED_30_2);
+			return LISTITEMS;
+		default:
+			throw noRule("unordered");
+		}
+	}
+	
+	// ordered -> "<ol>" listitems "</ol>"
+	private int parseOrdered() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 22: // "<ol>"
+			expand(31);
+			match(22);
+			push(ORDERED_31_2);
+			return LISTITEMS;
+		default:
+			throw noRule("ordered");
+		}
+	}
+	
+	// listitems -> "<li>" bodytag listitems
+	// listitems -> Ɛ
+	private int parseListitems() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 24: // "<li>"
+			expand(32);
+			match(24);
+			push(LISTITEMS);
+			return BODYTAG;
+		case 21: // "</ul>"
+		case 23: // "</ol>"
+			expand(33);
+			return END;
+		default:
+			throw noRule("listitems");
+		}
+	}
+	
+	// definitionlist -> "<dl>" defterms "</dl>"
+	private int parseDefinitionlist() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 25: // "<dl>"
+			expand(34);
+			match(25);
+			push(DEFINITIONLIST_34_2);
+			return DEFTERMS;
+		default:
+			throw noRule("definitionlist");
+		}
+	}
+	
+	// defterms -> defterm defterms
+	// defterms -> Ɛ
+	private int parseDefterms() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 27: // "<dt>"
+		case 28: // "<dd>"
+			expand(35);
+			push(DEFTERMS);
+			return DEFTERM;
+		case 26: // "</dl>"
+			expand(36);
+			return END;
+		default:
+			throw noRule("defterms");
+		}
+	}
+	
+	// defterm -> "<dt>" bodytag
+	// defterm -> "<dd>" bodytag
+	private int parseDefterm() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 27: // "<dt>"
+			expand(37);
+			match(27);
+			return BODYTAG;
+		case 28: // "<dd>"
+			expand(38);
+			match(28);
+			return BODYTAG;
+		default:
+			throw noRule("defterm");
+		}
+	}
+	
+	// content -> word
+	// content -> Ɛ
+	private int parseContent() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 29: // [a-zA-Z]
+		case 30: // [0-9]
+		case 31: // [.,!- ...]
+			expand(39);
+			return WORD;
+		case 5: // "</title>"
+		case 8: // "content="
+		case 9: // ">"
+		case 11: // "</body>"
+		case 12: // "<p>"
+		case 13: // "</p>"
+		case 14: // "<table>"
+		case 17: // "</tr>"
+		case 18: // "<td>"
+		case 19: // "</td>"
+		case 20: // "<ul>"
+		case 21: // "</ul>"
+		case 22: // "<ol>"
+		case 23: // "</ol>"
+		case 24: // "<li>"
+		case 25: // "<dl>"
+		case 26: // "</dl>"
+		case 27: // "<dt>"
+		case 28: // "<dd>"
+			expand(40);
+			return END;
+		default:
+			throw noRule("content");
+		}
+	}
+	
+	// word -> char content
+	private int parseWord() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 29: // [a-zA-Z]
+		case 30: // [0-9]
+		case 31: // [.,!- ...]
+			expand(41);
+			push(CONTENT);
+			return CHAR;
+		default:
+			throw noRule("word");
+		}
+	}
+	
+	// char -> [a-zA-Z]
+	// char -> [0-9]
+	// char -> [.,!- ...]
+	private int parseChar() throws ParseException, IOException, InvalidTokenException {
+		switch (lookahead()) {
+		case 29: // [a-zA-Z]
+			expand(42);
+			match(29);
+			return END;
+		case 30: // [0-9]
+			expand(43);
+			match(30);
+			return END;
+		case 31: // [.,!- ...]
+			expand(44);
+			match(31);
+			return END;
+		default:
+			throw noRule("char");
+		}
+	}
+	
+	// htmldocument -> "<html>" documenthead documentbody "</html>", after documenthead
+	private int parseHtmldocument0From2() throws ParseException, IOException, InvalidTokenException {
+		push(HTMLDOCUMENT_0_3);
+		return DOCUMENTBODY;
+	}
+	
+	// htmldocument -> "<html>" documenthead documentbody "</html>", after documentbody
+	private int parseHtmldocument0From3() throws ParseException, IOException, InvalidTokenException {
+		match(1);
+		return END;
+	}
+	
+	// documenthead -> "<head>" headertags "</head>", after headertags
+	private int parseDocumenthead1From2() throws ParseException, IOException, InvalidTokenException {
+		match(3);
+		return END;
+	}
+	
+	// titletag -> "<title>" content "</title>", after content
+	private int parseTitletag6From2() throws ParseException, IOException, InvalidTokenException {
+		match(5);
+		return END;
+	}
+	
+	// metatag -> "<meta" "name=" word "content=" word ">", after word
+	private int parseMetatag7From3() throws ParseException, IOException, InvalidTokenException {
+		match(8);
+		push(METATAG_7_5);
+		return WORD;
+	}
+	
+	// metatag -> "<meta" "name=" word "content=" word ">", after word
+	private int parseMetatag7From5() throws ParseException, IOException, InvalidTokenException {
+		match(9);
+		return END;
+	}
+	
+	// documentbody -> "<body>" bodytags "</body>", after bodytags
+	private int parseDocumentbody8From2() throws ParseException, IOException, InvalidTokenException {
+		match(11);
+		return END;
+	}
+	
+	// table -> "<table>" tablerows "</table>", after tablerows
+	private int parseTable18From2() throws ParseException, IOException, InvalidTokenException {
+		match(15);
+		return END;
+	}
+	
+	// tablerow -> "<tr>" tablecells "</tr>", after tablecells
+	private int parseTablerow21From2() throws ParseException, IOException, InvalidTokenException {
+		match(17);
+		return END;
+	}
+	
+	// unordered -> "<ul>" listitems "</ul>", after listitems
+	private int parseUnordered30From2() throws ParseException, IOException, InvalidTokenException {
+		match(21);
+		return END;
+	}
+	
+	// ordered -> "<ol>" listitems "</ol>", after listitems
+	private int parseOrdered31From2() throws ParseException, IOException, InvalidTokenException {
+		match(23);
+		return END;
+	}
+	
+	// definitionlist -> "<dl>" defterms "</dl>", after defterms
+	private int parseDefinitionlist34From2() throws ParseException, IOException, InvalidTokenException {
+		match(26);
+		return END;
+	}
+
+}
@@ -0,0 +1,422 @@
+package parsing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import lexicalanalysis.FirstFollow;
+import lexicalanalysis.GrammaticalUnit;
+import lexicalanalysis.Terminal;
+import lexicalanalysis.Terminal.LiteralTerminal;
+import lexicalanalysis.Terminal.PredicateCharTerminal;
+import lexicalanalysis.TerminalTrie;
+import lexicalanalysis.TokenStream;
+
+// Rules of a language together with its parse table and the lexer of its literals. The HTML grammar is
+// built in, others are read from a file with a rule per line, as in doc/first-follow.csv:
+//
+//   paragraph -> "<p>" bodytags paragraphend
+//   paragraphend -> "</p>" | Ɛ
+//
+// Literals are quoted, [a-zA-Z], [0-9] and [.,!- ...] stand for the character classes of TokenStream.
+public class Grammar {
+	
+	private static Terminal t(String text) {
+		return Terminal.newLiteralTerminal(text);
+	}
+	
+	private static NonTerminal n(String name) {
+		return NonTerminal.withName(name);
+	}
+	
+	static final String PARSE_TABLE_RESOURCE = "parse-table.bin";
+	
+	// Directory the parse tables of grammar files are cached in, one in the home of the user unless set
+	public static final String CACHE_DIRECTORY_PROPERTY = "parser.grammarCache";
+	
+	private static final Map<String, Terminal> CHARACTER_CLASSES = new HashMap<>();
+	
+	// Number of a rule in doc/first-follow.csv, and the name of a nonterminal
+	private static final Pattern RULE_NUMBER = Pattern.compile("^\\d+\\.\\s*");
+	private static final Pattern NAME = Pattern.compile("[\\w-]+");
+	
+	private final static Grammar HTML;
+	static {
+		
+		// Terminal ids follow the order terminals are created in - the literals of the rules come
+		// before the ones only TokenStream knows, as they did in Parser
+		List<Rule> ruleList = new ArrayList<>();
+		ruleList.add(Rule.define("htmldocument", t("<html>"), n("documenthead"), n("documentbody"), t("</html>")));
+		ruleList.add(Rule.define("documenthead", t("<head>"), n("headertags"), t("</head>")));
+		ruleList.add(Rule.define("headertags", n("headertag"), n("headertags")));
+		ruleList.add(Rule.define("headertags"));
+		ruleList.add(Rule.define("headertag", n("titletag")));
+		ruleList.add(Rule.define("headertag", n("metatag")));
+		ruleList.add(Rule.define("titletag", t("<title>"), n("content"), t("</title>")));
+		ruleList.add(Rule.define("metatag", t("<meta"), t("name="), n("word"), t("content="), n("word"), t(">")));
+		ruleList.add(Rule.define("documentbody", t("<body>"), n("bodytags"), t("</body>")));
+		ruleList.add(Rule.define("bodytags", n("bodytag"), n("bodytags")));
+		ruleList.add(Rule.define("bodytags"));
+		ruleList.add(Rule.define("bodytag", n("table")));
+		ruleList.add(Rule.define("bodytag", n("list")));
+		ruleList.add(Rule.define("bodytag", n("paragraph")));
+		ruleList.add(Rule.define("bodytag", n("content")));
+		ruleList.add(Rule.define("paragraph", t("<p>"),n("bodytags"),n("paragraphend")));
+		ruleList.add(Rule.define("paragraphend", t("</p>")));
+		ruleList.add(Rule.define("paragraphend"));
+		ruleList.add(Rule.define("table",t("<table>"),n("tablerows"), t("</table>")));
+		ruleList.add(Rule.define("tablerows",n("tablerow"),n("tablerows")));
+		ruleList.add(Rule.define("tablerows"));
+		ruleList.add(Rule.define("tablerow",t("<tr>"),n("tablecells"),t("</tr>")));
+		ruleList.add(Rule.define("tablecells",n("tablecell"),n("tablecells")));
+		ruleList.add(Rule.define("tablecells"));
+		ruleList.add(Rule.define("tablecell",t("<td>"),n("bodytags"),n("tablecellend")));
+		ruleList.add(Rule.define("tablecellend",t("</td>")));
+		ruleList.add(Rule.define("tablecellend"));
+		ruleList.add(Rule.define("list",n("unordered")));
+		ruleList.add(Rule.define("list",n("ordered")));
+		ruleList.add(Rule.define("list",n("definitionlist")));
+		ruleList.add(Rule.define("unordered",t("<ul>"),n("listitems"),t("</ul>")));
+		ruleList.add(Rule.define("ordered",t("<ol>"),n("listitems"),t("</ol>")));
+		ruleList.add(Rule.define("listitems",t("<li>"),n("bodytag"),n("listitems")));
+		ruleList.add(Rule.define("listitems"));
+		ruleList.add(Rule.define("definitionlist",t("<dl>"),n("defterms"),t("</dl>")));
+		ruleList.add(Rule.define("defterms",n("defterm"),n("defterms")));
+		ruleList.add(Rule.define("defterms"));
+		ruleList.add(Rule.define("defterm",t("<dt>"),n("bodytag")));
+		ruleList.add(Rule.define("defterm",t("<dd>"),n("bodytag")));
+		ruleList.add(Rule.define("content", n("word")));
+		ruleList.add(Rule.define("content"));
+		ruleList.add(Rule.define("word", n("char"), n("content")));
+		ruleList.add(Rule.define("char", TokenStream.LETTER));
+		ruleList.add(Rule.define("char", TokenStream.DIGIT));
+		ruleList.add(Rule.define("char", TokenStream.OTHERSYMBOL));
+		
+		CHARACTER_CLASSES.put(TokenStream.LETTER.toString(), TokenStream.LETTER);
+		CHARACTER_CLASSES.put(TokenStream.DIGIT.toString(), TokenStream.DIGIT);
+		CHARACTER_CLASSES.put(TokenStream.OTHERSYMBOL.toString(), TokenStream.OTHERSYMBOL);
+		// Names of doc/first-follow.csv, as long as no rules are given for them
+		CHARACTER_CLASSES.put("letter", TokenStream.LETTER);
+		CHARACTER_CLASSES.put("digit", TokenStream.DIGIT);
+		CHARACTER_CLASSES.put("othersymbol", TokenStream.OTHERSYMBOL);
+		
+		HTML = loadBuiltIn(Collections.unmodifiableList(ruleList));
+	
+	}
+	
+	public static Grammar html() {
+		return HTML;
+	}
+	
+	// Written by ParseTableGenerator during the build, the table is built from the rules when it is missing
+	// or was written for other rules
+	private static Grammar loadBuiltIn(List<Rule> rules) {
+		long start = System.nanoTime();
+		PhaseEvent phase = Parser.beginPhase("load-table");
+		try (InputStream in = Grammar.class.getResourceAsStream(PARSE_TABLE_RESOURCE)) {
+			if (in != null) {
+				ParseTable parseTable = ParseTable.read(rules, new BufferedInputStream(in));
+				return new Grammar(rules, TokenStream.getTrie(), parseTable, null, System.nanoTime() - start);
+			}
+		} catch (IOException e) {
+			// Out of date, built below
+		} finally {
+			Parser.endPhase(phase);
+		}
+		return compile(rules, TokenStream.getTrie(), start);
+	}
+	
+	private static Grammar compile(List<Rule> rules, TerminalTrie trie, long start) {
+		PhaseEvent phase = Parser.beginPhase("first-follow");
+		FirstFollow firstFollow = new FirstFollow(rules);
+		Parser.endPhase(phase);
+		phase = Parser.beginPhase("parse-table");
+		ParseTable parseTable = firstFollow.compileRuleTable();
+		Parser.endPhase(phase);
+		return new Grammar(rules, trie, parseTable, firstFollow, System.nanoTime() - start);
+	}
+	
+	public static Grammar load(Path file) throws IOException, ParseException {
+		String directory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+		return load(file, directory != null
+				? Paths.get(directory)
+				: Paths.get(System.getProperty("user.home"), ".parser-basic-html", "cache"));
+	}
+	
+	// The parse table is cached under the fingerprint of the rules, so that a file only changed in its
+	// comments or layout is not analysed again - without a cache directory it is always built
+	public static Grammar load(Path file, Path cacheDirectory) throws IOException, ParseException {
+		long start = System.nanoTime();
+		List<Rule> rules = parseRules(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+		TerminalTrie trie = TokenStream.createTrie(literalsOf(rules));
+		if (cacheDirectory == null) {
+			return compile(rules, trie, start);
+		}
+		
+		Path cached = cacheDirectory.resolve(String.format("%016x.table", ParseTable.fingerprint(rules)));
+		if (Files.exists(cached)) {
+			try (InputStream in = new BufferedInputStream(Files.newInputStream(cached))) {
+				return new Grammar(rules, trie, ParseTable.read(rules, in), null, System.nanoTime() - start);
+			} catch (IOException e) {
+				// Damaged or of an older version, written again below
+			}
+		}
+		
+		Grammar grammar = compile(rules, trie, start);
+		Path written = null;
+		try {
+			Files.createDirectories(cacheDirectory);
+			// Renamed once complete, a parser started meanwhile does not see half a table
+			written = Files.createTempFile(cacheDirectory, cached.getFileName().toString(), ".tmp");
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(written))) {
+				grammar.parseTable.write(out);
+			}
+			Files.move(written, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// Only not cached
+			if (written != null) {
+				Files.deleteIfExists(written);
+			}
+		}
+		return grammar;
+	}
+	
+	// A rule per line, alternatives separated by |. Anything from # on is a comment, a line of
+	// doc/first-follow.csv starts with the number of the rule and ends at the first ;
+	static List<Rule> parseRules(String text) throws ParseException {
+		String[] lines = text.split("\r?\n");
+		String[] names = new String[lines.length];
+		Set<String> defined = new HashSet<>();
+		for (int l = 0; l < lines.length; l++) {
+			String line = lines[l].trim();
+			if (line.isEmpty() || line.startsWith("#") || line.startsWith("RULE;")) {
+				continue;
+			}
+			int arrow = line.indexOf("->");
+			names[l] = arrow < 0 ? "" : RULE_NUMBER.matcher(line.substring(0, arrow).trim()).replaceFirst("");
+			if (!NAME.matcher(names[l]).matches()) {
+				throw new ParseException("Line " + (l + 1) + ": expected a nonterminal and -> in " + line);
+			}
+			defined.add(names[l]);
+		}
+		
+		List<Rule> rules = new ArrayList<>();
+		for (int l = 0; l < lines.length; l++) {
+			if (names[l] == null) {
+				continue;
+			}
+			String line = lines[l].trim();
+			String name = names[l];
+			int arrow = line.indexOf("->");
+			
+			List<GrammaticalUnit> expansion = new ArrayList<>();
+			int i = arrow + 2;
+			while (true) {
+				while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+					i++;
+				}
+				char c = i < line.length() ? line.charAt(i) : '#';
+				if (c == '#' || c == ';' || c == '|') {
+					rules.add(Rule.define(name, expansion.toArray(new GrammaticalUnit[expansion.size()])));
+					if (c != '|') {
+						break;
+					}
+					expansion = new ArrayList<>();
+					i++;
+				} else if (c == '"') {
+					int end = line.indexOf('"', i + 1);
+					if (end <= i + 1) {
+						throw new ParseException("Line " + (l + 1) + ": unterminated or empty literal in " + line);
+					}
+					expansion.add(t(line.substring(i + 1, end)));
+					i = end + 1;
+				} else if (c == '[') {
+					int end = line.indexOf(']', i);
+					Terminal characterClass = end < 0 ? null : CHARACTER_CLASSES.get(line.substring(i, end + 1));
+					if (characterClass == null) {
+						throw new ParseException("Line " + (l + 1) + ": unknown character class in " + line
+								+ ", expected one of " + CHARACTER_CLASSES.keySet());
+					}
+					expansion.add(characterClass);
+					i = end + 1;
+				} else {
+					int end = i;
+					while (end < line.length() && "#;|\"[".indexOf(line.charAt(end)) < 0 && !Character.isWhitespace(line.charAt(end))) {
+						end++;
+					}
+					String symbol = line.substring(i, end);
+					if (defined.contains(symbol)) {
+						expansion.add(n(symbol));
+					} else if (CHARACTER_CLASSES.containsKey(symbol)) {
+						expansion.add(CHARACTER_CLASSES.get(symbol));
+					} else if (!symbol.equals(Terminal.EPSILON.toString()) && !symbol.equals("ε")) {
+						throw new ParseException("Line " + (l + 1) + ": nonterminal " + symbol + " has no rules");
+					}
+					i = end;
+				}
+			}
+		}
+		
+		if (rules.isEmpty()) {
+			throw new ParseException("No rules in the grammar");
+		}
+		return Collections.unmodifiableList(rules);
+	}
+	
+	private static Set<Terminal> literalsOf(List<Rule> rules) {
+		Set<Terminal> literals = new LinkedHashSet<>();
+		for (Rule rule : rules) {
+			for (GrammaticalUnit unit : rule.getExpansion()) {
+				if (unit instanceof LiteralTerminal) {
+					literals.add((Terminal) unit);
+				}
+			}
+		}
+		return literals;
+	}
+	
+	private final List<Rule> rules;
+	
+	private final TerminalTrie trie;
+	
+	private final ParseTable parseTable;
+	
+	private final long fingerprint;
+	
+	// Only computed when the parse table was not loaded, or once asked for
+	private FirstFollow firstFollow;
+	
+	private final boolean parseTableLoaded;
+	
+	private final long grammarNanos;
+	
+	// Expansions that take a nonterminal back to itself through one token, by nonterminal and terminal -
+	// content through a text character, so that runs of text need not go through the stack
+	private final int[] cycles;
+	
+	// Character class terminals by id that take a nonterminal back to itself, by nonterminal - null for
+	// those that take none, so a run of such characters is consumed with the nonterminal left on top
+	private final boolean[][] textTerminals;
+	
+	private Grammar(List<Rule> rules, TerminalTrie trie, ParseTable parseTable, FirstFollow firstFollow, long grammarNanos) {
+		this.rules = rules;
+		this.trie = trie;
+		this.parseTable = parseTable;
+		this.fingerprint = ParseTable.fingerprint(rules);
+		this.firstFollow = firstFollow;
+		this.parseTableLoaded = firstFollow == null;
+		this.grammarNanos = grammarNanos;
+		
+		int columns = parseTable.getTerminalCount();
+		cycles = new int[parseTable.getNonTerminalCount() * columns];
+		for (int nt = 0; nt < parseTable.getNonTerminalCount(); nt++) {
+			for (int terminal = 0; terminal < columns; terminal++) {
+				cycles[nt * columns + terminal] = findCycle(nt, terminal);
+			}
+		}
+		
+		textTerminals = new boolean[parseTable.getNonTerminalCount()][];
+		for (int nt = 0; nt < parseTable.getNonTerminalCount(); nt++) {
+			for (int terminal = 0; terminal < columns; terminal++) {
+				if (cycles[nt * columns + terminal] > 0 && parseTable.getSymbol(terminal) instanceof PredicateCharTerminal) {
+					if (textTerminals[nt] == null) {
+						textTerminals[nt] = new boolean[columns];
+					}
+					textTerminals[nt][terminal] = true;
+				}
+			}
+		}
+	}
+	
+	// Number of expansions, or 0 when the token does not lead back to the nonterminal alone
+	private int findCycle(int nt, int terminal) {
+		if (parseTable.getRuleId(nt, terminal) == ParseTable.NO_RULE) {
+			return 0;
+		}
+		int[] stack = new int[64];
+		int depth = 0;
+		stack[depth++] = ~nt;
+		int expansions = 0;
+		while (depth > 0 && expansions < 16) {
+			int symbol = stack[--depth];
+			if (ParseTable.isTerminal(symbol)) {
+				return symbol == terminal && depth == 1 && stack[0] == ~nt ? expansions : 0;
+			}
+			int ruleId = parseTable.getRuleId(~symbol, terminal);
+			if (ruleId == ParseTable.NO_RULE) {
+				return 0;
+			}
+			int[] expansion = parseTable.getReversedExpansion(ruleId);
+			if (depth + expansion.length > stack.length) {
+				return 0;
+			}
+			System.arraycopy(expansion, 0, stack, depth, expansion.length);
+			depth += expansion.length;
+			expansions++;
+		}
+		return 0;
+	}
+	
+	// Lexes a file into the terminals of this grammar
+	public TokenStream open(Path path) throws IOException {
+		return TokenStream.open(path, trie);
+	}
+	
+	public synchronized FirstFollow getFirstFollow() {
+		if (firstFollow == null) {
+			firstFollow = new FirstFollow(rules);
+		}
+		return firstFollow;
+	}
+	
+	public List<Rule> getRules() {
+		return rules;
+	}
+	
+	public TerminalTrie getTrie() {
+		return trie;
+	}
+	
+	public ParseTable getParseTable() {
+		return parseTable;
+	}
+	
+	// Time taken to load the parse table, or to build FIRST and FOLLOW sets and the table
+	public long getGrammarNanos() {
+		return grammarNanos;
+	}
+	
+	// Whether the table was read from the build or the cache rather than computed
+	boolean isParseTableLoaded() {
+		return parseTableLoaded;
+	}
+	
+	long getFingerprint() {
+		return fingerprint;
+	}
+	
+	int[] getCycles() {
+		return cycles;
+	}
+
+	boolean[][] getTextTerminals() {
+		return textTerminals;
+	}
+
+}
@@ -0,0 +1,185 @@
+package parsing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lexicalanalysis.InvalidTokenException;
+import lexicalanalysis.TokenStream;
+
+// Validates a document while it is being edited - the parser stack is saved every few thousand
+// characters, an edit is parsed again from the last checkpoint in front of it until the stack
+// matches a checkpoint of the old parse behind the edit, from where on the old parse still holds
+public class IncrementalParser {
+	
+	private static final int CHECKPOINT_INTERVAL = 4096;
+	
+	// Parser state right before the token at position is read
+	private static class Checkpoint {
+		
+		private final long position;
+		
+		private final int[] stack;
+		
+		private final long tokens;
+		
+		private final long expansions;
+		
+		private Checkpoint(long position, int[] stack, long tokens, long expansions) {
+			this.position = position;
+			this.stack = stack;
+			this.tokens = tokens;
+			this.expansions = expansions;
+		}
+		
+		private Checkpoint shift(long delta, long tokenDelta, long expansionDelta) {
+			return new Checkpoint(position + delta, stack, tokens + tokenDelta, expansions + expansionDelta);
+		}
+	
+	}
+	
+	// Reads the document from an offset without copying it
+	private static class TextReader extends Reader {
+		
+		private final StringBuilder text;
+		
+		private int position;
+		
+		private TextReader(StringBuilder text, int position) {
+			this.text = text;
+			this.position = position;
+		}
+		
+		@Override
+		public int read(char[] buffer, int offset, int length) {
+			if (position >= text.length()) {
+				return -1;
+			}
+			int end = Math.min(text.length(), position + length);
+			text.getChars(position, end, buffer, offset);
+			int read = end - position;
+			position = end;
+			return read;
+		}
+		
+		@Override
+		public void close() {
+		}
+	
+	}
+	
+	private final StringBuilder text;
+	
+	private List<Checkpoint> checkpoints = new ArrayList<>();
+	
+	private ParseResult result;
+	
+	private long lastParsedLength;
+	
+	public IncrementalParser(CharSequence text) {
+		this.text = new StringBuilder(text);
+		checkpoints.add(new Checkpoint(0, new int[] { Parser.getParseTable().getStartSymbol() }, 0, 0));
+		result = parse(1, null, 0, 0);
+	}
+	
+	// Replaces removed characters at offset with the inserted ones and validates the document again
+	public ParseResult edit(int offset, int removed, CharSequence inserted) {
+		if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+			throw new IndexOutOfBoundsException("Edit of " + removed + " characters at " + offset + " in a text of " + text.length());
+		}
+		text.replace(offset, offset + removed, inserted.toString());
+		
+		// The token in front of a checkpoint could have been longer, had the edit not been there
+		int maxLength = TokenStream.getTrie().getMaxLength();
+		int keep = 1;
+		while (keep < checkpoints.size() && checkpoints.get(keep).position + maxLength <= offset) {
+			keep++;
+		}
+		
+		// Only an accepted parse is taken over, an error message could depend on the position
+		List<Checkpoint> old = result.isAccepted() ? checkpoints : null;
+		result = parse(keep, old, inserted.length() - removed, offset + inserted.length());
+		return result;
+	}
+	
+	// Parses from the last kept checkpoint, old checkpoints at or past syncFrom are shifted by delta
+	private ParseResult parse(int keep, List<Checkpoint> old, long delta, long syncFrom) {
+		List<Checkpoint> kept = new ArrayList<>(checkpoints.subList(0, keep));
+		Checkpoint start = kept.get(keep - 1);
+		
+		TokenStream tokenStream = new TokenStream(new TextReader(text, (int) start.position));
+		tokenStream.setPosition(start.position);
+		Parser parser = new Parser(tokenStream, start.stack);
+		
+		long tokens = start.tokens;
+		long expansions = start.expansions;
+		long lastCheckpoint = start.position;
+		int next = keep;
+		try {
+			while (true) {
+				switch (parser.next()) {
+				case Parser.CONSUMED:
+					tokens++;
+					long position = parser.getLookaheadPosition();
+					
+					if (old != null && position >= syncFrom) {
+						long oldPosition = position - delta;
+						while (next < old.size() && old.get(next).position < oldPosition) {
+							next++;
+						}
+						if (next < old.size() && old.get(next).position == oldPosition && parser.stackEquals(old.get(next).stack)) {
+							Checkpoint sync = old.get(next);
+							long tokenDelta = tokens - sync.tokens;
+							long expansionDelta = expansions - sync.expansions;
+							for (Checkpoint checkpoint : old.subList(next, old.size())) {
+								kept.add(checkpoint.shift(delta, tokenDelta, expansionDelta));
+							}
+							checkpoints = kept;
+							lastParsedLength = position - start.position;
+							return new ParseResult(true, -1, null, result.getTokens() + tokenDelta, result.getExpansions() + expansionDelta);
+						}
+					}
+					
+					if (position - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+						kept.add(new Checkpoint(position, parser.copyStack(), tokens, expansions));
+						lastCheckpoint = position;
+					}
+					break;
+				case Parser.EXPANDED:
+					expansions++;
+					break;
+				default:
+					checkpoints = kept;
+					lastParsedLength = text.length() - start.position;
+					return new ParseResult(true, -1, null, tokens, expansions);
+				}
+			}
+		} catch (InvalidTokenException e) {
+			checkpoints = kept;
+			lastParsedLength = e.getPosition() - start.position;
+			return new ParseResult(false, e.getPosition(), e.getMessage(), tokens, expansions);
+		} catch (ParseException e) {
+			checkpoints = kept;
+			lastParsedLength = parser.getLookaheadPosition() - start.position;
+			return new ParseResult(false, parser.getLookaheadPosition(), e.getMessage(), tokens, expansions);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	public ParseResult getResult() {
+		return result;
+	}
+	
+	public CharSequence getText() {
+		return text;
+	}
+	
+	// Characters parsed by the last edit, up to where the old parse took over
+	public long getLastParsedLength() {
+		return lastParsedLength;
+	}
+
+}
@@ -1,13 +1,13 @@
 package parsing;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lexicalanalysis.GrammaticalUnit;
 
 public class NonTerminal implements GrammaticalUnit {
 
-	private static final Map<String, NonTerminal> NT_CACHE = new HashMap<>();
+	private static final Map<String, NonTerminal> NT_CACHE = new ConcurrentHashMap<>();
 	
 	public static NonTerminal withName(String name) {
 		return NT_CACHE.computeIfAbsent(name, NonTerminal::new);
@@ -0,0 +1,167 @@
+package parsing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lexicalanalysis.Terminal;
+import lexicalanalysis.Token;
+
+// State of a Parser between two steps, for a parse of a large file to go on from in another process.
+// Symbols are written by name like in ParseTable, and a checkpoint is only read for the same rules.
+public class ParseCheckpoint {
+	
+	private static final int MAGIC = 0x5043484B;
+	private static final int VERSION = 1;
+	
+	private final long fingerprint;
+	
+	// Start of the lookahead, where the token stream goes on
+	private final long position;
+	
+	private final String lookaheadText;
+	private final String lookaheadTerminal;
+	
+	// Symbol ids of the grammar, the top last
+	private final int[] stack;
+	
+	private final long tokens;
+	
+	private final long expansions;
+	
+	private final List<ParseError> errors;
+	
+	ParseCheckpoint(Grammar grammar, long position, Token lookahead, int[] stack, long tokens, long expansions, List<ParseError> errors) {
+		this(grammar.getFingerprint(), position, lookahead.getText(), String.valueOf(lookahead.getTerminal()), stack, tokens, expansions, errors);
+	}
+	
+	private ParseCheckpoint(long fingerprint, long position, String lookaheadText, String lookaheadTerminal, int[] stack,
+			long tokens, long expansions, List<ParseError> errors) {
+		this.fingerprint = fingerprint;
+		this.position = position;
+		this.lookaheadText = lookaheadText;
+		this.lookaheadTerminal = lookaheadTerminal;
+		this.stack = stack;
+		this.tokens = tokens;
+		this.expansions = expansions;
+		this.errors = errors;
+	}
+	
+	public long getPosition() {
+		return position;
+	}
+	
+	int[] getStack() {
+		return stack;
+	}
+	
+	public long getTokens() {
+		return tokens;
+	}
+	
+	public long getExpansions() {
+		return expansions;
+	}
+	
+	// Found before the checkpoint
+	public List<ParseError> getErrors() {
+		return errors;
+	}
+	
+	// Whether the token read at the position is the one the checkpoint was written with
+	boolean isLookahead(Token token) {
+		return token.getText().equals(lookaheadText) && String.valueOf(token.getTerminal()).equals(lookaheadTerminal);
+	}
+	
+	public void write(OutputStream out, Grammar grammar) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeLong(fingerprint);
+		data.writeLong(position);
+		data.writeUTF(lookaheadText);
+		data.writeUTF(lookaheadTerminal);
+		data.writeLong(tokens);
+		data.writeLong(expansions);
+		data.writeInt(errors.size());
+		for (ParseError error : errors) {
+			data.writeLong(error.getPosition());
+			data.writeUTF(error.getMessage());
+		}
+		ParseTable parseTable = grammar.getParseTable();
+		data.writeInt(stack.length);
+		for (int symbol : stack) {
+			data.writeBoolean(ParseTable.isTerminal(symbol));
+			data.writeUTF(parseTable.getSymbol(symbol).toString());
+		}
+		data.flush();
+	}
+	
+	// Replaces the file at once, a process that dies while writing leaves the checkpoint before
+	public void write(Path file, Grammar grammar) throws IOException {
+		Path written = file.resolveSibling(file.getFileName() + ".tmp");
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(written))) {
+			write(out, grammar);
+		}
+		Files.move(written, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	// Reads a checkpoint written for the same rules, fails with an IOException for any other
+	public static ParseCheckpoint read(InputStream in, Grammar grammar) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+			throw new IOException("Not a checkpoint of this version");
+		}
+		long fingerprint = data.readLong();
+		if (fingerprint != grammar.getFingerprint()) {
+			throw new IOException("Checkpoint of other rules");
+		}
+		long position = data.readLong();
+		String lookaheadText = data.readUTF();
+		String lookaheadTerminal = data.readUTF();
+		long tokens = data.readLong();
+		long expansions = data.readLong();
+		List<ParseError> errors = new ArrayList<>();
+		for (int i = data.readInt(); i > 0; i--) {
+			errors.add(new ParseError(data.readLong(), data.readUTF()));
+		}
+		
+		ParseTable parseTable = grammar.getParseTable();
+		Map<String, Integer> terminals = new HashMap<>();
+		for (Terminal terminal : grammar.getTrie().getTerminals()) {
+			terminals.putIfAbsent(terminal.toString(), terminal.getId());
+		}
+		terminals.put(Terminal.DOLLAR.toString(), Terminal.DOLLAR.getId());
+		int[] stack = new int[data.readInt()];
+		for (int i = 0; i < stack.length; i++) {
+			boolean terminal = data.readBoolean();
+			String name = data.readUTF();
+			Integer id = terminal ? terminals.get(name) : Integer.valueOf(parseTable.getNonTerminalId(NonTerminal.withName(name)));
+			if (id == null || (!terminal && id < 0)) {
+				throw new IOException("Checkpoint with unknown symbol " + name);
+			}
+			stack[i] = terminal ? id : ~id;
+		}
+		return new ParseCheckpoint(fingerprint, position, lookaheadText, lookaheadTerminal, stack, tokens, expansions,
+				Collections.unmodifiableList(errors));
+	}
+	
+	public static ParseCheckpoint read(Path file, Grammar grammar) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			return read(in, grammar);
+		}
+	}
+
+}
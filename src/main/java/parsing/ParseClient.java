@@ -0,0 +1,95 @@
+package parsing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// One connection to a ParseServer of the local host, requests are answered in order
+public class ParseClient implements Closeable {
+	
+	public static class Answer {
+		
+		private final byte status;
+		
+		private final String text;
+		
+		private Answer(byte status, String text) {
+			this.status = status;
+			this.text = text;
+		}
+		
+		// One of the statuses of ParseServer
+		public byte getStatus() {
+			return status;
+		}
+		
+		public boolean isAccepted() {
+			return status == ParseServer.ACCEPTED;
+		}
+		
+		// Lines of the result, of the trace or events, and of the errors
+		public String getText() {
+			return text;
+		}
+		
+		@Override
+		public String toString() {
+			return text;
+		}
+	
+	}
+	
+	private final Socket socket;
+	
+	private final DataInputStream in;
+	
+	private final DataOutputStream out;
+	
+	public ParseClient(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+	
+	public Answer validate(String document) throws IOException {
+		return send(ParseServer.VALIDATE, document.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public Answer trace(String document) throws IOException {
+		return send(ParseServer.TRACE, document.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public Answer events(String document) throws IOException {
+		return send(ParseServer.EVENTS, document.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public Answer stats() throws IOException {
+		return send(ParseServer.STATS, new byte[0]);
+	}
+	
+	// Blocks while the server has too many documents in flight
+	public Answer send(byte kind, byte[] payload) throws IOException {
+		out.writeByte(kind);
+		out.writeInt(payload.length);
+		out.write(payload);
+		out.flush();
+		
+		byte status = in.readByte();
+		byte[] text = new byte[in.readInt()];
+		in.readFully(text);
+		return new Answer(status, new String(text, StandardCharsets.UTF_8));
+	}
+	
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+
+}
@@ -0,0 +1,27 @@
+package parsing;
+
+public class ParseError {
+	
+	private final long position;
+	
+	private final String message;
+	
+	ParseError(long position, String message) {
+		this.position = position;
+		this.message = message;
+	}
+	
+	public long getPosition() {
+		return position;
+	}
+	
+	public String getMessage() {
+		return message;
+	}
+	
+	@Override
+	public String toString() {
+		return "Position " + position + ": " + message;
+	}
+
+}
@@ -0,0 +1,19 @@
+package parsing;
+
+// Push-style events of Parser.parse(ParseHandler). Text runs inside one element are reported
+// as a single range of source offsets, nested text and list nonterminals are folded like in ParseTree.
+public interface ParseHandler {
+	
+	public default void startElement(NonTerminal nonTerminal, long position) {
+	}
+	
+	public default void endElement(NonTerminal nonTerminal, long position) {
+	}
+	
+	public default void text(long start, long end) {
+	}
+	
+	public default void error(String message, long position) {
+	}
+
+}
@@ -0,0 +1,17 @@
+package parsing;
+
+import lexicalanalysis.Token;
+
+// Receives the steps of Parser.parse(), positions are offsets of the token in the source
+public interface ParseListener {
+	
+	public default void expand(int ruleId, Token token, long position) {
+	}
+	
+	public default void consume(Token token, long position, long end) {
+	}
+	
+	public default void accept(long position) {
+	}
+
+}
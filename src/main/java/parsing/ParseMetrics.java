@@ -0,0 +1,178 @@
+package parsing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import lexicalanalysis.Terminal;
+
+// Counters filled by a Parser given to setMetrics - per thread, metrics of several parsers can be added up
+public class ParseMetrics {
+	
+	private final Grammar grammar;
+	
+	private final ParseTable parseTable;
+	
+	// By terminal id and rule id
+	private final long[] tokens;
+	private final long[] expansions;
+	
+	// Runs of text read as single tokens, they are in no count of tokens by terminal
+	private long textRuns;
+	private long textCharacters;
+	
+	private int maxStackDepth;
+	
+	// Of the document being parsed, for its flight recorder event
+	private int documentStackDepth;
+	
+	private long documents;
+	
+	private long bytes;
+	
+	private long nanos;
+	
+	public ParseMetrics() {
+		this(Grammar.html());
+	}
+	
+	public ParseMetrics(Grammar grammar) {
+		this.grammar = grammar;
+		parseTable = grammar.getParseTable();
+		tokens = new long[parseTable.getTerminalCount()];
+		expansions = new long[parseTable.getRuleCount()];
+	}
+	
+	void countToken(int terminal) {
+		if (terminal < tokens.length) {
+			tokens[terminal]++;
+		}
+	}
+	
+	void countText(int characters) {
+		textRuns++;
+		textCharacters += characters;
+	}
+	
+	void startDocument() {
+		documentStackDepth = 0;
+	}
+	
+	void countExpansion(int ruleId, int stackDepth) {
+		expansions[ruleId]++;
+		if (stackDepth > documentStackDepth) {
+			documentStackDepth = stackDepth;
+			if (stackDepth > maxStackDepth) {
+				maxStackDepth = stackDepth;
+			}
+		}
+	}
+	
+	void countDocument(long bytes, long nanos) {
+		documents++;
+		this.bytes += bytes;
+		this.nanos += nanos;
+	}
+	
+	public void add(ParseMetrics other) {
+		for (int i = 0; i < tokens.length; i++) {
+			tokens[i] += other.tokens[i];
+		}
+		for (int i = 0; i < expansions.length; i++) {
+			expansions[i] += other.expansions[i];
+		}
+		textRuns += other.textRuns;
+		textCharacters += other.textCharacters;
+		maxStackDepth = Math.max(maxStackDepth, other.maxStackDepth);
+		documents += other.documents;
+		bytes += other.bytes;
+		nanos += other.nanos;
+	}
+	
+	public long getTokens(Terminal terminal) {
+		return terminal.getId() < tokens.length ? tokens[terminal.getId()] : 0;
+	}
+	
+	// Terminals that were read, the most frequent first
+	public Map<Terminal, Long> getTokenCounts() {
+		Map<Terminal, Long> counts = new LinkedHashMap<>();
+		sortedIds(tokens).forEach(id -> counts.put((Terminal) parseTable.getSymbol(id), tokens[id]));
+		return counts;
+	}
+	
+	// A run counts as one token in the result of its parse
+	public long getTextRuns() {
+		return textRuns;
+	}
+	
+	// Tokens the runs of text would have been read as one by one
+	public long getTextCharacters() {
+		return textCharacters;
+	}
+	
+	public long getExpansions(Rule rule) {
+		int ruleId = grammar.getRules().indexOf(rule);
+		return ruleId < 0 ? 0 : expansions[ruleId];
+	}
+	
+	// Rules that were applied, the most frequent first
+	public Map<Rule, Long> getExpansionCounts() {
+		Map<Rule, Long> counts = new LinkedHashMap<>();
+		sortedIds(expansions).forEach(id -> counts.put(parseTable.getRule(id), expansions[id]));
+		return counts;
+	}
+	
+	private static IntStream sortedIds(long[] counts) {
+		return IntStream.range(0, counts.length)
+				.filter(id -> counts[id] > 0)
+				.boxed()
+				.sorted((a, b) -> Long.compare(counts[b], counts[a]))
+				.mapToInt(Integer::intValue);
+	}
+	
+	ParseTable getParseTable() {
+		return parseTable;
+	}
+	
+	public int getMaxStackDepth() {
+		return maxStackDepth;
+	}
+	
+	int getDocumentStackDepth() {
+		return documentStackDepth;
+	}
+	
+	public long getDocuments() {
+		return documents;
+	}
+	
+	// Input read by the token streams, in their positions - bytes of mapped files, characters otherwise
+	public long getBytes() {
+		return bytes;
+	}
+	
+	public long getNanos() {
+		return nanos;
+	}
+	
+	public double getBytesPerSecond() {
+		return nanos == 0 ? 0 : bytes * 1e9 / nanos;
+	}
+	
+	public String report() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Parse table ready in %.1f ms\n", grammar.getGrammarNanos() / 1e6));
+		builder.append(String.format("%d documents, %d bytes in %.1f ms (%.1f MB/s)\n",
+				documents, bytes, nanos / 1e6, getBytesPerSecond() / 1e6));
+		builder.append(String.format("Maximum stack depth %d\n", maxStackDepth));
+		builder.append("Tokens by terminal:\n");
+		getTokenCounts().forEach((terminal, count) -> builder.append(String.format("   %10d  %s\n", count, terminal)));
+		if (textRuns > 0) {
+			builder.append(String.format("Runs of text: %d, of %d characters\n", textRuns, textCharacters));
+		}
+		builder.append("Expansions by rule:\n");
+		getExpansionCounts().forEach((rule, count) -> builder.append(String.format("   %10d  %s\n", count, rule)));
+		return builder.toString();
+	}
+	
+}
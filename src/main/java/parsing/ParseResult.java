@@ -0,0 +1,77 @@
+package parsing;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ParseResult {
+	
+	private final boolean accepted;
+	
+	private final long errorPosition;
+	
+	private final String errorMessage;
+	
+	private final long tokens;
+	
+	private final long expansions;
+	
+	private final List<ParseError> errors;
+	
+	ParseResult(boolean accepted, long errorPosition, String errorMessage, long tokens, long expansions) {
+		this(accepted ? Collections.emptyList() : Collections.singletonList(new ParseError(errorPosition, errorMessage)),
+				tokens, expansions);
+	}
+	
+	// Accepted when there are no errors
+	ParseResult(List<ParseError> errors, long tokens, long expansions) {
+		this.accepted = errors.isEmpty();
+		this.errorPosition = accepted ? -1 : errors.get(0).getPosition();
+		this.errorMessage = accepted ? null : errors.get(0).getMessage();
+		this.errors = errors;
+		this.tokens = tokens;
+		this.expansions = expansions;
+	}
+	
+	public boolean isAccepted() {
+		return accepted;
+	}
+	
+	// Position of the first offending token, or -1 when accepted
+	public long getErrorPosition() {
+		return errorPosition;
+	}
+	
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+	
+	// All errors found, more than one when parsing recovered from errors
+	public List<ParseError> getErrors() {
+		return errors;
+	}
+	
+	public long getTokens() {
+		return tokens;
+	}
+	
+	public long getExpansions() {
+		return expansions;
+	}
+	
+	public long getSteps() {
+		return tokens + expansions + (accepted ? 1 : 0);
+	}
+	
+	@Override
+	public String toString() {
+		if (accepted) {
+			return String.format("Accepted: %d tokens, %d expansions", tokens, expansions);
+		}
+		if (errors.size() > 1) {
+			return String.format("Rejected with %d errors, first at position %d: %s (%d tokens, %d expansions)",
+					errors.size(), errorPosition, errorMessage, tokens, expansions);
+		}
+		return String.format("Rejected at position %d: %s (%d tokens, %d expansions)", errorPosition, errorMessage, tokens, expansions);
+	}
+
+}
@@ -0,0 +1,403 @@
+package parsing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lexicalanalysis.TokenStream;
+
+// Validates documents sent over a socket of the local host by a process that keeps running, so the parse
+// table is loaded and the parser compiled once for all of them. A request is a frame of a kind byte,
+// a length and that many bytes, a document in UTF-8 or nothing for the stats. The answer is a frame
+// of a status byte, a length and UTF-8 text. Every connection is served on a thread of its own, up to
+// a number of connections, the rest wait in the backlog of the socket until one of them is closed.
+public class ParseServer implements Closeable {
+	
+	public static final int DEFAULT_PORT = 7070;
+	
+	public static final int DEFAULT_CONNECTIONS = 64;
+	
+	// Kinds of requests
+	public static final byte VALIDATE = 'V';
+	public static final byte TRACE = 'T';
+	public static final byte EVENTS = 'E';
+	public static final byte STATS = 'S';
+	
+	// Statuses of answers - a request fails when it cannot be served at all, the connection is closed then
+	public static final byte ACCEPTED = 'A';
+	public static final byte REJECTED = 'R';
+	public static final byte OK = 'O';
+	public static final byte FAILED = 'F';
+	
+	// Longer frames are refused, and traces are cut short of it
+	public static final int MAX_FRAME = 64 << 20;
+	
+	// Percentiles are of the latencies of the last this many documents
+	private static final int SAMPLES = 4096;
+	
+	public static class Stats {
+		
+		private final long documents;
+		
+		private final long bytes;
+		
+		private final int inFlight;
+		
+		private final int maxInFlight;
+		
+		private final int peakInFlight;
+		
+		private final int waiting;
+		
+		// Sorted
+		private final long[] latencies;
+		
+		private Stats(long documents, long bytes, int inFlight, int maxInFlight, int peakInFlight, int waiting, long[] latencies) {
+			this.documents = documents;
+			this.bytes = bytes;
+			this.inFlight = inFlight;
+			this.maxInFlight = maxInFlight;
+			this.peakInFlight = peakInFlight;
+			this.waiting = waiting;
+			this.latencies = latencies;
+		}
+		
+		public long getDocuments() {
+			return documents;
+		}
+		
+		public long getBytes() {
+			return bytes;
+		}
+		
+		public int getInFlight() {
+			return inFlight;
+		}
+		
+		public int getMaxInFlight() {
+			return maxInFlight;
+		}
+		
+		// The most documents that were parsed at once
+		public int getPeakInFlight() {
+			return peakInFlight;
+		}
+		
+		// Documents whose header was read, waiting for one of those in flight to be done
+		public int getWaiting() {
+			return waiting;
+		}
+		
+		// From the header of a document read to its answer ready, waiting included, of the latest documents
+		public long getLatencyNanos(double percentile) {
+			if (latencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%d documents, %d bytes, %d in flight of %d (at most %d), %d waiting, "
+					+ "latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+					documents, bytes, inFlight, maxInFlight, peakInFlight, waiting,
+					getLatencyNanos(50) / 1e6, getLatencyNanos(90) / 1e6, getLatencyNanos(99) / 1e6, getLatencyNanos(100) / 1e6);
+		}
+	
+	}
+	
+	// Events of ParseHandler, a line each
+	private static class EventWriter implements ParseHandler {
+		
+		private final Output output;
+		
+		private EventWriter(Output output) {
+			this.output = output;
+		}
+		
+		@Override
+		public void startElement(NonTerminal nonTerminal, long position) {
+			output.line("start " + nonTerminal + " " + position);
+		}
+		
+		@Override
+		public void endElement(NonTerminal nonTerminal, long position) {
+			output.line("end " + nonTerminal + " " + position);
+		}
+		
+		@Override
+		public void text(long start, long end) {
+			output.line("text " + start + " " + end);
+		}
+		
+		@Override
+		public void error(String message, long position) {
+			output.line("error " + position + " " + message);
+		}
+	
+	}
+	
+	// Lines of the answer up to the length of a frame
+	private static class Output {
+		
+		private final StringBuilder text = new StringBuilder();
+		
+		private boolean cut;
+		
+		private void line(Object line) {
+			if (cut) {
+				return;
+			}
+			String string = line.toString();
+			if (text.length() + string.length() + 1 > MAX_FRAME / 4) {
+				text.append("...\n");
+				cut = true;
+				return;
+			}
+			text.append(string).append('\n');
+		}
+	
+	}
+	
+	private final ServerSocket serverSocket;
+	
+	private final ExecutorService connections;
+	
+	// Taken before a connection is accepted, given back when it is closed
+	private final Semaphore connectionPermits;
+	
+	private final Set<Socket> sockets = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	
+	private final Grammar grammar;
+	
+	private final int maxErrors;
+	
+	// Documents over this many wait before their bytes are read, so their connections are not read meanwhile
+	private final int maxInFlight;
+	
+	private final Semaphore permits;
+	
+	private final AtomicInteger waiting = new AtomicInteger();
+	
+	private final AtomicInteger inFlight = new AtomicInteger();
+	
+	// Guarded by latencies
+	private final long[] latencies = new long[SAMPLES];
+	private long documents;
+	private long bytes;
+	private int peakInFlight;
+	
+	private volatile boolean closed;
+	
+	// Port 0 takes any free port, see getPort
+	public ParseServer(int port, int maxConnections, int maxInFlight, int maxErrors, Grammar grammar) throws IOException {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("At least one connection has to be served");
+		}
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("At least one document has to be in flight");
+		}
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		this.grammar = grammar;
+		this.maxErrors = maxErrors;
+		this.maxInFlight = maxInFlight;
+		this.permits = new Semaphore(maxInFlight, true);
+		this.connectionPermits = new Semaphore(maxConnections);
+		this.connections = Executors.newFixedThreadPool(maxConnections, task -> {
+			Thread thread = new Thread(task, "parse-connection");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	// Accepts connections on a thread of its own, until closed
+	public void start() {
+		Thread thread = new Thread(() -> {
+			try {
+				run();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "parse-server");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	// Accepts connections until closed
+	public void run() throws IOException {
+		while (!closed) {
+			try {
+				connectionPermits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (SocketException e) {
+				connectionPermits.release();
+				if (closed) {
+					return;
+				}
+				throw e;
+			}
+			sockets.add(socket);
+			connections.execute(() -> serve(socket));
+		}
+	}
+	
+	private void serve(Socket socket) {
+		try (Socket connection = socket;
+				DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+			connection.setTcpNoDelay(true);
+			while (true) {
+				int kind = in.read();
+				if (kind < 0) {
+					return;
+				}
+				int length = in.readInt();
+				if (length < 0 || length > MAX_FRAME) {
+					answer(out, FAILED, "Frame of " + length + " bytes, at most " + MAX_FRAME + " are read");
+					return;
+				}
+				
+				if (kind == STATS) {
+					skip(in, length);
+					answer(out, OK, getStats().toString());
+				} else if (kind == VALIDATE || kind == TRACE || kind == EVENTS) {
+					long start = System.nanoTime();
+					Output output = new Output();
+					ParseResult result;
+					acquire();
+					try {
+						byte[] payload = new byte[length];
+						in.readFully(payload);
+						result = parse((byte) kind, payload, output);
+					} finally {
+						inFlight.decrementAndGet();
+						permits.release();
+					}
+					record(length, System.nanoTime() - start);
+					answer(out, result.isAccepted() ? ACCEPTED : REJECTED, output.text.toString());
+				} else {
+					answer(out, FAILED, "Unknown request " + kind);
+					return;
+				}
+			}
+		} catch (IOException e) {
+			// Gone in the middle of a frame, closed with the server or not served at all, the connection is dropped
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			sockets.remove(socket);
+			connectionPermits.release();
+		}
+	}
+	
+	// Stats take no bytes, those sent anyway are passed over
+	private static void skip(DataInputStream in, int length) throws IOException {
+		while (length > 0) {
+			int skipped = in.skipBytes(length);
+			if (skipped == 0) {
+				in.readByte();
+				skipped = 1;
+			}
+			length -= skipped;
+		}
+	}
+	
+	// A document is in flight from its bytes read to its answer ready
+	private void acquire() throws InterruptedException {
+		waiting.incrementAndGet();
+		try {
+			permits.acquire();
+		} finally {
+			waiting.decrementAndGet();
+		}
+		int current = inFlight.incrementAndGet();
+		synchronized (latencies) {
+			peakInFlight = Math.max(peakInFlight, current);
+		}
+	}
+	
+	// The result first, then the trace or events, then the errors after the first
+	private ParseResult parse(byte kind, byte[] payload, Output output) throws IOException {
+		// Lexed as bytes, positions are byte offsets as in files given to Program
+		try (Parser parser = new Parser(TokenStream.open(ByteBuffer.wrap(payload), grammar.getTrie()), grammar)) {
+			Output steps = new Output();
+			ParseResult result;
+			if (kind == TRACE) {
+				result = parser.parse(new TraceListener(grammar, steps::line), maxErrors);
+			} else if (kind == EVENTS) {
+				result = parser.parse(new EventWriter(steps));
+			} else {
+				result = parser.parse(null, maxErrors);
+			}
+			output.line(result);
+			output.text.append(steps.text);
+			if (result.getErrors().size() > 1) {
+				result.getErrors().forEach(output::line);
+			}
+			return result;
+		}
+	}
+	
+	private void record(long bytes, long nanos) {
+		synchronized (latencies) {
+			latencies[(int) (documents % SAMPLES)] = nanos;
+			documents++;
+			this.bytes += bytes;
+		}
+	}
+	
+	private static void answer(DataOutputStream out, byte status, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeByte(status);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		out.flush();
+	}
+	
+	public Stats getStats() {
+		synchronized (latencies) {
+			long[] latest = Arrays.copyOf(latencies, (int) Math.min(documents, SAMPLES));
+			Arrays.sort(latest);
+			return new Stats(documents, bytes, inFlight.get(), maxInFlight, peakInFlight, waiting.get(), latest);
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+		connections.shutdownNow();
+	}
+
+}
@@ -4,36 +4,59 @@ import lexicalanalysis.Token;
 
 public class ParseStep {
 	
+	private final Rule rule;
+	
+	private final Token token;
+	
+	// Formatted on first use only
 	private String text;
 	
-	private ParseStep(String text) {
-		this.text = text;
+	private ParseStep(Rule rule, Token token) {
+		this.rule = rule;
+		this.token = token;
 	}
 	
 	@Override
 	public String toString() {
+		if (text == null) {
+			if (token == null) {
+				text = "# ; $ -> A";
+			} else if (rule == null) {
+				text = token.getText() + " ; " + token.getText() + " -> Z";
+			} else {
+				text = rule.getRuleOf().getName() + " ; " + token.getText() + " -> Rule: " + rule.toString();
+			}
+		}
 		return text;
 	}
 	
 	public boolean isDone() {
 		return false;
 	}
-
+	
+	public Rule getRule() {
+		return rule;
+	}
+	
+	public Token getToken() {
+		return token;
+	}
+	
 	public static ParseStep accept() {
-		return new ParseStep("# ; $ -> A") {
+		return new ParseStep(null, null) {
 			@Override
 			public boolean isDone() {
 				return true;
 			}
 		};
 	}
-
+	
 	public static ParseStep consume(Token token) {
-		return new ParseStep(String.format("%s ; %s -> Z", token.getText(), token.getText()));
+		return new ParseStep(null, token);
 	}
-
+	
 	public static ParseStep expand(Rule rule, Token token) {
-		return new ParseStep(String.format("%s ; %s -> Rule: %s", rule.getRuleOf().getName(), token.getText(), rule.toString()));
+		return new ParseStep(rule, token);
 	}
-	
+
 }
@@ -0,0 +1,367 @@
+package parsing;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.collect.Table;
+
+import lexicalanalysis.GrammaticalUnit;
+import lexicalanalysis.Terminal;
+import lexicalanalysis.Terminal.PredicateCharTerminal;
+
+// LL(1) table indexed by nonterminal and terminal ids, a rule is chosen with one array lookup
+public class ParseTable {
+	
+	public static final int NO_RULE = -1;
+	
+	private static final int MAGIC = 0x50544142;
+	private static final int VERSION = 3;
+	
+	private final List<Rule> rules;
+	
+	private final Map<NonTerminal, Integer> nonTerminalIds = new HashMap<>();
+	
+	private final NonTerminal[] nonTerminals;
+	
+	private final int columns;
+	
+	private final int[] table;
+	
+	// Expansions as symbol ids in reverse order, ready to be pushed onto the stack
+	private final int[][] reversedExpansions;
+	
+	private final int[] ruleNonTerminals;
+	
+	private final Map<Integer, Terminal> terminals = new HashMap<>();
+	
+	private final boolean[] lexical;
+	
+	// FOLLOW of each nonterminal by terminal id
+	private final BitSet[] follow;
+	
+	public ParseTable(List<Rule> rules, Table<NonTerminal, Terminal, Rule> ruleTable) {
+		this(rules, ruleTable, nt -> Collections.emptySet());
+	}
+	
+	public ParseTable(List<Rule> rules, Table<NonTerminal, Terminal, Rule> ruleTable, Function<NonTerminal, Set<Terminal>> follow) {
+		this(rules, columnsOf(ruleTable));
+		
+		for (Table.Cell<NonTerminal, Terminal, Rule> cell : ruleTable.cellSet()) {
+			table[getNonTerminalId(cell.getRowKey()) * columns + cell.getColumnKey().getId()] = rules.indexOf(cell.getValue());
+		}
+		for (int nt = 0; nt < nonTerminals.length; nt++) {
+			for (Terminal terminal : follow.apply(nonTerminals[nt])) {
+				this.follow[nt].set(terminal.getId());
+			}
+		}
+	}
+	
+	private static int columnsOf(Table<NonTerminal, Terminal, Rule> ruleTable) {
+		int maxId = 0;
+		for (Terminal terminal : ruleTable.columnKeySet()) {
+			maxId = Math.max(maxId, terminal.getId());
+		}
+		return maxId + 1;
+	}
+	
+	// Empty table, to be filled in by the public constructor or by read
+	private ParseTable(List<Rule> rules, int columns) {
+		this.rules = rules;
+		this.columns = columns;
+		
+		for (Rule rule : rules) {
+			if (!nonTerminalIds.containsKey(rule.getRuleOf())) {
+				nonTerminalIds.put(rule.getRuleOf(), nonTerminalIds.size());
+			}
+		}
+		nonTerminals = new NonTerminal[nonTerminalIds.size()];
+		nonTerminalIds.forEach((nt, id) -> nonTerminals[id] = nt);
+		
+		table = new int[nonTerminals.length * columns];
+		Arrays.fill(table, NO_RULE);
+		follow = new BitSet[nonTerminals.length];
+		for (int nt = 0; nt < follow.length; nt++) {
+			follow[nt] = new BitSet(columns);
+		}
+		
+		reversedExpansions = new int[rules.size()][];
+		ruleNonTerminals = new int[rules.size()];
+		for (int r = 0; r < rules.size(); r++) {
+			ruleNonTerminals[r] = getNonTerminalId(rules.get(r).getRuleOf());
+			List<GrammaticalUnit> expansion = rules.get(r).getExpansion();
+			int[] symbols = new int[expansion.size()];
+			for (int i = 0; i < symbols.length; i++) {
+				symbols[symbols.length - 1 - i] = symbolOf(expansion.get(i));
+			}
+			reversedExpansions[r] = symbols;
+		}
+		
+		lexical = findLexical();
+	}
+	
+	// Identifies the rules, a table is only read for the rules it was written for
+	public static long fingerprint(List<Rule> rules) {
+		StringBuilder builder = new StringBuilder();
+		for (Rule rule : rules) {
+			builder.append(rule).append('\n');
+		}
+		// FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : builder.toString().getBytes(StandardCharsets.UTF_8)) {
+			hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+	// Terminals are written by name, their ids depend on the order they were created in
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeLong(fingerprint(rules));
+		data.writeInt(nonTerminals.length);
+		data.writeInt(columns);
+		// Terminals in FOLLOW sets need not have a column
+		int names = columns;
+		for (BitSet terminals : follow) {
+			names = Math.max(names, terminals.length());
+		}
+		data.writeInt(names);
+		for (int terminal = 0; terminal < names; terminal++) {
+			Terminal known = terminal == Terminal.DOLLAR.getId() ? Terminal.DOLLAR : terminals.get(terminal);
+			data.writeUTF(known == null ? "" : known.toString());
+		}
+		// Most cells are empty, only the others are written by their column
+		for (int nt = 0; nt < nonTerminals.length; nt++) {
+			int cells = 0;
+			for (int terminal = 0; terminal < columns; terminal++) {
+				if (table[nt * columns + terminal] != NO_RULE) {
+					cells++;
+				}
+			}
+			data.writeInt(cells);
+			for (int terminal = 0; terminal < columns; terminal++) {
+				if (table[nt * columns + terminal] != NO_RULE) {
+					data.writeInt(terminal);
+					data.writeInt(table[nt * columns + terminal]);
+				}
+			}
+		}
+		for (BitSet terminals : follow) {
+			data.writeInt(terminals.cardinality());
+			for (int terminal = terminals.nextSetBit(0); terminal >= 0; terminal = terminals.nextSetBit(terminal + 1)) {
+				data.writeInt(terminal);
+			}
+		}
+		data.flush();
+	}
+	
+	// Reads a table written for the same rules, fails with an IOException for any other
+	public static ParseTable read(List<Rule> rules, InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+			throw new IOException("Not a parse table of this version");
+		}
+		if (data.readLong() != fingerprint(rules)) {
+			throw new IOException("Parse table of other rules");
+		}
+		int nonTerminals = data.readInt();
+		int columns = data.readInt();
+		int names = data.readInt();
+		
+		// Written terminal ids to the ones of this run
+		ParseTable empty = new ParseTable(rules, 0);
+		Map<String, Integer> ids = new HashMap<>();
+		empty.terminals.forEach((id, terminal) -> ids.put(terminal.toString(), id));
+		ids.put(Terminal.DOLLAR.toString(), Terminal.DOLLAR.getId());
+		int[] columnIds = new int[names];
+		for (int terminal = 0; terminal < names; terminal++) {
+			String name = data.readUTF();
+			Integer id = ids.get(name);
+			if (!name.isEmpty() && id == null) {
+				throw new IOException("Parse table with unknown terminal " + name);
+			}
+			columnIds[terminal] = name.isEmpty() ? -1 : id;
+		}
+		if (nonTerminals != empty.nonTerminals.length) {
+			throw new IOException("Parse table of other rules");
+		}
+		
+		int[][] cells = new int[nonTerminals][];
+		int maxId = 0;
+		for (int nt = 0; nt < nonTerminals; nt++) {
+			cells[nt] = new int[data.readInt() * 2];
+			for (int i = 0; i < cells[nt].length; i += 2) {
+				int terminal = data.readInt();
+				if (terminal < 0 || terminal >= columns || columnIds[terminal] < 0) {
+					throw new IOException("Parse table with unknown terminal " + terminal);
+				}
+				int rule = data.readInt();
+				// A cell expands the nonterminal of its row
+				if (rule < 0 || rule >= rules.size() || empty.getRuleNonTerminal(rule) != nt) {
+					throw new IOException("Parse table with rule " + rule + " in the row of " + empty.getNonTerminal(nt));
+				}
+				cells[nt][i] = columnIds[terminal];
+				cells[nt][i + 1] = rule;
+				maxId = Math.max(maxId, cells[nt][i]);
+			}
+		}
+		ParseTable parseTable = new ParseTable(rules, maxId + 1);
+		for (int nt = 0; nt < nonTerminals; nt++) {
+			for (int i = 0; i < cells[nt].length; i += 2) {
+				parseTable.table[nt * parseTable.columns + cells[nt][i]] = cells[nt][i + 1];
+			}
+		}
+		for (int nt = 0; nt < nonTerminals; nt++) {
+			int count = data.readInt();
+			for (int i = 0; i < count; i++) {
+				int terminal = data.readInt();
+				if (terminal < 0 || terminal >= names || columnIds[terminal] < 0) {
+					throw new IOException("Parse table with unknown terminal " + terminal);
+				}
+				parseTable.follow[nt].set(columnIds[terminal]);
+			}
+		}
+		return parseTable;
+	}
+	
+	// Nonterminals deriving nothing but character classes, that is text
+	private boolean[] findLexical() {
+		boolean[] lexical = new boolean[nonTerminals.length];
+		Arrays.fill(lexical, true);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int r = 0; r < reversedExpansions.length; r++) {
+				int nt = ruleNonTerminals[r];
+				if (!lexical[nt]) {
+					continue;
+				}
+				for (int symbol : reversedExpansions[r]) {
+					boolean text = isTerminal(symbol)
+						? terminals.get(symbol) instanceof PredicateCharTerminal
+						: lexical[~symbol];
+					if (!text) {
+						lexical[nt] = false;
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+		return lexical;
+	}
+	
+	// Terminals are represented by their ids, nonterminals by the complement of theirs
+	private int symbolOf(GrammaticalUnit unit) {
+		if (unit instanceof Terminal) {
+			terminals.put(((Terminal) unit).getId(), (Terminal) unit);
+			return ((Terminal) unit).getId();
+		}
+		int id = getNonTerminalId((NonTerminal) unit);
+		if (id < 0) {
+			throw new IllegalArgumentException("Nonterminal " + unit + " has no rules");
+		}
+		return ~id;
+	}
+	
+	public int getSymbolId(GrammaticalUnit unit) {
+		if (unit instanceof Terminal) {
+			return ((Terminal) unit).getId();
+		}
+		int id = getNonTerminalId((NonTerminal) unit);
+		if (id < 0) {
+			throw new IllegalArgumentException("Nonterminal " + unit + " has no rules");
+		}
+		return ~id;
+	}
+	
+	public static boolean isTerminal(int symbol) {
+		return symbol >= 0;
+	}
+	
+	public int getStartSymbol() {
+		return ~0;
+	}
+	
+	public int[] getReversedExpansion(int ruleId) {
+		return reversedExpansions[ruleId];
+	}
+	
+	public GrammaticalUnit getSymbol(int symbol) {
+		return isTerminal(symbol) ? terminals.get(symbol) : nonTerminals[~symbol];
+	}
+	
+	public int getRuleId(int nonTerminal, int terminal) {
+		if (terminal < 0 || terminal >= columns) {
+			return NO_RULE;
+		}
+		return table[nonTerminal * columns + terminal];
+	}
+	
+	public boolean canFollow(int nonTerminal, int terminal) {
+		return follow[nonTerminal].get(terminal);
+	}
+	
+	public Rule getRule(int ruleId) {
+		return rules.get(ruleId);
+	}
+	
+	public int getRuleCount() {
+		return rules.size();
+	}
+	
+	public boolean isLexical(int nonTerminal) {
+		return lexical[nonTerminal];
+	}
+	
+	public int getRuleNonTerminal(int ruleId) {
+		return ruleNonTerminals[ruleId];
+	}
+	
+	public int getNonTerminalId(NonTerminal nonTerminal) {
+		Integer id = nonTerminalIds.get(nonTerminal);
+		return id == null ? -1 : id;
+	}
+	
+	public NonTerminal getNonTerminal(int id) {
+		return nonTerminals[id];
+	}
+	
+	public int getNonTerminalCount() {
+		return nonTerminals.length;
+	}
+	
+	public int getTerminalCount() {
+		return columns;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(table);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ParseTable))
+			return false;
+		ParseTable other = (ParseTable) obj;
+		return rules.equals(other.rules) && columns == other.columns && Arrays.equals(table, other.table)
+				&& Arrays.equals(follow, other.follow);
+	}
+	
+}
@@ -0,0 +1,31 @@
+package parsing;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import lexicalanalysis.FirstFollow;
+
+// Run by the build to compile the built-in grammar into a resource next to it, so that a starting JVM
+// does not have to compute FIRST and FOLLOW sets
+public class ParseTableGenerator {
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("Usage: ParseTableGenerator classes-directory");
+			System.exit(1);
+		}
+		
+		Path file = Paths.get(args[0], "parsing", Grammar.PARSE_TABLE_RESOURCE);
+		Files.createDirectories(file.getParent());
+		// Computed anew, the table in the resource could be out of date
+		ParseTable parseTable = new FirstFollow(Grammar.html().getRules()).compileRuleTable();
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+			parseTable.write(out);
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+package parsing;
+
+import java.util.Arrays;
+
+// Parse tree kept in parallel arrays, a node is an index and -1 stands for no node
+public class ParseTree {
+	
+	public interface Visitor {
+		
+		public void enter(ParseTree tree, int node);
+		
+		public default void leave(ParseTree tree, int node) {
+		}
+	
+	}
+	
+	private final ParseTable parseTable;
+	
+	private int size = 0;
+	
+	private int[] rule;
+	private int[] parent;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] lastChild;
+	private long[] start;
+	private long[] end;
+	
+	ParseTree(ParseTable parseTable, int capacity) {
+		this.parseTable = parseTable;
+		rule = new int[capacity];
+		parent = new int[capacity];
+		firstChild = new int[capacity];
+		nextSibling = new int[capacity];
+		lastChild = new int[capacity];
+		start = new long[capacity];
+		end = new long[capacity];
+	}
+	
+	int add(int ruleId, int parentNode, long position) {
+		if (size == rule.length) {
+			int capacity = rule.length * 2;
+			rule = Arrays.copyOf(rule, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			lastChild = Arrays.copyOf(lastChild, capacity);
+			start = Arrays.copyOf(start, capacity);
+			end = Arrays.copyOf(end, capacity);
+		}
+		
+		int node = size++;
+		rule[node] = ruleId;
+		parent[node] = parentNode;
+		firstChild[node] = -1;
+		nextSibling[node] = -1;
+		lastChild[node] = -1;
+		start[node] = position;
+		end[node] = position;
+		
+		if (parentNode >= 0) {
+			if (lastChild[parentNode] < 0) {
+				firstChild[parentNode] = node;
+			} else {
+				nextSibling[lastChild[parentNode]] = node;
+			}
+			lastChild[parentNode] = node;
+		}
+		return node;
+	}
+	
+	void setEnd(int node, long position) {
+		end[node] = Math.max(start[node], position);
+	}
+	
+	// Drops the spare capacity and the arrays only needed while building
+	void trim() {
+		rule = Arrays.copyOf(rule, size);
+		parent = Arrays.copyOf(parent, size);
+		firstChild = Arrays.copyOf(firstChild, size);
+		nextSibling = Arrays.copyOf(nextSibling, size);
+		start = Arrays.copyOf(start, size);
+		end = Arrays.copyOf(end, size);
+		lastChild = null;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int getRoot() {
+		return size > 0 ? 0 : -1;
+	}
+	
+	public int getRuleId(int node) {
+		return rule[node];
+	}
+	
+	public Rule getRule(int node) {
+		return parseTable.getRule(rule[node]);
+	}
+	
+	public NonTerminal getNonTerminal(int node) {
+		return parseTable.getRule(rule[node]).getRuleOf();
+	}
+	
+	public int getParent(int node) {
+		return parent[node];
+	}
+	
+	public int getFirstChild(int node) {
+		return firstChild[node];
+	}
+	
+	public int getNextSibling(int node) {
+		return nextSibling[node];
+	}
+	
+	public long getStart(int node) {
+		return start[node];
+	}
+	
+	public long getEnd(int node) {
+		return end[node];
+	}
+	
+	public CharSequence getText(int node, CharSequence source) {
+		return source.subSequence((int) start[node], (int) end[node]);
+	}
+	
+	// Depth-first walk without recursion, so deep documents do not exhaust the thread stack
+	public void walk(Visitor visitor) {
+		int node = getRoot();
+		while (node >= 0) {
+			visitor.enter(this, node);
+			if (firstChild[node] >= 0) {
+				node = firstChild[node];
+				continue;
+			}
+			while (node >= 0) {
+				visitor.leave(this, node);
+				if (nextSibling[node] >= 0) {
+					node = nextSibling[node];
+					break;
+				}
+				node = parent[node];
+			}
+		}
+	}
+	
+	public long memoryUsage() {
+		return (long) rule.length * (4 * Integer.BYTES + 2 * Long.BYTES)
+			+ (lastChild == null ? 0 : (long) lastChild.length * Integer.BYTES);
+	}
+
+}
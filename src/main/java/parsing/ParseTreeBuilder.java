@@ -0,0 +1,106 @@
+package parsing;
+
+import java.util.Arrays;
+
+import lexicalanalysis.Token;
+
+// Builds a ParseTree from the parser's events. Text is not kept per character - nonterminals
+// deriving only character classes (content, word, char) fold into a single node spanning the
+// text, and right-recursive lists (bodytags, tablerows, ...) into one node per list.
+public class ParseTreeBuilder implements ParseListener {
+	
+	private final ParseTable parseTable;
+	
+	private final ParseTree tree;
+	
+	// Expansions still being consumed - their node, nonterminal, the symbols left and the number
+	// of ancestors that end together with them, since the node was the last symbol of theirs
+	private int[] openNode = new int[64];
+	private int[] openNonTerminal = new int[64];
+	private int[] openRemaining = new int[64];
+	private int[] openPending = new int[64];
+	private int openDepth = 0;
+	
+	private long lastEnd = 0;
+	
+	public ParseTreeBuilder() {
+		this(Parser.getParseTable(), 1024);
+	}
+	
+	public ParseTreeBuilder(ParseTable parseTable, int expectedNodes) {
+		this.parseTable = parseTable;
+		this.tree = new ParseTree(parseTable, Math.max(expectedNodes, 16));
+	}
+	
+	private void push(int node, int nonTerminal, int remaining, int pending) {
+		if (openDepth == openNode.length) {
+			int capacity = openNode.length * 2;
+			openNode = Arrays.copyOf(openNode, capacity);
+			openNonTerminal = Arrays.copyOf(openNonTerminal, capacity);
+			openRemaining = Arrays.copyOf(openRemaining, capacity);
+			openPending = Arrays.copyOf(openPending, capacity);
+		}
+		openNode[openDepth] = node;
+		openNonTerminal[openDepth] = nonTerminal;
+		openRemaining[openDepth] = remaining;
+		openPending[openDepth] = pending;
+		openDepth++;
+	}
+	
+	private void closeCompleted() {
+		while (openDepth > 0 && openRemaining[openDepth - 1] == 0) {
+			openDepth--;
+			int node = openNode[openDepth];
+			tree.setEnd(node, lastEnd);
+			for (int i = openPending[openDepth]; i > 0; i--) {
+				node = tree.getParent(node);
+				tree.setEnd(node, lastEnd);
+			}
+		}
+	}
+	
+	@Override
+	public void expand(int ruleId, Token token, long position) {
+		int nt = parseTable.getRuleNonTerminal(ruleId);
+		int length = parseTable.getReversedExpansion(ruleId).length;
+		
+		if (openDepth == 0) {
+			push(tree.add(ruleId, -1, position), nt, length, 0);
+			closeCompleted();
+			return;
+		}
+		
+		int top = openDepth - 1;
+		int parentNt = openNonTerminal[top];
+		boolean collapse = nt == parentNt || (parseTable.isLexical(nt) && parseTable.isLexical(parentNt));
+		int node = collapse ? openNode[top] : tree.add(ruleId, openNode[top], position);
+		
+		// The last symbol of an expansion takes the place of its parent
+		int pending = 0;
+		if (--openRemaining[top] == 0) {
+			pending = collapse ? openPending[top] : openPending[top] + 1;
+			openDepth--;
+		}
+		
+		push(node, nt, length, pending);
+		closeCompleted();
+	}
+	
+	@Override
+	public void consume(Token token, long position, long end) {
+		lastEnd = end;
+		openRemaining[openDepth - 1]--;
+		closeCompleted();
+	}
+	
+	// Nodes still open after a rejected document end where the input was consumed
+	public ParseTree getTree() {
+		while (openDepth > 0) {
+			openRemaining[openDepth - 1] = 0;
+			closeCompleted();
+		}
+		tree.trim();
+		return tree;
+	}
+
+}
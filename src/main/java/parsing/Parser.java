@@ -2,164 +2,618 @@ package parsing;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map.Entry;
-
-import com.google.common.collect.Table;
 
+import jdk.jfr.FlightRecorder;
 import lexicalanalysis.FirstFollow;
 import lexicalanalysis.GrammaticalUnit;
 import lexicalanalysis.InvalidTokenException;
-import lexicalanalysis.Terminal;
+import lexicalanalysis.Terminal.PredicateCharTerminal;
 import lexicalanalysis.Token;
 import lexicalanalysis.TokenStream;
 
 public class Parser implements Closeable, AutoCloseable {
 	
-	private static Terminal t(String text) {
-		return Terminal.newLiteralTerminal(text);
+	// Only computed when the parse table was not compiled during the build, or once asked for
+	public static FirstFollow getFirstFollow() {
+		return Grammar.html().getFirstFollow();
 	}
 	
-	private static NonTerminal n(String name) {
-		return NonTerminal.withName(name);
+	public static ParseTable getParseTable() {
+		return Grammar.html().getParseTable();
 	}
 	
-	public static FirstFollow getFirstFollow() {
-		return firstFollow;
+	public static List<Rule> getRules() {
+		return Grammar.html().getRules();
 	}
 	
-	private final static Table<NonTerminal, Terminal, Rule> ruleTable;
-	private final static List<Rule> ruleList = new ArrayList<>();
-	private static FirstFollow firstFollow;
-	static {
-		
-		ruleList.add(Rule.define("htmldocument", t("<html>"), n("documenthead"), n("documentbody"), t("</html>")));
-		ruleList.add(Rule.define("documenthead", t("<head>"), n("headertags"), t("</head>")));
-		ruleList.add(Rule.define("headertags", n("headertag"), n("headertags")));
-		ruleList.add(Rule.define("headertags"));
-		ruleList.add(Rule.define("headertag", n("titletag")));
-		ruleList.add(Rule.define("headertag", n("metatag")));
-		ruleList.add(Rule.define("titletag", t("<title>"), n("content"), t("</title>")));
-		ruleList.add(Rule.define("metatag", t("<meta"), t("name="), n("word"), t("content="), n("word"), t(">")));
-		ruleList.add(Rule.define("documentbody", t("<body>"), n("bodytags"), t("</body>")));
-		ruleList.add(Rule.define("bodytags", n("bodytag"), n("bodytags")));
-		ruleList.add(Rule.define("bodytags"));
-		ruleList.add(Rule.define("bodytag", n("table")));
-		ruleList.add(Rule.define("bodytag", n("list")));
-		ruleList.add(Rule.define("bodytag", n("paragraph")));
-		ruleList.add(Rule.define("bodytag", n("content")));
-		ruleList.add(Rule.define("paragraph", t("<p>"),n("bodytags"),n("paragraphend")));
-		ruleList.add(Rule.define("paragraphend", t("</p>")));
-		ruleList.add(Rule.define("paragraphend"));
-		ruleList.add(Rule.define("table",t("<table>"),n("tablerows"), t("</table>")));
-		ruleList.add(Rule.define("tablerows",n("tablerow"),n("tablerows")));
-		ruleList.add(Rule.define("tablerows"));
-		ruleList.add(Rule.define("tablerow",t("<tr>"),n("tablecells"),t("</tr>")));
-		ruleList.add(Rule.define("tablecells",n("tablecell"),n("tablecells")));
-		ruleList.add(Rule.define("tablecells"));
-		ruleList.add(Rule.define("tablecell",t("<td>"),n("bodytags"),n("tablecellend")));
-		ruleList.add(Rule.define("tablecellend",t("</td>")));
-		ruleList.add(Rule.define("tablecellend"));
-		ruleList.add(Rule.define("list",n("unordered")));
-		ruleList.add(Rule.define("list",n("ordered")));
-		ruleList.add(Rule.define("list",n("definitionlist")));
-		ruleList.add(Rule.define("unordered",t("<ul>"),n("listitems"),t("</ul>")));
-		ruleList.add(Rule.define("ordered",t("<ol>"),n("listitems"),t("</ol>")));
-		ruleList.add(Rule.define("listitems",t("<li>"),n("bodytag"),n("listitems")));
-		ruleList.add(Rule.define("listitems"));
-		ruleList.add(Rule.define("definitionlist",t("<dl>"),n("defterms"),t("</dl>")));
-		ruleList.add(Rule.define("defterms",n("defterm"),n("defterms")));
-		ruleList.add(Rule.define("defterms"));
-		ruleList.add(Rule.define("defterm",t("<dt>"),n("bodytag")));
-		ruleList.add(Rule.define("defterm",t("<dd>"),n("bodytag")));
-		ruleList.add(Rule.define("content", n("word")));
-		ruleList.add(Rule.define("content"));
-		ruleList.add(Rule.define("word", n("char"), n("content")));
-		ruleList.add(Rule.define("char", TokenStream.LETTER));
-		ruleList.add(Rule.define("char", TokenStream.DIGIT));
-		ruleList.add(Rule.define("char", TokenStream.OTHERSYMBOL));
-		
-		firstFollow = new FirstFollow(ruleList);
-		ruleTable = firstFollow.createRuleTable();
-		
+	// Time taken to load the parse table, or to build FIRST and FOLLOW sets and the table
+	public static long getGrammarNanos() {
+		return Grammar.html().getGrammarNanos();
 	}
+	
+	private final Grammar grammar;
+	
+	private final ParseTable parseTable;
+	
+	private final int[] cycles;
 
 	private final TokenStream tokenStream;
 	
-	private final List<GrammaticalUnit> stack = new ArrayList<>();
+	// Symbol ids as given by the parse table, the top of the stack is at depth - 1
+	private int[] stack = new int[64];
+	private int depth = 0;
 	
 	private Token lastToken;
+	private long lastTokenPosition;
+	private long lastTokenEnd;
+	
+	// Set while runs of text are read as TEXT tokens, see Grammar.getTextTerminals
+	private boolean[][] textTerminals;
+	
+	private ParseMetrics metrics;
+
+	// Written each time the lookahead is checkpointInterval further on, see setCheckpoints
+	private Path checkpointFile;
+	private long checkpointInterval;
+	private long nextCheckpoint;
+	
+	// Counts before the checkpoint a parse was resumed from
+	private long resumedTokens = 0;
+	private long resumedExpansions = 0;
+	private List<ParseError> resumedErrors = Collections.emptyList();
 
 	public Parser(TokenStream tokenStream) {
+		this(tokenStream, Grammar.html());
+	}
+	
+	// The token stream has to lex the terminals of the grammar, as the one of Grammar.open does
+	public Parser(TokenStream tokenStream, Grammar grammar) {
+		this.tokenStream = tokenStream;
+		this.grammar = grammar;
+		this.parseTable = grammar.getParseTable();
+		this.cycles = grammar.getCycles();
+		stack[depth++] = parseTable.getStartSymbol();
+	}
+	
+	// Starts from the given symbols instead of the start symbol, the first one on top
+	Parser(TokenStream tokenStream, GrammaticalUnit... start) {
 		this.tokenStream = tokenStream;
-		stack.add(ruleList.get(0).getRuleOf());
+		this.grammar = Grammar.html();
+		this.parseTable = grammar.getParseTable();
+		this.cycles = grammar.getCycles();
+		for (int i = start.length - 1; i >= 0; i--) {
+			stack[depth++] = parseTable.getSymbolId(start[i]);
+		}
 	}
 	
-	private GrammaticalUnit take() {
-		return stack.remove(stack.size() - 1);
+	// Resumes from a stack saved by copyStack, the token stream has to start at the saved lookahead
+	Parser(TokenStream tokenStream, int[] stack) {
+		this(tokenStream, Grammar.html(), stack);
+	}
+	
+	private Parser(TokenStream tokenStream, Grammar grammar, int[] stack) {
+		this.tokenStream = tokenStream;
+		this.grammar = grammar;
+		this.parseTable = grammar.getParseTable();
+		this.cycles = grammar.getCycles();
+		this.stack = Arrays.copyOf(stack, Math.max(64, stack.length * 2));
+		this.depth = stack.length;
 	}
 	
+	// Reads a run of text as one token where the nonterminal on top takes each of its characters back to itself
 	private void consume() throws IOException, InvalidTokenException {
-		lastToken = tokenStream.read();
+		boolean[] text = null;
+		if (textTerminals != null && depth > 0 && !ParseTable.isTerminal(stack[depth - 1]) && ~stack[depth - 1] < textTerminals.length) {
+			text = textTerminals[~stack[depth - 1]];
+		}
+		read(text);
+	}
+	
+	private void read(boolean[] textTerminals) throws IOException, InvalidTokenException {
+		// Read again on the next step, should the token turn out to be invalid
+		lastToken = null;
+		lastToken = tokenStream.read(textTerminals);
+		lastTokenPosition = tokenStream.getTokenPosition();
+		lastTokenEnd = lastToken == Token.TEXT ? tokenStream.getTextRun().getEnd() : tokenStream.getPosition();
 	}
 	
-	private void expand(Rule rule) {
-		List<GrammaticalUnit> expansion = rule.getExpansion();
-		for (int i = expansion.size() - 1 ; i >= 0; i--) {
-			stack.add(expansion.get(i));
+	// Has runs of text read as single TEXT tokens where the nonterminal on top takes every character of them
+	// back to itself, content in the grammar of HTML. A run is consumed in one step and counted as one token,
+	// so the counts are lower than without runs, results and the events of a ParseHandler stay the same.
+	public void setTextRuns(boolean textRuns) {
+		textTerminals = textRuns ? grammar.getTextTerminals() : null;
+	}
+	
+	private void expand(int ruleId) {
+		int[] expansion = parseTable.getReversedExpansion(ruleId);
+		if (depth + expansion.length > stack.length) {
+			stack = Arrays.copyOf(stack, Math.max(stack.length * 2, depth + expansion.length));
 		}
+		System.arraycopy(expansion, 0, stack, depth, expansion.length);
+		depth += expansion.length;
 	}
 	
-	public ParseStep step() throws ParseException, IOException, InvalidTokenException {
+	// Elements reported to a ParseHandler end with a marker on the stack, beyond the nonterminal ids
+	private boolean markers = false;
+	private int[] elements = new int[64];
+	private long[] elementStarts = new long[64];
+	private int elementDepth = 0;
+	private long consumedEnd = 0;
+	
+	private boolean startElement(int nonTerminal, long position) {
+		int marker = ~(parseTable.getNonTerminalCount() + nonTerminal);
+		
+		// A list continued by its last symbol stays one element, so does text in text
+		if (depth > 0 && stack[depth - 1] == marker) {
+			return false;
+		}
+		if (elementDepth > 0 && parseTable.isLexical(nonTerminal) && parseTable.isLexical(elements[elementDepth - 1])) {
+			return false;
+		}
+		
+		if (depth == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[depth++] = marker;
+		if (elementDepth == elements.length) {
+			elements = Arrays.copyOf(elements, elements.length * 2);
+			elementStarts = Arrays.copyOf(elementStarts, elements.length);
+		}
+		elements[elementDepth] = nonTerminal;
+		elementStarts[elementDepth] = position;
+		elementDepth++;
+		return true;
+	}
+	
+	static final int CONSUMED = 0;
+	static final int EXPANDED = 1;
+	static final int ACCEPTED = 2;
+	static final int ENDED = 3;
+	
+	// Token and rule of the last step taken by next()
+	private Token stepToken;
+	private long stepPosition;
+	private long stepEnd;
+	private int stepRuleId;
+	private boolean stepStarted;
+	private int stepNonTerminal;
+	
+	int next() throws ParseException, IOException, InvalidTokenException {
 		
 		if (lastToken == null) {
 			consume();
 		}
 		Token token = lastToken;
+		stepToken = token;
+		stepPosition = lastTokenPosition;
+		stepEnd = lastTokenEnd;
 		
-		boolean terminalMode = stack.isEmpty();
-		GrammaticalUnit bottomOfStack = null;
-		if (!terminalMode) {
-			bottomOfStack = take();
-			terminalMode = bottomOfStack instanceof Terminal;
+		if (token == Token.TEXT) {
+			// content ; text (Z) - read only for a nonterminal on top that each character leaves on top, its
+			// element starts with the run as it would with the first character
+			if (markers) {
+				stepNonTerminal = ~stack[--depth];
+				stepStarted = startElement(stepNonTerminal, stepPosition);
+				if (depth == stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[depth++] = ~stepNonTerminal;
+			}
+			if (metrics != null) {
+				metrics.countText(tokenStream.getTextRun().getLength());
+			}
+			consumedEnd = lastTokenEnd;
+			consume();
+			return CONSUMED;
 		}
 		
-		if (terminalMode) {			
-			if (token.equals(Token.EOF)) {
-				// # ; $ (A)
-				if (bottomOfStack == null) {
-					return ParseStep.accept();
-				}
-				// # ; term (X)
-				else {
-					throw new ParseException("Unexpected end of file at position " + tokenStream.getPosition() +  ".");
-				}
+		if (depth == 0) {
+			// # ; $ (A)
+			if (token == Token.EOF) {
+				return ACCEPTED;
+			}
+			throw new ParseException("Unexpected token " + token.toString() + ". Expected end of file.");
+		}
+		
+		int symbol = stack[--depth];
+		if (ParseTable.isTerminal(symbol)) {
+			// # ; term (X)
+			if (token == Token.EOF) {
+				throw new ParseException("Unexpected end of file at position " + tokenStream.getPosition() +  ".");
 			}
 			
 			// term1 ; term1 (Z)
-			if (((Terminal) bottomOfStack).test(lastToken.getText())) {
+			if (symbol == token.getTerminalId()) {
+				if (metrics != null) {
+					metrics.countToken(symbol);
+				}
+				consumedEnd = lastTokenEnd;
 				consume();
-				return ParseStep.consume(token);
+				return CONSUMED;
 			}
 			// term1 ; term2 (X)
 			else {
-				throw new ParseException("Unexpected token " + token.toString() + ". Expected " + bottomOfStack.toString() + ".");
+				throw new ParseException("Unexpected token " + token.toString() + ". Expected " + parseTable.getSymbol(symbol).toString() + ".");
 			}
 		}
 
-		for (Entry<Terminal, Rule> entry : ruleTable.row((NonTerminal) bottomOfStack).entrySet()) {
-			Rule rule = entry.getValue();
-			// non-term ; term
-			if (entry.getKey().test(token.getText())) {
-				expand(entry.getValue());
-				return ParseStep.expand(rule, token);
+		int nt = ~symbol;
+		if (nt >= parseTable.getNonTerminalCount()) {
+			// end of element
+			elementDepth--;
+			stepNonTerminal = elements[elementDepth];
+			stepEnd = Math.max(elementStarts[elementDepth], consumedEnd);
+			return ENDED;
+		}
+		
+		// non-term ; term
+		int ruleId = parseTable.getRuleId(nt, token.getTerminalId());
+		if (ruleId != ParseTable.NO_RULE) {
+			stepStarted = markers && startElement(nt, stepPosition);
+			expand(ruleId);
+			if (metrics != null) {
+				metrics.countExpansion(ruleId, depth);
 			}
+			stepRuleId = ruleId;
+			return EXPANDED;
 		}
 		
-		throw new ParseException("No rule for nonterminal " + bottomOfStack.toString() + " and token " + token.toString());
+		throw new ParseException("No rule for nonterminal " + parseTable.getSymbol(symbol).toString() + " and token " + token.toString());
 		
 	}
+	
+	// Hands the step taken last by next() to the listener
+	void report(int kind, ParseListener listener) {
+		switch (kind) {
+		case CONSUMED:
+			listener.consume(stepToken, stepPosition, stepEnd);
+			break;
+		case EXPANDED:
+			listener.expand(stepRuleId, stepToken, stepPosition);
+			break;
+		case ACCEPTED:
+			listener.accept(stepPosition);
+			break;
+		default:
+			break;
+		}
+	}
+	
+	public ParseStep step() throws ParseException, IOException, InvalidTokenException {
+		switch (next()) {
+		case CONSUMED:
+			return ParseStep.consume(stepToken);
+		case EXPANDED:
+			return ParseStep.expand(parseTable.getRule(stepRuleId), stepToken);
+		default:
+			return ParseStep.accept();
+		}
+	}
+	
+	public ParseResult parse() throws IOException {
+		return parse((ParseListener) null);
+	}
+	
+	// Runs to the end of the document or the first error, steps are only reported to the listener
+	public ParseResult parse(ParseListener listener) throws IOException {
+		return parse(listener, 1);
+	}
+	
+	// Recovers from errors until maxErrors of them are found, skipped tokens are not reported
+	public ParseResult parse(ParseListener listener, int maxErrors) throws IOException {
+		DocumentEvent event = beginDocument();
+		long tokens = resumedTokens;
+		long expansions = resumedExpansions;
+		List<ParseError> errors = new ArrayList<>(resumedErrors);
+		boolean recovering = false;
+		while (true) {
+			try {
+				if (recovering) {
+					recover();
+					recovering = false;
+				}
+				// Not at a run of text, a resumed parse reads its lookahead by itself
+				if (checkpointFile != null && lastToken != null && lastToken != Token.TEXT && lastTokenPosition >= nextCheckpoint) {
+					new ParseCheckpoint(grammar, lastTokenPosition, lastToken, copyStack(), tokens, expansions, errors)
+							.write(checkpointFile, grammar);
+					nextCheckpoint = lastTokenPosition + checkpointInterval;
+				}
+				if (listener == null && metrics == null) {
+					// Same steps as next() would take, only counted
+					int cycle;
+					while ((cycle = cycle()) > 0) {
+						expansions += cycle;
+						consumedEnd = lastTokenEnd;
+						consume();
+						tokens++;
+					}
+				}
+				switch (next()) {
+				case CONSUMED:
+					tokens++;
+					if (listener != null) {
+						listener.consume(stepToken, stepPosition, stepEnd);
+					}
+					break;
+				case EXPANDED:
+					expansions++;
+					if (listener != null) {
+						listener.expand(stepRuleId, stepToken, stepPosition);
+					}
+					break;
+				default:
+					if (listener != null) {
+						listener.accept(stepPosition);
+					}
+					return endDocument(event, new ParseResult(errors, tokens, expansions));
+				}
+			} catch (InvalidTokenException e) {
+				errors.add(new ParseError(e.getPosition(), e.getMessage()));
+				if (errors.size() >= maxErrors) {
+					return endDocument(event, new ParseResult(errors, tokens, expansions));
+				}
+				tokenStream.skipCharacter();
+			} catch (ParseException e) {
+				errors.add(new ParseError(lastTokenPosition, e.getMessage()));
+				if (errors.size() >= maxErrors) {
+					return endDocument(event, new ParseResult(errors, tokens, expansions));
+				}
+				recovering = true;
+			}
+		}
+	}
+	
+	private int cycle() {
+		if (depth == 0 || lastToken == null || ParseTable.isTerminal(stack[depth - 1])) {
+			return 0;
+		}
+		int nt = ~stack[depth - 1];
+		int terminal = lastToken.getTerminalId();
+		int columns = parseTable.getTerminalCount();
+		if (nt >= parseTable.getNonTerminalCount() || terminal < 0 || terminal >= columns) {
+			return 0;
+		}
+		return cycles[nt * columns + terminal];
+	}
+	
+	// Lookahead position of the last recovery, to make sure the same error is not recovered from twice
+	private long recoveredAt = -1;
+	
+	// Panic mode - tokens are skipped until one fits a symbol on the stack, which is then uncovered:
+	// a terminal that matches, a nonterminal with a rule for the token, or a nonterminal the token can
+	// follow, which is taken as derived and popped as well
+	private void recover() throws IOException, InvalidTokenException {
+		PhaseEvent phase = beginPhase("recovery");
+		try {
+			skipToRecovery();
+		} finally {
+			endPhase(phase);
+		}
+	}
+	
+	private void skipToRecovery() throws IOException, InvalidTokenException {
+		// Tokens are read one by one, the stack is not the one they are parsed with
+		if (lastToken == null || (lastTokenPosition == recoveredAt && lastToken != Token.EOF)) {
+			read(null);
+		}
+		while (true) {
+			int terminal = lastToken.getTerminalId();
+			for (int i = depth - 1; i >= 0; i--) {
+				int symbol = stack[i];
+				if (ParseTable.isTerminal(symbol)) {
+					if (symbol == terminal) {
+						depth = i + 1;
+						recoveredAt = lastTokenPosition;
+						return;
+					}
+					continue;
+				}
+				int nt = ~symbol;
+				if (parseTable.getRuleId(nt, terminal) != ParseTable.NO_RULE) {
+					depth = i + 1;
+					recoveredAt = lastTokenPosition;
+					return;
+				}
+				if (parseTable.canFollow(nt, terminal)) {
+					depth = i;
+					recoveredAt = lastTokenPosition;
+					return;
+				}
+			}
+			if (lastToken == Token.EOF) {
+				depth = 0;
+				return;
+			}
+			read(null);
+		}
+	}
+	
+	// Runs to the end of the document or the first error, reporting elements as they start and end
+	public ParseResult parse(ParseHandler handler) throws IOException {
+		DocumentEvent event = beginDocument();
+		markers = true;
+		long tokens = 0;
+		long expansions = 0;
+		long textStart = -1;
+		long textEnd = -1;
+		try {
+			while (true) {
+				int kind = next();
+				
+				boolean run = kind == CONSUMED && stepToken == Token.TEXT;
+				boolean text = run || kind == CONSUMED && stepToken.getTerminal() instanceof PredicateCharTerminal;
+				boolean started = (kind == EXPANDED || run) && stepStarted;
+				if (textStart >= 0 && (started || !text && kind != EXPANDED)) {
+					handler.text(textStart, textEnd);
+					textStart = -1;
+				}
+				
+				switch (kind) {
+				case CONSUMED:
+					tokens++;
+					if (started) {
+						handler.startElement(parseTable.getNonTerminal(stepNonTerminal), stepPosition);
+					}
+					if (text) {
+						if (textStart < 0) {
+							textStart = stepPosition;
+						}
+						textEnd = stepEnd;
+					}
+					break;
+				case EXPANDED:
+					expansions++;
+					if (stepStarted) {
+						handler.startElement(parseTable.getNonTerminal(parseTable.getRuleNonTerminal(stepRuleId)), stepPosition);
+					}
+					break;
+				case ENDED:
+					handler.endElement(parseTable.getNonTerminal(stepNonTerminal), stepEnd);
+					break;
+				default:
+					return endDocument(event, new ParseResult(true, -1, null, tokens, expansions));
+				}
+			}
+		} catch (InvalidTokenException e) {
+			handler.error(e.getMessage(), e.getPosition());
+			return endDocument(event, new ParseResult(false, e.getPosition(), e.getMessage(), tokens, expansions));
+		} catch (ParseException e) {
+			handler.error(e.getMessage(), lastTokenPosition);
+			return endDocument(event, new ParseResult(false, lastTokenPosition, e.getMessage(), tokens, expansions));
+		}
+	}
+	
+	// Counters are only kept with metrics set, the steps are then taken one by one
+	public void setMetrics(ParseMetrics metrics) {
+		if (metrics != null && metrics.getParseTable() != parseTable) {
+			throw new IllegalArgumentException("Metrics of another grammar");
+		}
+		this.metrics = metrics;
+	}
+	
+	public ParseMetrics getMetrics() {
+		return metrics;
+	}
+	
+	private long documentStart;
+	private long documentPosition;
+	
+	// Loading the first event class takes long, events are only created once the flight recorder runs
+	static PhaseEvent beginPhase(String name) {
+		if (!FlightRecorder.isInitialized()) {
+			return null;
+		}
+		PhaseEvent phase = new PhaseEvent(name);
+		phase.begin();
+		return phase;
+	}
+	
+	static void endPhase(PhaseEvent phase) {
+		if (phase != null) {
+			phase.commit();
+		}
+	}
+	
+	private DocumentEvent beginDocument() {
+		DocumentEvent event = null;
+		if (FlightRecorder.isInitialized()) {
+			event = new DocumentEvent();
+			event.begin();
+		}
+		documentStart = System.nanoTime();
+		documentPosition = tokenStream.getPosition();
+		if (metrics != null) {
+			metrics.startDocument();
+		}
+		return event;
+	}
+	
+	private ParseResult endDocument(DocumentEvent event, ParseResult result) {
+		long bytes = tokenStream.getPosition() - documentPosition;
+		if (metrics != null) {
+			metrics.countDocument(bytes, System.nanoTime() - documentStart);
+		}
+		if (event == null) {
+			return result;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.bytes = bytes;
+			event.tokens = result.getTokens();
+			event.expansions = result.getExpansions();
+			event.errors = result.getErrors().size();
+			event.accepted = result.isAccepted();
+			event.maxStackDepth = metrics != null ? metrics.getDocumentStackDepth() : -1;
+			event.commit();
+		}
+		return result;
+	}
+	
+	// Has parse(listener, maxErrors) write a checkpoint to the file each time it has gone on by the interval,
+	// in positions of the token stream. Only the ones of TokenStream.open are offsets a parse can resume from.
+	public void setCheckpoints(Path file, long interval) {
+		checkpointFile = file;
+		checkpointInterval = interval;
+		nextCheckpoint = tokenStream.getPosition() + interval;
+	}
+	
+	// Goes on parsing the file from a checkpoint written by setCheckpoints, the counts and errors of the
+	// result include those from before. Fails when the file does not have the lookahead at the checkpoint.
+	public static Parser resume(Path source, ParseCheckpoint checkpoint, Grammar grammar) throws IOException {
+		Parser parser = new Parser(TokenStream.open(source, grammar.getTrie(), checkpoint.getPosition(), Files.size(source)),
+				grammar, checkpoint.getStack());
+		try {
+			parser.consume();
+		} catch (InvalidTokenException e) {
+			// No lookahead, which is checked below
+		} catch (IOException e) {
+			parser.close();
+			throw e;
+		}
+		if (parser.lastToken == null || parser.lastTokenPosition != checkpoint.getPosition() || !checkpoint.isLookahead(parser.lastToken)) {
+			parser.close();
+			throw new IOException("The source has changed since the checkpoint at position " + checkpoint.getPosition());
+		}
+		parser.resumedTokens = checkpoint.getTokens();
+		parser.resumedExpansions = checkpoint.getExpansions();
+		parser.resumedErrors = checkpoint.getErrors();
+		return parser;
+	}
+	
+	public Grammar getGrammar() {
+		return grammar;
+	}
+	
+	public int getStackDepth() {
+		return depth;
+	}
+	
+	int[] copyStack() {
+		return Arrays.copyOf(stack, depth);
+	}
+	
+	boolean stackEquals(int[] other) {
+		if (other.length != depth) {
+			return false;
+		}
+		for (int i = depth - 1; i >= 0; i--) {
+			if (stack[i] != other[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Start of the token read ahead, the position of the error once parsing has failed
+	long getLookaheadPosition() {
+		return lastTokenPosition;
+	}
 
 	@Override
 	public void close() throws IOException {
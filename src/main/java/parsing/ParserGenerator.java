@@ -0,0 +1,278 @@
+package parsing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.google.common.collect.Table;
+
+import lexicalanalysis.FirstFollow;
+import lexicalanalysis.GrammaticalUnit;
+import lexicalanalysis.Terminal;
+
+// Writes the source of a RecursiveDescentParser for a grammar, choosing rules the way its parse table does.
+// The parser of the built-in grammar is checked in, it has to be written again once the rules change:
+//
+//   java -cp target/classes:guava.jar parsing.ParserGenerator src/main/java
+public class ParserGenerator {
+	
+	static final String HTML_PARSER = "GeneratedHtmlParser";
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("Usage: ParserGenerator source-directory");
+			System.exit(1);
+		}
+		
+		Path file = Paths.get(args[0], "parsing", HTML_PARSER + ".java");
+		Files.createDirectories(file.getParent());
+		Files.write(file, generate(HTML_PARSER, Parser.getRules(), Parser.getFirstFollow()).getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private final StringBuilder source = new StringBuilder();
+	
+	private final List<Rule> rules;
+	
+	private final List<NonTerminal> nonTerminals = new ArrayList<>();
+	
+	private final List<Terminal> terminals = new ArrayList<>();
+	
+	// Columns each rule is chosen for
+	private final Map<Rule, TreeSet<Integer>> chosenFor = new HashMap<>();
+	
+	// Rules and positions in their expansions a parse goes on from once a nonterminal before them is done
+	private final List<int[]> continuations = new ArrayList<>();
+	
+	private ParserGenerator(List<Rule> rules, FirstFollow firstFollow) {
+		this.rules = rules;
+		for (Rule rule : rules) {
+			if (!nonTerminals.contains(rule.getRuleOf())) {
+				nonTerminals.add(rule.getRuleOf());
+			}
+			for (GrammaticalUnit unit : rule.getExpansion()) {
+				if (unit instanceof Terminal && !terminals.contains(unit)) {
+					terminals.add((Terminal) unit);
+				}
+			}
+		}
+		
+		Table<NonTerminal, Terminal, Rule> ruleTable = firstFollow.createRuleTable();
+		for (Table.Cell<NonTerminal, Terminal, Rule> cell : ruleTable.cellSet()) {
+			// Only $ is not in an expansion
+			if (!terminals.contains(cell.getColumnKey())) {
+				terminals.add(cell.getColumnKey());
+			}
+		}
+		for (Table.Cell<NonTerminal, Terminal, Rule> cell : ruleTable.cellSet()) {
+			chosenFor.computeIfAbsent(cell.getValue(), rule -> new TreeSet<>()).add(terminals.indexOf(cell.getColumnKey()));
+		}
+		
+		// A nonterminal at the end is pushed by itself
+		for (int r = 0; r < rules.size(); r++) {
+			List<GrammaticalUnit> expansion = rules.get(r).getExpansion();
+			for (int i = 1; i < expansion.size(); i++) {
+				if (expansion.get(i - 1) instanceof NonTerminal && !(i == expansion.size() - 1 && expansion.get(i) instanceof NonTerminal)
+						&& chosenFor.containsKey(rules.get(r))) {
+					continuations.add(new int[] { r, i });
+				}
+			}
+		}
+	}
+	
+	public static String generate(String className, List<Rule> rules, FirstFollow firstFollow) {
+		ParserGenerator generator = new ParserGenerator(rules, firstFollow);
+		generator.write(className);
+		return generator.source.toString();
+	}
+	
+	private void line(int indent, String text) {
+		for (int i = 0; i < indent; i++) {
+			source.append('\t');
+		}
+		source.append(text).append('\n');
+	}
+	
+	private static String constant(NonTerminal nt) {
+		return nt.getName().toUpperCase().replace('-', '_');
+	}
+	
+	private static String method(NonTerminal nt) {
+		String name = nt.getName().replace('-', '_');
+		return "parse" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+	
+	private String constant(int[] continuation) {
+		return constant(rules.get(continuation[0]).getRuleOf()) + "_" + continuation[0] + "_" + continuation[1];
+	}
+	
+	private String method(int[] continuation) {
+		return method(rules.get(continuation[0]).getRuleOf()) + continuation[0] + "From" + continuation[1];
+	}
+	
+	private int[] continuation(int rule, int position) {
+		for (int[] continuation : continuations) {
+			if (continuation[0] == rule && continuation[1] == position) {
+				return continuation;
+			}
+		}
+		throw new IllegalStateException("No continuation of rule " + rule + " from " + position);
+	}
+	
+	private static String literal(String text) {
+		return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+	
+	private void write(String className) {
+		line(0, "package parsing;");
+		line(0, "");
+		line(0, "import java.io.IOException;");
+		line(0, "");
+		line(0, "import lexicalanalysis.InvalidTokenException;");
+		line(0, "import lexicalanalysis.TokenStream;");
+		line(0, "");
+		line(0, "// Written by ParserGenerator, to be generated again rather than edited");
+		line(0, "public class " + className + " extends RecursiveDescentParser {");
+		line(1, "");
+		line(1, String.format("private static final long FINGERPRINT = 0x%016xL;", ParseTable.fingerprint(rules)));
+		line(1, "");
+		line(1, "// Names of the terminals by column");
+		line(1, "private static final String[] TERMINALS = {");
+		for (Terminal terminal : terminals) {
+			line(2, literal(terminal.toString()) + ",");
+		}
+		line(1, "};");
+		line(1, "");
+		for (int nt = 0; nt < nonTerminals.size(); nt++) {
+			line(1, "private static final int " + constant(nonTerminals.get(nt)) + " = " + nt + ";");
+		}
+		line(1, "");
+		line(1, "// Rests of expansions after a nonterminal, by rule and position");
+		for (int c = 0; c < continuations.size(); c++) {
+			line(1, "private static final int " + constant(continuations.get(c)) + " = " + (nonTerminals.size() + c) + ";");
+		}
+		line(1, "");
+		line(1, "public " + className + "(TokenStream tokenStream, Grammar grammar) {");
+		line(2, "super(tokenStream, columns(grammar, FINGERPRINT, TERMINALS), TERMINALS);");
+		line(1, "}");
+		line(1, "");
+		line(1, "@Override");
+		line(1, "protected void parseDocument() throws ParseException, IOException, InvalidTokenException {");
+		line(2, "run(" + constant(nonTerminals.get(0)) + ");");
+		line(1, "}");
+		line(1, "");
+		line(1, "@Override");
+		line(1, "protected int dispatch(int nonTerminal) throws ParseException, IOException, InvalidTokenException {");
+		line(2, "switch (nonTerminal) {");
+		for (NonTerminal nt : nonTerminals) {
+			line(2, "case " + constant(nt) + ":");
+			line(3, "return " + method(nt) + "();");
+		}
+		for (int[] continuation : continuations) {
+			line(2, "case " + constant(continuation) + ":");
+			line(3, "return " + method(continuation) + "();");
+		}
+		line(2, "default:");
+		line(3, "throw new IllegalArgumentException(\"No nonterminal \" + nonTerminal);");
+		line(2, "}");
+		line(1, "}");
+		for (NonTerminal nt : nonTerminals) {
+			writeMethod(nt);
+		}
+		for (int[] continuation : continuations) {
+			writeContinuation(continuation);
+		}
+		line(0, "");
+		line(0, "}");
+	}
+	
+	private void writeMethod(NonTerminal nt) {
+		List<Rule> ntRules = new ArrayList<>();
+		boolean selfTail = false;
+		for (Rule rule : rules) {
+			if (rule.getRuleOf() == nt) {
+				ntRules.add(rule);
+				selfTail |= loops(rule) && chosenFor.containsKey(rule);
+			}
+		}
+		
+		line(1, "");
+		for (Rule rule : ntRules) {
+			line(1, "// " + rule);
+		}
+		line(1, "private int " + method(nt) + "() throws ParseException, IOException, InvalidTokenException {");
+		// A tail call to the nonterminal itself loops
+		int indent = 2;
+		if (selfTail) {
+			line(2, "while (true) {");
+			indent = 3;
+		}
+		line(indent, "switch (lookahead()) {");
+		for (Rule rule : ntRules) {
+			if (!chosenFor.containsKey(rule)) {
+				continue;
+			}
+			for (int column : chosenFor.get(rule)) {
+				line(indent, "case " + column + ": // " + terminals.get(column));
+			}
+			line(indent + 1, "expand(" + rules.indexOf(rule) + ");");
+			writeExpansion(indent + 1, rules.indexOf(rule), 0, loops(rule));
+		}
+		line(indent, "default:");
+		line(indent + 1, "throw noRule(" + literal(nt.getName()) + ");");
+		line(indent, "}");
+		if (selfTail) {
+			line(2, "}");
+		}
+		line(1, "}");
+	}
+	
+	// Only terminals before the nonterminal of the rule itself at the end
+	private static boolean loops(Rule rule) {
+		List<GrammaticalUnit> expansion = rule.getExpansion();
+		for (int i = 0; i < expansion.size() - 1; i++) {
+			if (expansion.get(i) instanceof NonTerminal) {
+				return false;
+			}
+		}
+		return !expansion.isEmpty() && expansion.get(expansion.size() - 1) == rule.getRuleOf();
+	}
+	
+	private void writeContinuation(int[] continuation) {
+		Rule rule = rules.get(continuation[0]);
+		line(1, "");
+		line(1, "// " + rule + ", after " + rule.getExpansion().get(continuation[1] - 1));
+		line(1, "private int " + method(continuation) + "() throws ParseException, IOException, InvalidTokenException {");
+		writeExpansion(2, continuation[0], continuation[1], false);
+		line(1, "}");
+	}
+	
+	// Matches terminals up to a nonterminal, which is returned to be run next. What follows it is pushed
+	// to be run after it.
+	private void writeExpansion(int indent, int ruleId, int from, boolean loop) {
+		Rule rule = rules.get(ruleId);
+		List<GrammaticalUnit> expansion = rule.getExpansion();
+		for (int i = from; i < expansion.size(); i++) {
+			GrammaticalUnit unit = expansion.get(i);
+			if (unit instanceof Terminal) {
+				line(indent, "match(" + terminals.indexOf(unit) + ");");
+			} else if (i < expansion.size() - 1) {
+				boolean tail = i + 1 == expansion.size() - 1 && expansion.get(i + 1) instanceof NonTerminal;
+				line(indent, "push(" + (tail ? constant((NonTerminal) expansion.get(i + 1)) : constant(continuation(ruleId, i + 1))) + ");");
+				line(indent, "return " + constant((NonTerminal) unit) + ";");
+				return;
+			} else {
+				line(indent, loop ? "continue;" : "return " + constant((NonTerminal) unit) + ";");
+				return;
+			}
+		}
+		line(indent, "return END;");
+	}
+
+}
@@ -0,0 +1,21 @@
+package parsing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight recorder event for a step other than parsing a document - building the grammar,
+// scanning a document for split points, recovering from an error
+@Name("parsing.Phase")
+@Label("Parser Phase")
+@Category("Parser")
+class PhaseEvent extends jdk.jfr.Event {
+	
+	@Label("Phase")
+	String phase;
+	
+	PhaseEvent(String phase) {
+		this.phase = phase;
+	}
+	
+}
@@ -0,0 +1,105 @@
+package parsing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import lexicalanalysis.InvalidTokenException;
+import lexicalanalysis.PushTokenStream;
+
+// Parses a document that is handed to it in chunks, for input that arrives without a thread waiting
+// for it - one thread can feed any number of them. Every chunk is parsed for as long as the tokens
+// in it go, a token that could go on in the next chunk waits in the token stream. Stops at the first error.
+public class PushParser {
+	
+	public enum Status {
+		NEED_MORE_INPUT, ACCEPTED, REJECTED
+	}
+	
+	private final PushTokenStream tokenStream;
+	
+	private final Parser parser;
+	
+	private final ParseListener listener;
+	
+	private long tokens = 0;
+	
+	private long expansions = 0;
+	
+	private ParseResult result;
+	
+	public PushParser() {
+		this(Grammar.html(), null);
+	}
+	
+	// Steps are reported to the listener as they are taken, it may be null
+	public PushParser(Grammar grammar, ParseListener listener) {
+		this.tokenStream = new PushTokenStream(grammar.getTrie());
+		this.parser = new Parser(tokenStream, grammar);
+		this.listener = listener;
+	}
+	
+	// Takes the whole chunk, once the document is accepted or rejected the rest of the input is ignored
+	public Status feed(ByteBuffer chunk) {
+		if (result != null) {
+			chunk.position(chunk.limit());
+			return getStatus();
+		}
+		tokenStream.feed(chunk);
+		return run();
+	}
+	
+	// The input is over, parses what is left of it
+	public ParseResult end() {
+		if (result == null) {
+			tokenStream.end();
+			run();
+		}
+		return result;
+	}
+	
+	private Status run() {
+		try {
+			while (tokenStream.isReady()) {
+				int kind = parser.next();
+				if (listener != null) {
+					parser.report(kind, listener);
+				}
+				if (kind == Parser.CONSUMED) {
+					tokens++;
+				} else if (kind == Parser.EXPANDED) {
+					expansions++;
+				} else {
+					result = new ParseResult(true, -1, null, tokens, expansions);
+					return Status.ACCEPTED;
+				}
+			}
+			return Status.NEED_MORE_INPUT;
+		} catch (InvalidTokenException e) {
+			result = new ParseResult(false, e.getPosition(), e.getMessage(), tokens, expansions);
+		} catch (ParseException e) {
+			result = new ParseResult(false, parser.getLookaheadPosition(), e.getMessage(), tokens, expansions);
+		} catch (IOException e) {
+			// The token stream reads nothing
+			throw new IllegalStateException(e);
+		}
+		return Status.REJECTED;
+	}
+	
+	public Status getStatus() {
+		if (result == null) {
+			return Status.NEED_MORE_INPUT;
+		}
+		return result.isAccepted() ? Status.ACCEPTED : Status.REJECTED;
+	}
+	
+	// Null until the document is accepted or rejected
+	public ParseResult getResult() {
+		return result;
+	}
+	
+	// Bytes that wait for the next chunk
+	public int getBuffered() {
+		return tokenStream.getBuffered();
+	}
+
+}
@@ -0,0 +1,176 @@
+package parsing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import lexicalanalysis.InvalidTokenException;
+import lexicalanalysis.Terminal;
+import lexicalanalysis.Token;
+import lexicalanalysis.TokenStream;
+
+// Base of the parsers written by ParserGenerator, with a method per nonterminal that switches on the
+// column of the lookahead. Steps and results are the ones Parser gives without error recovery. Methods
+// return the nonterminal to parse next instead of calling it, and push what follows it in the expansion
+// on a stack of ints, so nesting in the document does not recurse.
+public abstract class RecursiveDescentParser implements Closeable, AutoCloseable {
+	
+	// Returned by a method that ends without a tail call
+	protected static final int END = -1;
+	
+	// Columns by grammar and by the terminals of a generated class, parsers are created per document
+	private static final Map<Grammar, Map<String[], int[]>> COLUMNS = new WeakHashMap<>();
+	
+	// Columns of the generated switches by terminal id of this run, -1 for terminals of no column
+	protected static synchronized int[] columns(Grammar grammar, long fingerprint, String[] terminals) {
+		if (grammar.getFingerprint() != fingerprint) {
+			throw new IllegalStateException("Parser generated for other rules, run ParserGenerator again");
+		}
+		return COLUMNS.computeIfAbsent(grammar, g -> new IdentityHashMap<>())
+				.computeIfAbsent(terminals, t -> findColumns(grammar.getParseTable(), terminals));
+	}
+	
+	private static int[] findColumns(ParseTable parseTable, String[] terminals) {
+		Map<String, Integer> columns = new HashMap<>();
+		for (int column = 0; column < terminals.length; column++) {
+			columns.put(terminals[column], column);
+		}
+		int[] byId = new int[Math.max(parseTable.getTerminalCount(), Terminal.DOLLAR.getId() + 1)];
+		Arrays.fill(byId, -1);
+		for (int id = 0; id < byId.length; id++) {
+			Terminal terminal = id == Terminal.DOLLAR.getId() ? Terminal.DOLLAR : (Terminal) parseTable.getSymbol(id);
+			if (terminal != null) {
+				byId[id] = columns.getOrDefault(terminal.toString(), -1);
+			}
+		}
+		return byId;
+	}
+	
+	private final TokenStream tokenStream;
+	
+	private final int[] columns;
+	
+	private final String[] terminals;
+	
+	private ParseListener listener;
+	
+	private Token token;
+	private long position;
+	private long end;
+	private int lookahead;
+	
+	private long tokens;
+	private long expansions;
+	
+	// Nonterminals and rests of expansions to go on with, the next one on top
+	private int[] stack = new int[64];
+	private int depth;
+	
+	protected RecursiveDescentParser(TokenStream tokenStream, int[] columns, String[] terminals) {
+		this.tokenStream = tokenStream;
+		this.columns = columns;
+		this.terminals = terminals;
+	}
+	
+	// Parses the start symbol
+	protected abstract void parseDocument() throws ParseException, IOException, InvalidTokenException;
+	
+	// Calls the method of the nonterminal or of the rest of an expansion
+	protected abstract int dispatch(int nonTerminal) throws ParseException, IOException, InvalidTokenException;
+	
+	public ParseResult parse() throws IOException {
+		return parse(null);
+	}
+	
+	// Runs to the end of the document or the first error, steps are only reported to the listener
+	public ParseResult parse(ParseListener listener) throws IOException {
+		this.listener = listener;
+		depth = 0;
+		try {
+			read();
+			parseDocument();
+			if (token != Token.EOF) {
+				throw new ParseException("Unexpected token " + token.toString() + ". Expected end of file.");
+			}
+			if (listener != null) {
+				listener.accept(position);
+			}
+			return new ParseResult(true, -1, null, tokens, expansions);
+		} catch (InvalidTokenException e) {
+			return new ParseResult(false, e.getPosition(), e.getMessage(), tokens, expansions);
+		} catch (ParseException e) {
+			return new ParseResult(false, position, e.getMessage(), tokens, expansions);
+		}
+	}
+	
+	private void read() throws IOException, InvalidTokenException {
+		token = tokenStream.read();
+		position = tokenStream.getTokenPosition();
+		end = tokenStream.getPosition();
+		int id = token.getTerminalId();
+		lookahead = id >= 0 && id < columns.length ? columns[id] : -1;
+	}
+	
+	protected final int lookahead() {
+		return lookahead;
+	}
+	
+	// Runs what each method returns, and what was pushed when one returns nothing, until the stack is empty
+	protected final void run(int next) throws ParseException, IOException, InvalidTokenException {
+		while (true) {
+			while (next != END) {
+				next = dispatch(next);
+			}
+			if (depth == 0) {
+				return;
+			}
+			next = stack[--depth];
+		}
+	}
+	
+	protected final void push(int next) {
+		if (depth == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[depth++] = next;
+	}
+	
+	protected final void expand(int ruleId) {
+		expansions++;
+		if (listener != null) {
+			listener.expand(ruleId, token, position);
+		}
+	}
+	
+	// The next token is read before the matched one is reported, as Parser does
+	protected final void match(int column) throws ParseException, IOException, InvalidTokenException {
+		if (token == Token.EOF) {
+			throw new ParseException("Unexpected end of file at position " + tokenStream.getPosition() +  ".");
+		}
+		if (lookahead != column) {
+			throw new ParseException("Unexpected token " + token.toString() + ". Expected " + terminals[column] + ".");
+		}
+		Token matched = token;
+		long matchedPosition = position;
+		long matchedEnd = end;
+		read();
+		tokens++;
+		if (listener != null) {
+			listener.consume(matched, matchedPosition, matchedEnd);
+		}
+	}
+	
+	protected final ParseException noRule(String nonTerminal) {
+		return new ParseException("No rule for nonterminal " + nonTerminal + " and token " + token.toString());
+	}
+	
+	@Override
+	public void close() throws IOException {
+		tokenStream.close();
+	}
+
+}
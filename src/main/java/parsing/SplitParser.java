@@ -0,0 +1,259 @@
+package parsing;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import lexicalanalysis.GrammaticalUnit;
+import lexicalanalysis.InvalidTokenException;
+import lexicalanalysis.Terminal;
+import lexicalanalysis.TerminalTrie;
+import lexicalanalysis.Token;
+import lexicalanalysis.TokenStream;
+
+// Validates one large document on several threads - the body is cut in front of top-level tables,
+// lists and paragraphs, where no element is left open, and every piece is parsed as a run of bodytags
+public class SplitParser {
+	
+	private static final long REGION_SIZE = 1L << 30;
+	
+	// Smaller pieces are not worth a task of their own
+	private static final long MIN_PIECE = 256 * 1024;
+	
+	private static final Terminal BODY = Terminal.newLiteralTerminal("<body>");
+	private static final Terminal BODY_END = Terminal.newLiteralTerminal("</body>");
+	private static final Terminal HTML_END = Terminal.newLiteralTerminal("</html>");
+	
+	private static final List<Terminal> OPENING = Arrays.asList(
+			Terminal.newLiteralTerminal("<table>"), Terminal.newLiteralTerminal("<ul>"),
+			Terminal.newLiteralTerminal("<ol>"), Terminal.newLiteralTerminal("<dl>"),
+			Terminal.newLiteralTerminal("<p>"));
+	private static final List<Terminal> CLOSING = Arrays.asList(
+			Terminal.newLiteralTerminal("</table>"), Terminal.newLiteralTerminal("</ul>"),
+			Terminal.newLiteralTerminal("</ol>"), Terminal.newLiteralTerminal("</dl>"),
+			Terminal.newLiteralTerminal("</p>"));
+	
+	private static final int PARAGRAPH = OPENING.size() - 1;
+	
+	// A piece other than the last stands in for the rest of the body, so it ends with the closing tags
+	private static final Token[] CLOSING_TAGS = { Token.of("</body>"), Token.of("</html>") };
+	
+	private static class PieceTokenStream extends TokenStream {
+		
+		private final TokenStream range;
+		
+		private final Token[] suffix;
+		
+		private int next = 0;
+		
+		private PieceTokenStream(TokenStream range, Token[] suffix) {
+			super(range.getTerminalTrie());
+			this.range = range;
+			this.suffix = suffix;
+		}
+		
+		@Override
+		public Token read() throws IOException, InvalidTokenException {
+			Token token = range.read();
+			if (token == Token.EOF && next < suffix.length) {
+				return suffix[next++];
+			}
+			return token;
+		}
+		
+		@Override
+		public long getPosition() {
+			return range.getPosition();
+		}
+		
+		@Override
+		public long getTokenPosition() {
+			return range.getTokenPosition();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			range.close();
+		}
+	
+	}
+	
+	private final ExecutorService executor;
+	
+	private final int pieces;
+	
+	private final int maxErrors;
+	
+	// Pieces is the most the body is cut into, usually the number of threads of the executor
+	public SplitParser(ExecutorService executor, int pieces) {
+		this(executor, pieces, 1);
+	}
+	
+	// A document with errors is parsed again as a whole, until maxErrors of them are found
+	public SplitParser(ExecutorService executor, int pieces, int maxErrors) {
+		this.executor = executor;
+		this.pieces = pieces;
+		this.maxErrors = maxErrors;
+	}
+	
+	// Falls back to parsing the whole file on one thread when it cannot be split,
+	// or when a piece is rejected, so that the error is the same as without splitting
+	public ParseResult parse(Path path) throws IOException, InterruptedException {
+		PhaseEvent scan = Parser.beginPhase("split-scan");
+		List<Long> cuts = choose(findSplitPoints(path));
+		Parser.endPhase(scan);
+		if (cuts.isEmpty()) {
+			return parseWhole(path, maxErrors);
+		}
+		
+		List<Future<ParseResult>> futures = new ArrayList<>(cuts.size() + 1);
+		for (int i = 0; i <= cuts.size(); i++) {
+			long start = i == 0 ? 0 : cuts.get(i - 1);
+			long end = i == cuts.size() ? -1 : cuts.get(i);
+			boolean first = i == 0;
+			futures.add(executor.submit(() -> parsePiece(path, start, end, first)));
+		}
+		
+		long tokens = 0;
+		long expansions = 0;
+		for (Future<ParseResult> future : futures) {
+			ParseResult result;
+			try {
+				result = future.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+			if (!result.isAccepted()) {
+				futures.forEach(f -> f.cancel(true));
+				return parseWhole(path, maxErrors);
+			}
+			tokens += result.getTokens();
+			expansions += result.getExpansions();
+		}
+		
+		// Leave out the closing tags added to the pieces and the empty bodytags they end with
+		tokens -= cuts.size() * CLOSING_TAGS.length;
+		expansions -= cuts.size();
+		return new ParseResult(true, -1, null, tokens, expansions);
+	}
+	
+	private static ParseResult parseWhole(Path path, int maxErrors) throws IOException {
+		try (Parser parser = new Parser(TokenStream.open(path))) {
+			return parser.parse(null, maxErrors);
+		}
+	}
+	
+	private static ParseResult parsePiece(Path path, long start, long end, boolean first) throws IOException {
+		TokenStream range = TokenStream.open(path, start, end < 0 ? Long.MAX_VALUE : end);
+		Token[] suffix = end < 0 ? new Token[0] : CLOSING_TAGS;
+		GrammaticalUnit[] stack = first
+				? new GrammaticalUnit[] { NonTerminal.withName("htmldocument") }
+				: new GrammaticalUnit[] { NonTerminal.withName("bodytags"), BODY_END, HTML_END };
+		try (Parser parser = new Parser(new PieceTokenStream(range, suffix), stack)) {
+			return parser.parse();
+		}
+	}
+	
+	// Joins split points into at most as many pieces as asked for, of about the same size
+	private List<Long> choose(List<Long> points) {
+		if (pieces < 2 || points.size() < 2) {
+			return Collections.emptyList();
+		}
+		long bodyStart = points.get(0);
+		long length = points.get(points.size() - 1) - bodyStart;
+		long target = Math.max(MIN_PIECE, length / pieces);
+		
+		List<Long> cuts = new ArrayList<>();
+		long last = bodyStart;
+		for (long point : points.subList(0, points.size() - 1)) {
+			if (point - last >= target && cuts.size() < pieces - 1) {
+				cuts.add(point);
+				last = point;
+			}
+		}
+		return cuts;
+	}
+	
+	// Offsets of the top-level tags in the body that nothing open surrounds, followed by the offset
+	// of </body> - empty when closing tags do not pair up and the document cannot be split safely.
+	// A paragraph without </p> ends with the element around it, at the top level it takes in the rest
+	// of the body.
+	public static List<Long> findSplitPoints(Path path) throws IOException {
+		TerminalTrie trie = TokenStream.getTrie();
+		int lookahead = trie.getMaxLength();
+		
+		List<Long> points = new ArrayList<>();
+		// Indexes into OPENING of the elements open at the current tag
+		int[] open = new int[64];
+		int depth = 0;
+		boolean body = false;
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			for (long regionStart = 0; regionStart < size; regionStart += REGION_SIZE) {
+				MappedByteBuffer region = channel.map(MapMode.READ_ONLY, regionStart,
+						Math.min(REGION_SIZE + lookahead, size - regionStart));
+				int limit = (int) Math.min(REGION_SIZE, size - regionStart);
+				
+				for (int i = 0; i < limit; i++) {
+					// Only tags start with '<', it is not a character of text
+					if (region.get(i) != '<') {
+						continue;
+					}
+					Terminal tag = trie.match(region, i, region.limit() - i);
+					if (tag == BODY) {
+						if (body) {
+							return Collections.emptyList();
+						}
+						body = true;
+						continue;
+					}
+					if (!body) {
+						continue;
+					}
+					if (tag == BODY_END) {
+						points.add(regionStart + i);
+						return points;
+					}
+					
+					int opening = OPENING.indexOf(tag);
+					if (opening >= 0) {
+						if (depth == 0) {
+							points.add(regionStart + i);
+						}
+						if (depth == open.length) {
+							open = Arrays.copyOf(open, depth * 2);
+						}
+						open[depth++] = opening;
+						continue;
+					}
+					int closing = CLOSING.indexOf(tag);
+					if (closing >= 0) {
+						while (closing != PARAGRAPH && depth > 0 && open[depth - 1] == PARAGRAPH) {
+							depth--;
+						}
+						if (depth == 0 || open[depth - 1] != closing) {
+							return Collections.emptyList();
+						}
+						depth--;
+					}
+				}
+			}
+		}
+		return Collections.emptyList();
+	}
+
+}
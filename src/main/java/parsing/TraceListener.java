@@ -0,0 +1,38 @@
+package parsing;
+
+import java.util.function.Consumer;
+
+import lexicalanalysis.Token;
+
+// Hands out the steps in the format of ParseStep, for when the trace is actually wanted
+public class TraceListener implements ParseListener {
+	
+	private final Consumer<ParseStep> consumer;
+	
+	private final ParseTable parseTable;
+	
+	public TraceListener(Consumer<ParseStep> consumer) {
+		this(Grammar.html(), consumer);
+	}
+	
+	public TraceListener(Grammar grammar, Consumer<ParseStep> consumer) {
+		this.consumer = consumer;
+		this.parseTable = grammar.getParseTable();
+	}
+	
+	@Override
+	public void expand(int ruleId, Token token, long position) {
+		consumer.accept(ParseStep.expand(parseTable.getRule(ruleId), token));
+	}
+	
+	@Override
+	public void consume(Token token, long position, long end) {
+		consumer.accept(ParseStep.consume(token));
+	}
+	
+	@Override
+	public void accept(long position) {
+		consumer.accept(ParseStep.accept());
+	}
+
+}
@@ -0,0 +1,109 @@
+package lexicalanalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import lexicalanalysis.FirstFollow.Conflict;
+import parsing.NonTerminal;
+import parsing.Rule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestFirstFollow {
+	
+	private static Terminal t(String text) {
+		return Terminal.newLiteralTerminal(text);
+	}
+	
+	private static NonTerminal n(String name) {
+		return NonTerminal.withName(name);
+	}
+	
+	private static void assertTerminals(Iterable<Terminal> actual, Terminal... expected) {
+		HashSet<Terminal> set = new HashSet<>();
+		actual.forEach(set::add);
+		assertEquals(new HashSet<>(Arrays.asList(expected)), set);
+	}
+	
+	// The expression grammar of the textbooks, with ( ) + * and id
+	@Test
+	public void expressionGrammar() {
+		List<Rule> rules = Arrays.asList(
+				Rule.define("ff-e", n("ff-t"), n("ff-e'")),
+				Rule.define("ff-e'", t("ff+"), n("ff-t"), n("ff-e'")),
+				Rule.define("ff-e'"),
+				Rule.define("ff-t", n("ff-f"), n("ff-t'")),
+				Rule.define("ff-t'", t("ff*"), n("ff-f"), n("ff-t'")),
+				Rule.define("ff-t'"),
+				Rule.define("ff-f", t("ff("), n("ff-e"), t("ff)")),
+				Rule.define("ff-f", t("ff-id")));
+		FirstFollow firstFollow = new FirstFollow(rules);
+		
+		assertTerminals(firstFollow.getTerminalsForRuleApplication(rules.get(0)), t("ff("), t("ff-id"));
+		assertTerminals(firstFollow.getTerminalsForRuleApplication(rules.get(2)), t("ff)"), Terminal.DOLLAR);
+		assertTerminals(firstFollow.getFollow(n("ff-e")), t("ff)"), Terminal.DOLLAR);
+		assertTerminals(firstFollow.getFollow(n("ff-t")), t("ff+"), t("ff)"), Terminal.DOLLAR);
+		assertTerminals(firstFollow.getFollow(n("ff-f")), t("ff*"), t("ff+"), t("ff)"), Terminal.DOLLAR);
+		assertTrue(firstFollow.getConflicts().isEmpty());
+	}
+	
+	@Test
+	public void conflictsAreReported() {
+		List<Rule> rules = Arrays.asList(
+				Rule.define("cf-s", n("cf-a"), t("cf-end")),
+				Rule.define("cf-a", t("cf-x")),
+				Rule.define("cf-a", t("cf-x"), t("cf-y")),
+				Rule.define("cf-a"),
+				Rule.define("cf-a", n("cf-b")),
+				Rule.define("cf-b"));
+		FirstFollow firstFollow = new FirstFollow(rules);
+		firstFollow.createRuleTable();
+		
+		List<Conflict> conflicts = firstFollow.getConflicts();
+		assertEquals(2, conflicts.size());
+		// The longer of two rules starting with the terminal
+		assertSame(rules.get(2), conflicts.get(0).getChosen());
+		assertSame(rules.get(1), conflicts.get(0).getDiscarded());
+		// The shorter of two rules deriving nothing
+		assertSame(t("cf-end"), conflicts.get(1).getTerminal());
+		assertSame(rules.get(3), conflicts.get(1).getChosen());
+		assertSame(rules.get(4), conflicts.get(1).getDiscarded());
+		
+		assertEquals("NONTERMINAL;TERMINAL;CHOSEN;DISCARDED\n"
+				+ "cf-a;\"cf-x\";cf-a -> \"cf-x\" \"cf-y\";cf-a -> \"cf-x\"\n"
+				+ "cf-a;\"cf-end\";cf-a -> " + Terminal.EPSILON + ";cf-a -> cf-b\n", firstFollow.conflictReport());
+	}
+	
+	// FOLLOW of the start goes down a long chain of nonterminals deriving nothing, FIRST of its end goes up,
+	// next to a nonterminal with many rules
+	@Test
+	public void largeGrammar() {
+		int size = 5000;
+		List<Rule> rules = new ArrayList<>();
+		rules.add(Rule.define("lg-s", n("lg-statement"), n("lg-0"), t("lg-end")));
+		for (int i = 0; i < size; i++) {
+			rules.add(Rule.define("lg-" + i, n("lg-" + (i + 1))));
+		}
+		rules.add(Rule.define("lg-" + size, t("lg-x")));
+		rules.add(Rule.define("lg-" + size));
+		for (int i = 0; i < size; i++) {
+			rules.add(Rule.define("lg-statement", t("lg-keyword" + i)));
+		}
+		
+		FirstFollow firstFollow = new FirstFollow(rules);
+		firstFollow.createRuleTable();
+		
+		assertTerminals(firstFollow.getFirst(n("lg-0")), t("lg-x"), Terminal.EPSILON);
+		assertTerminals(firstFollow.getFollow(n("lg-" + size)), t("lg-end"));
+		assertTerminals(firstFollow.getFollow(n("lg-statement")), t("lg-x"), t("lg-end"));
+		assertTerminals(firstFollow.getTerminalsForRuleApplication(rules.get(1)), t("lg-x"), t("lg-end"));
+		assertTrue(firstFollow.getConflicts().isEmpty());
+	}
+	
+}
@@ -0,0 +1,98 @@
+package lexicalanalysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import parsing.DocumentGenerator;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestTerminalTrie {
+	
+	// The linear scan over all terminals the trie replaced, kept as a reference
+	private static class LinearTokenStream {
+		
+		private final Reader reader;
+		
+		private final int maxLength = TokenStream.getTerminals().get(0).getLength();
+		
+		private LinearTokenStream(Reader reader) {
+			this.reader = reader;
+		}
+		
+		private Token read() throws IOException, InvalidTokenException {
+			while (true) {
+				char[] buffer = new char[maxLength];
+				reader.mark(maxLength);
+				int numRead = reader.read(buffer);
+				if (numRead < 1) {
+					return Token.EOF;
+				}
+				
+				Terminal found = null;
+				for (Terminal terminal : TokenStream.getTerminals()) {
+					if (terminal.test(new String(Arrays.copyOf(buffer, terminal.getLength())))) {
+						found = terminal;
+						break;
+					}
+				}
+				if (found == null) {
+					throw new InvalidTokenException(new String(buffer), -1);
+				}
+				
+				reader.reset();
+				reader.skip(found.getLength());
+				if (found != TokenStream.WHITESPACE) {
+					return Token.of(new String(buffer, 0, found.getLength()));
+				}
+			}
+		}
+	
+	}
+	
+	private static List<Token> lexLinear(String text) throws Exception {
+		LinearTokenStream stream = new LinearTokenStream(new BufferedReader(new StringReader(text)));
+		List<Token> tokens = new ArrayList<>();
+		Token token;
+		do {
+			token = stream.read();
+			tokens.add(token);
+		} while (!token.equals(Token.EOF));
+		return tokens;
+	}
+	
+	private static List<Token> lex(String text) throws Exception {
+		try (TokenStream stream = new TokenStream(new BufferedReader(new StringReader(text)))) {
+			List<Token> tokens = new ArrayList<>();
+			Token token;
+			do {
+				token = stream.read();
+				tokens.add(token);
+			} while (!token.equals(Token.EOF));
+			return tokens;
+		}
+	}
+	
+	@Test
+	public void sameTokensAsLinearScan() throws Exception {
+		for (int i = 1; i <= 4; i++) {
+			String text = new String(Files.readAllBytes(Paths.get("src/test/resources/test" + i + ".html")), "UTF-8");
+			assertEquals(lexLinear(text), lex(text));
+		}
+		String generated = new DocumentGenerator(1).size(256 * 1024).generate();
+		assertEquals(lexLinear(generated), lex(generated));
+		
+		String tricky = "<meta name=content-type content=utf-8>\t<table>\u00e9\u00a0\u2003y</table>>";
+		assertEquals(lexLinear(tricky), lex(tricky));
+	}
+
+}
@@ -0,0 +1,91 @@
+package lexicalanalysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestTextScanner {
+	
+	private static final TextScanner SCANNER = TokenStream.getTrie().getScanner();
+	
+	private static final TextScanner SCALAR = TextScanner.scalar(SCANNER);
+	
+	// Runs of every class, with characters outside of ASCII and some that start literals
+	private static String randomText(Random random, int length) {
+		String[] pieces = { "text ", "  \n\t", "<p>", "name=", "#", "é", " ", "12.5", "content", ">" };
+		StringBuilder text = new StringBuilder();
+		while (text.length() < length) {
+			text.append(pieces[random.nextInt(pieces.length)]);
+		}
+		return text.toString();
+	}
+	
+	@Test
+	public void plainCharacters() {
+		assertTrue(SCANNER.isPlain('a'));
+		assertTrue(SCANNER.isPlain(' '));
+		assertTrue(SCANNER.isPlain('>'));
+		// Literals start with them
+		assertFalse(SCANNER.isPlain('<'));
+		assertFalse(SCANNER.isPlain('n'));
+		// No terminal
+		assertFalse(SCANNER.isPlain('#'));
+		assertFalse(SCANNER.isPlain('é'));
+		
+		char[] text = "  \t\nsome content<p>".toCharArray();
+		assertEquals(4, SCANNER.skippedEnd(text, 0, text.length));
+		assertEquals(9, SCANNER.plainEnd(text, 0, text.length));
+		assertEquals(11, SCANNER.plainEnd(text, 10, text.length));
+		assertEquals(14, SCANNER.plainEnd(text, 12, text.length));
+		assertEquals(16, SCANNER.plainEnd(text, 15, text.length));
+	}
+	
+	@Test
+	public void sameAsScalar() {
+		Random random = new Random(1);
+		for (int round = 0; round < 200; round++) {
+			char[] chars = randomText(random, random.nextInt(300)).toCharArray();
+			byte[] bytes = new String(chars).getBytes(StandardCharsets.UTF_8);
+			ByteBuffer heap = ByteBuffer.wrap(bytes);
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+			
+			for (int offset = 0; offset < chars.length; offset++) {
+				int end = offset + random.nextInt(chars.length - offset + 1);
+				assertEquals(SCALAR.plainEnd(chars, offset, end), SCANNER.plainEnd(chars, offset, end));
+				assertEquals(SCALAR.skippedEnd(chars, offset, end), SCANNER.skippedEnd(chars, offset, end));
+			}
+			for (int offset = 0; offset < bytes.length; offset++) {
+				int end = offset + random.nextInt(bytes.length - offset + 1);
+				assertEquals(SCALAR.plainEnd(heap, offset, end), SCANNER.plainEnd(heap, offset, end));
+				assertEquals(SCALAR.skippedEnd(heap, offset, end), SCANNER.skippedEnd(heap, offset, end));
+				assertEquals(SCALAR.plainEnd(direct, offset, end), SCANNER.plainEnd(direct, offset, end));
+				assertEquals(SCALAR.skippedEnd(direct, offset, end), SCANNER.skippedEnd(direct, offset, end));
+			}
+		}
+	}
+	
+	// Long runs go through whole vectors
+	@Test
+	public void longRuns() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append(i % 7 == 0 ? "\n\t\t" : "word ");
+		}
+		int run = text.length();
+		text.append("<p>");
+		char[] chars = text.toString().toCharArray();
+		ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+		
+		assertEquals(run, SCANNER.plainEnd(chars, 0, chars.length));
+		assertEquals(run, SCANNER.plainEnd(bytes, 0, bytes.limit()));
+		assertEquals(3, SCANNER.skippedEnd(chars, 0, chars.length));
+		assertEquals(3, SCANNER.skippedEnd(bytes, 0, bytes.limit()));
+	}
+
+}
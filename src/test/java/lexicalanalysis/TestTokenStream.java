@@ -1,12 +1,28 @@
 package lexicalanalysis;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import parsing.DocumentGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 public class TestTokenStream {
 
 	private TokenStream tokenStream;
@@ -25,4 +41,125 @@ public class TestTokenStream {
 		} while (!token.equals(Token.EOF));
 	}
 	
+	private static List<Token> readAll(TokenStream stream) throws Exception {
+		List<Token> tokens = new ArrayList<>();
+		Token token;
+		do {
+			token = stream.read();
+			tokens.add(token);
+		} while (!token.equals(Token.EOF));
+		return tokens;
+	}
+	
+	@Test
+	public void tokensSpanningReads() throws Exception {
+		String text = new DocumentGenerator(3).size(200 * 1024).generate();
+		
+		// Hands out at most one character per read, so literals span the refills
+		TokenStream trickling = new TokenStream(new FilterReader(new StringReader(text)) {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				return super.read(cbuf, off, Math.min(len, 1));
+			}
+		});
+		TokenStream bytes = new TokenStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+		
+		List<Token> expected = readAll(new TokenStream(new StringReader(text)));
+		assertEquals(expected, readAll(trickling));
+		assertEquals(expected, readAll(bytes));
+	}
+	
+	@Test
+	public void tokensAreInterned() throws Exception {
+		TokenStream stream = new TokenStream(new StringReader("<table> x </table>"));
+		assertSame(Token.of("<table>"), stream.read());
+		assertSame(Token.of("x"), stream.read());
+		assertSame(Token.of("</table>"), stream.read());
+		assertSame(Token.EOF, stream.read());
+	}
+	
+	@Test
+	public void mappedFileAcrossRegions() throws Exception {
+		String text = new DocumentGenerator(5).size(100 * 1024).generate()
+				.replace("Lorem", "L\u00f6r\u00e9m\u00a0\u4e2d");
+		Path file = Files.createTempFile("mapped", ".html");
+		try {
+			Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+			List<Token> expected = readAll(new TokenStream(new StringReader(text)));
+			assertEquals(expected, readAll(TokenStream.open(file)));
+			assertEquals(expected, readAll(new MappedTokenStream(file, 100)));
+			assertEquals(expected, readAll(TokenStream.open(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)))));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void mappedPositionsInBytes() throws Exception {
+		Path file = Files.createTempFile("mapped", ".html");
+		try {
+			Files.write(file, "<html>\u00e9 \u4e2d = </html>".getBytes(StandardCharsets.UTF_8));
+			try (TokenStream stream = TokenStream.open(file)) {
+				assertSame(Token.of("<html>"), stream.read());
+				assertSame(Token.of('\u00e9'), stream.read());
+				assertSame(Token.of('\u4e2d'), stream.read());
+				stream.read();
+				fail("Invalid token expected");
+			} catch (InvalidTokenException e) {
+				assertEquals(13, e.getPosition());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	private static void assertSkipsInvalid(TokenStream stream, long invalidAt, long nextAt) throws Exception {
+		assertSame(Token.of('a'), stream.read());
+		try {
+			stream.read();
+			fail("Invalid token expected");
+		} catch (InvalidTokenException e) {
+			assertEquals(invalidAt, e.getPosition());
+		}
+		stream.skipCharacter();
+		assertSame(Token.of('b'), stream.read());
+		assertEquals(nextAt, stream.getTokenPosition());
+	}
+	
+	@Test
+	public void skipInvalidCharacter() throws Exception {
+		String text = "a\u20acb";
+		assertSkipsInvalid(new TokenStream(new StringReader(text)), 1, 2);
+		assertSkipsInvalid(TokenStream.open(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))), 1, 4);
+		
+		Path file = Files.createTempFile("mapped", ".html");
+		try {
+			Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+			try (TokenStream stream = TokenStream.open(file)) {
+				assertSkipsInvalid(stream, 1, 4);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void noAllocationPerToken() throws Exception {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		
+		String text = new DocumentGenerator(4).size(1024 * 1024).generate();
+		long tokens = 0;
+		long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		try (TokenStream stream = new TokenStream(new StringReader(text))) {
+			while (stream.read() != Token.EOF) {
+				tokens++;
+			}
+		}
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+		assertTrue(allocated < tokens);
+	}
+	
 }
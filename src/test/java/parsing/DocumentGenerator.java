@@ -0,0 +1,197 @@
+package parsing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Generates documents accepted by the grammar in Parser, for large-input tests and benchmarks
+public class DocumentGenerator {
+	
+	private static final String[] WORDS = {
+		"Lorem", "ipsum", "dolor", "sit", "amet,", "consectetur", "adipiscing", "elit.",
+		"Sed", "do", "eiusmod", "tempor", "2017", "-", "\"quoted\"", "a/b", "x_y:z", "1+2*3;"
+	};
+	
+	private final Random random;
+	
+	private long size = 64 * 1024;
+	
+	private int depth = 4;
+	
+	private double textRatio = 0.5;
+	
+	private boolean unclosed = false;
+	
+	private StringBuilder builder;
+	
+	// Takes the text from the builder every now and then, when writing to a file
+	private Writer writer;
+	
+	private long written;
+	
+	public DocumentGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+	
+	// Approximate length of the generated document in characters
+	public DocumentGenerator size(long size) {
+		this.size = size;
+		return this;
+	}
+	
+	// Maximum nesting of paragraphs, tables and lists
+	public DocumentGenerator depth(int depth) {
+		this.depth = depth;
+		return this;
+	}
+	
+	// Probability that a body element is text rather than markup
+	public DocumentGenerator textRatio(double textRatio) {
+		this.textRatio = textRatio;
+		return this;
+	}
+	
+	// Leaves out the optional </p> and </td> tags
+	public DocumentGenerator unclosed(boolean unclosed) {
+		this.unclosed = unclosed;
+		return this;
+	}
+	
+	public String generate() {
+		builder = new StringBuilder((int) size + 1024);
+		writer = null;
+		written = 0;
+		body();
+		return builder.toString();
+	}
+	
+	// For documents larger than what fits into a String
+	public void generate(Path file) throws IOException {
+		builder = new StringBuilder(128 * 1024);
+		written = 0;
+		try (Writer fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer = fileWriter;
+			body();
+			flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			writer = null;
+		}
+	}
+	
+	private void body() {
+		builder.append("<html>\n<head>\n\t<title>Generated document</title>\n")
+			.append("\t<meta name=generator content=DocumentGenerator>\n</head>\n<body>\n");
+		while (length() < size) {
+			bodytag(0);
+			builder.append('\n');
+			if (writer != null && builder.length() >= 64 * 1024) {
+				flush();
+			}
+		}
+		builder.append("</body>\n</html>\n");
+	}
+	
+	private long length() {
+		return written + builder.length();
+	}
+	
+	private void flush() {
+		try {
+			writer.append(builder);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		written += builder.length();
+		builder.setLength(0);
+	}
+	
+	private void bodytag(int level) {
+		if (level >= depth || length() >= size || random.nextDouble() < textRatio) {
+			text();
+			return;
+		}
+		switch (random.nextInt(4)) {
+		case 0:
+			paragraph(level);
+			break;
+		case 1:
+			table(level);
+			break;
+		case 2:
+			list(level);
+			break;
+		default:
+			definitionList(level);
+		}
+	}
+	
+	private void bodytags(int level) {
+		int count = 1 + random.nextInt(3);
+		for (int i = 0; i < count; i++) {
+			bodytag(level);
+		}
+	}
+	
+	private void text() {
+		int count = 1 + random.nextInt(12);
+		for (int i = 0; i < count; i++) {
+			builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+		}
+	}
+	
+	private void paragraph(int level) {
+		builder.append("<p>");
+		bodytags(level + 1);
+		if (!unclosed) {
+			builder.append("</p>");
+		}
+	}
+	
+	private void table(int level) {
+		builder.append("<table>\n");
+		int rows = 1 + random.nextInt(3);
+		for (int r = 0; r < rows; r++) {
+			builder.append("<tr>");
+			int cells = 1 + random.nextInt(4);
+			for (int c = 0; c < cells; c++) {
+				builder.append("<td>");
+				bodytags(level + 1);
+				if (!unclosed) {
+					builder.append("</td>");
+				}
+			}
+			builder.append("</tr>\n");
+		}
+		builder.append("</table>");
+	}
+	
+	private void list(int level) {
+		boolean ordered = random.nextBoolean();
+		builder.append(ordered ? "<ol>\n" : "<ul>\n");
+		int items = 1 + random.nextInt(4);
+		for (int i = 0; i < items; i++) {
+			builder.append("<li>");
+			bodytag(level + 1);
+			builder.append('\n');
+		}
+		builder.append(ordered ? "</ol>" : "</ul>");
+	}
+	
+	private void definitionList(int level) {
+		builder.append("<dl>\n");
+		int items = 1 + random.nextInt(4);
+		for (int i = 0; i < items; i++) {
+			builder.append(random.nextBoolean() ? "<dt>" : "<dd>");
+			bodytag(level + 1);
+			builder.append('\n');
+		}
+		builder.append("</dl>");
+	}
+
+}
@@ -0,0 +1,19 @@
+package parsing;
+
+import static org.junit.Assert.assertEquals;
+
+// Assertions on results of parses of the same document by different parsers
+public class ParseResults {
+	
+	private ParseResults() {
+	}
+	
+	public static void assertSameResult(ParseResult expected, ParseResult actual) {
+		assertEquals(expected.isAccepted(), actual.isAccepted());
+		assertEquals(expected.getErrorPosition(), actual.getErrorPosition());
+		assertEquals(expected.getErrorMessage(), actual.getErrorMessage());
+		assertEquals(expected.getTokens(), actual.getTokens());
+		assertEquals(expected.getExpansions(), actual.getExpansions());
+	}
+
+}
@@ -0,0 +1,73 @@
+package parsing;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import parsing.BatchParser.BatchResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestBatchParser {
+	
+	private Path directory;
+	
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("batch");
+		for (int i = 0; i < 40; i++) {
+			String text = new DocumentGenerator(100 + i).size(64 * 1024).unclosed(i % 2 == 0).generate();
+			if (i % 7 == 3) {
+				text = text.replace("</body>", "</p></td></body>");
+			}
+			Files.write(directory.resolve(String.format("doc%02d.html", i)), text.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		for (Path file : BatchParser.collect(Collections.singletonList(directory))) {
+			Files.delete(file);
+		}
+		Files.delete(directory);
+	}
+	
+	private BatchResult run(int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			return new BatchParser(executor).parse(BatchParser.collect(Collections.singletonList(directory)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	private static List<String> lines(BatchResult result) {
+		List<String> lines = new ArrayList<>();
+		result.getFiles().forEach(file -> lines.add(file.toString()));
+		return lines;
+	}
+	
+	@Test
+	public void parallelMatchesSequential() throws Exception {
+		BatchResult sequential = run(1);
+		BatchResult parallel = run(8);
+		
+		assertEquals(40, parallel.getFiles().size());
+		assertEquals(lines(sequential), lines(parallel));
+		assertTrue(parallel.getFiles().get(0).getPath().endsWith("doc00.html"));
+		assertFalse(parallel.getFiles().get(3).isAccepted());
+		assertEquals(34, parallel.getAccepted());
+	}
+	
+}
@@ -0,0 +1,99 @@
+package parsing;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestBinaryTrace {
+	
+	private final List<Path> files = new ArrayList<>();
+	
+	@After
+	public void tearDown() throws Exception {
+		for (Path file : files) {
+			Files.delete(file);
+		}
+	}
+	
+	private Path createFile() throws IOException {
+		Path file = Files.createTempFile("trace", ".trc");
+		files.add(file);
+		return file;
+	}
+	
+	// Writes the binary trace, returns the text trace
+	private static List<String> trace(String text, Path file, int maxErrors) throws Exception {
+		List<String> lines = new ArrayList<>();
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			parser.parse(new TraceListener(step -> lines.add(step.toString())), maxErrors);
+		}
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)));
+				BinaryTraceWriter writer = new BinaryTraceWriter(file)) {
+			parser.parse(writer, maxErrors);
+		}
+		return lines;
+	}
+	
+	private static List<String> decode(Path file) throws IOException {
+		List<String> lines = new ArrayList<>();
+		BinaryTraceReader.decode(file, lines::add);
+		return lines;
+	}
+	
+	@Test
+	public void decodesToTextTrace() throws Exception {
+		String text = new DocumentGenerator(600).size(256 * 1024).generate().replace("</body>", "ľščť</body>");
+		Path file = createFile();
+		List<String> lines = trace(text, file, 100);
+		assertEquals(lines, decode(file));
+		
+		long textSize = lines.stream().mapToLong(line -> line.length() + 1).sum();
+		assertTrue(Files.size(file) * 5 < textSize);
+	}
+	
+	@Test
+	public void decodesRecovery() throws Exception {
+		String text = "<html><head></head><body><p>a</ul><table><tr><td>b</td></tr><li></table>c</body></html>";
+		Path file = createFile();
+		assertEquals(trace(text, file, 100), decode(file));
+	}
+	
+	@Test
+	public void positions() throws Exception {
+		String text = "<html><head></head><body>ab <p>c</body></html>";
+		Path file = createFile();
+		trace(text, file, 1);
+		try (BinaryTraceReader reader = new BinaryTraceReader(file)) {
+			ParseStep step;
+			while ((step = reader.read()) != null) {
+				if (step.getToken() != null && step.getRule() == null && step.getToken().getText().equals("<p>")) {
+					assertEquals(text.indexOf("<p>"), reader.getStepPosition());
+					assertEquals(text.indexOf("<p>") + 3, reader.getStepEnd());
+					return;
+				}
+			}
+		}
+		fail();
+	}
+	
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws Exception {
+		Path file = createFile();
+		Files.write(file, "<html>".getBytes(StandardCharsets.UTF_8));
+		decode(file);
+	}
+
+}
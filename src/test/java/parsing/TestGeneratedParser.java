@@ -0,0 +1,129 @@
+package parsing;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import lexicalanalysis.Token;
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static parsing.ParseResults.assertSameResult;
+
+public class TestGeneratedParser {
+	
+	// Every step with its positions, in one string per step
+	private static class Recorder implements ParseListener {
+		
+		private final List<String> steps = new ArrayList<>();
+		
+		@Override
+		public void expand(int ruleId, Token token, long position) {
+			steps.add("E " + ruleId + " " + token + " " + position);
+		}
+		
+		@Override
+		public void consume(Token token, long position, long end) {
+			steps.add("C " + token + " " + position + " " + end);
+		}
+		
+		@Override
+		public void accept(long position) {
+			steps.add("A " + position);
+		}
+	
+	}
+	
+	private static void assertSameSteps(String text) throws Exception {
+		Recorder expected = new Recorder();
+		ParseResult expectedResult;
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			expectedResult = parser.parse(expected);
+		}
+		
+		Recorder actual = new Recorder();
+		ParseResult actualResult;
+		try (GeneratedHtmlParser parser = new GeneratedHtmlParser(new TokenStream(new StringReader(text)), Grammar.html())) {
+			actualResult = parser.parse(actual);
+		}
+		
+		assertEquals(expected.steps, actual.steps);
+		assertEquals(expectedResult.toString(), actualResult.toString());
+		assertEquals(expectedResult.getErrorPosition(), actualResult.getErrorPosition());
+	}
+	
+	// Written by ParserGenerator, the checked in source has to be generated again when the rules change
+	@Test
+	public void sourceIsUpToDate() throws Exception {
+		String source = new String(Files.readAllBytes(Paths.get("src/main/java/parsing", ParserGenerator.HTML_PARSER + ".java")),
+				StandardCharsets.UTF_8);
+		assertEquals(ParserGenerator.generate(ParserGenerator.HTML_PARSER, Parser.getRules(), Parser.getFirstFollow()), source);
+	}
+	
+	@Test
+	public void testDocuments() throws Exception {
+		for (int i = 1; i <= 4; i++) {
+			assertSameSteps(new String(Files.readAllBytes(Paths.get("src/test/resources/test" + i + ".html")), StandardCharsets.UTF_8));
+		}
+	}
+	
+	@Test
+	public void generatedDocuments() throws Exception {
+		for (long seed = 0; seed < 20; seed++) {
+			assertSameSteps(new DocumentGenerator(seed).size(20000).unclosed(seed % 2 == 0).generate());
+		}
+	}
+	
+	@Test
+	public void errors() throws Exception {
+		assertSameSteps("<html><head></head><body><p>text</td></body></html>");
+		assertSameSteps("<html><head></head><body><table><tr>x</tr></table></body></html>");
+		assertSameSteps("<html><head><title>a</title></head><body>");
+		assertSameSteps("<html><head></head><body>a < b</body></html>");
+		assertSameSteps("<html><head></head><body></body></html> trailing");
+		assertSameSteps("<html><head><meta name=a content=b></head><body>x</body></html><p>");
+		assertSameSteps("");
+	}
+	
+	private static String nested(String open, int times, String close) {
+		StringBuilder text = new StringBuilder("<html><head></head><body>");
+		for (int i = 0; i < times; i++) {
+			text.append(open);
+		}
+		for (int i = 0; i < times; i++) {
+			text.append(close);
+		}
+		return text.append("</body></html>").toString();
+	}
+	
+	// Nesting goes on the stack of the parser, not the one of the thread
+	@Test
+	public void deepNesting() throws Exception {
+		String[] documents = {
+			nested("<p>x ", 20000, ""),
+			nested("<p>text ", 200000, ""),
+			nested("<table><tr><td>cell ", 20000, "</tr></table>"),
+			nested("<ul><li>item ", 20000, "</td></ul>"),
+		};
+		for (int i = 0; i < documents.length; i++) {
+			String text = documents[i];
+			ParseResult expected;
+			try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+				expected = parser.parse();
+			}
+			// The last one closes a cell that is not open
+			assertEquals(i < documents.length - 1, expected.isAccepted());
+			try (GeneratedHtmlParser parser = new GeneratedHtmlParser(new TokenStream(new StringReader(text)), Grammar.html())) {
+				assertSameResult(expected, parser.parse());
+			}
+		}
+		assertSameSteps(nested("<p>x ", 20000, ""));
+	}
+
+}
@@ -0,0 +1,130 @@
+package parsing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestGrammar {
+	
+	private static final Path CSV = Paths.get("doc/first-follow.csv");
+	
+	private static final Path EXTENDED = Paths.get("doc/html-extended.bnf");
+	
+	private Path cache;
+	
+	@Before
+	public void createCache() throws IOException {
+		cache = Files.createTempDirectory("grammar-cache");
+	}
+	
+	@After
+	public void deleteCache() throws IOException {
+		try (Stream<Path> files = Files.walk(cache)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+	
+	// Tables of rules read separately are compared in their written form, rules are only equal to themselves
+	private static byte[] written(ParseTable parseTable) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		parseTable.write(out);
+		return out.toByteArray();
+	}
+	
+	private static ParseResult parse(Grammar grammar, String document) throws IOException {
+		Path file = Files.createTempFile("grammar", ".html");
+		try {
+			Files.write(file, document.getBytes(StandardCharsets.UTF_8));
+			try (Parser parser = new Parser(grammar.open(file), grammar)) {
+				return parser.parse();
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void csvGivesBuiltInGrammar() throws Exception {
+		Grammar grammar = Grammar.load(CSV, null);
+		assertEquals(Parser.getRules().toString(), grammar.getRules().toString());
+		assertArrayEquals(written(Parser.getParseTable()), written(grammar.getParseTable()));
+	}
+	
+	@Test
+	public void extendedGrammarParsesNewTags() throws Exception {
+		Grammar grammar = Grammar.load(EXTENDED, cache);
+		String document = "<html><head><title>Links</title></head><body>"
+				+ "<div><h1>Title</h1><p>See <a>this</a> and <h6>that</h6></div>"
+				+ "</body></html>";
+		ParseResult result = parse(grammar, document);
+		assertTrue(result.toString(), result.isAccepted());
+		assertFalse(parse(Grammar.html(), document).isAccepted());
+		
+		ParseResult unclosed = parse(grammar, "<html><head></head><body><div><h2>x</h3></div></body></html>");
+		assertFalse(unclosed.isAccepted());
+	}
+	
+	@Test
+	public void tableIsCached() throws Exception {
+		Grammar computed = Grammar.load(EXTENDED, cache);
+		assertFalse(computed.isParseTableLoaded());
+		try (Stream<Path> files = Files.list(cache)) {
+			assertEquals(1, files.count());
+		}
+		
+		Grammar loaded = Grammar.load(EXTENDED, cache);
+		assertTrue(loaded.isParseTableLoaded());
+		assertArrayEquals(written(computed.getParseTable()), written(loaded.getParseTable()));
+		
+		// Keyed by the rules, not by the layout of the file
+		Path reformatted = cache.resolve("reformatted.bnf");
+		Files.write(reformatted, ("# Comments do not matter\n" + new String(Files.readAllBytes(EXTENDED), StandardCharsets.UTF_8))
+				.getBytes(StandardCharsets.UTF_8));
+		assertTrue(Grammar.load(reformatted, cache).isParseTableLoaded());
+	}
+	
+	@Test
+	public void damagedCacheIsWrittenAgain() throws Exception {
+		Grammar.load(EXTENDED, cache);
+		Path table;
+		try (Stream<Path> files = Files.list(cache)) {
+			table = files.findFirst().get();
+		}
+		Files.write(table, new byte[] { 1, 2, 3 });
+		
+		Grammar grammar = Grammar.load(EXTENDED, cache);
+		assertFalse(grammar.isParseTableLoaded());
+		assertTrue(Grammar.load(EXTENDED, cache).isParseTableLoaded());
+	}
+	
+	@Test
+	public void alternativesAndEmptyExpansions() throws Exception {
+		String rules = Grammar.parseRules("list -> \"<ul>\" items \"</ul>\" # comment\nitems -> \"<li>\" [a-zA-Z] items | Ɛ").toString();
+		assertEquals("[list -> \"<ul>\" items \"</ul>\", items -> \"<li>\" [a-zA-Z] items, items -> Ɛ]", rules);
+	}
+	
+	@Test(expected = ParseException.class)
+	public void undefinedNonTerminalRejected() throws Exception {
+		Grammar.parseRules("document -> \"<html>\" body \"</html>\"");
+	}
+	
+	@Test(expected = ParseException.class)
+	public void unknownCharacterClassRejected() throws Exception {
+		Grammar.parseRules("char -> [a-z]");
+	}
+
+}
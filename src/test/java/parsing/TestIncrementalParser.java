@@ -0,0 +1,72 @@
+package parsing;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.Test;
+
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertTrue;
+import static parsing.ParseResults.assertSameResult;
+
+public class TestIncrementalParser {
+	
+	private static final String[] INSERTS = {
+		"word ", "<p>", "</p>", "<table><tr><td>x</td></tr></table>", "<ul><li>y</ul>", "<", "</td>", " ", "<br>"
+	};
+	
+	private static ParseResult parseWhole(CharSequence text) throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text.toString())))) {
+			return parser.parse();
+		}
+	}
+	
+	@Test
+	public void sameResultAsWholeDocument() throws Exception {
+		String text = new DocumentGenerator(400).size(128 * 1024).generate();
+		IncrementalParser parser = new IncrementalParser(text);
+		assertSameResult(parseWhole(text), parser.getResult());
+		
+		Random random = new Random(401);
+		for (int i = 0; i < 300; i++) {
+			int length = parser.getText().length();
+			int offset = random.nextInt(length);
+			int removed = random.nextInt(3) == 0 ? random.nextInt(Math.min(20, length - offset)) : 0;
+			String inserted = random.nextBoolean() ? INSERTS[random.nextInt(INSERTS.length)] : "";
+			
+			String removedText = parser.getText().subSequence(offset, offset + removed).toString();
+			ParseResult result = parser.edit(offset, removed, inserted);
+			assertSameResult(parseWhole(parser.getText()), result);
+			
+			// Undoing most edits keeps the document mostly accepted, which the old parse has to be to take over
+			if (random.nextInt(4) > 0) {
+				result = parser.edit(offset, inserted.length(), removedText);
+				assertSameResult(parseWhole(parser.getText()), result);
+			}
+		}
+	}
+	
+	// An edit parses again around where it was made, not the whole document
+	@Test
+	public void editsParseLocally() throws Exception {
+		String text = new DocumentGenerator(410).size(2 * 1024 * 1024).generate();
+		IncrementalParser parser = new IncrementalParser(text);
+		assertTrue(parser.getResult().isAccepted());
+		
+		Random random = new Random(411);
+		int edits = 200;
+		long parsed = 0;
+		for (int i = 0; i < edits; i++) {
+			CharSequence current = parser.getText();
+			int offset = random.nextInt(current.length() - 100);
+			while (current.charAt(offset) != ' ') {
+				offset++;
+			}
+			assertTrue(parser.edit(offset, 0, " word").isAccepted());
+			parsed += parser.getLastParsedLength();
+		}
+		assertTrue(parsed / edits < 64 * 1024);
+	}
+
+}
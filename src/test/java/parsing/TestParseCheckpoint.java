@@ -0,0 +1,146 @@
+package parsing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import lexicalanalysis.Token;
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestParseCheckpoint {
+	
+	// Stands for the process dying partway
+	@SuppressWarnings("serial")
+	private static class Died extends RuntimeException {
+	}
+	
+	private Path source;
+	
+	private Path checkpoint;
+	
+	@Before
+	public void setUp() throws Exception {
+		source = Files.createTempFile("checkpoint", ".html");
+		checkpoint = Files.createTempFile("checkpoint", ".bin");
+		Files.delete(checkpoint);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(source);
+		Files.deleteIfExists(checkpoint);
+	}
+	
+	private void write(String text) throws IOException {
+		Files.write(source, text.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private ParseResult parse(int maxErrors) throws IOException {
+		try (Parser parser = new Parser(TokenStream.open(source))) {
+			return parser.parse(null, maxErrors);
+		}
+	}
+	
+	// Parses with checkpoints until the lookahead is past dieAt, then goes on from the last checkpoint
+	private ParseResult resumed(int maxErrors, long interval, long dieAt) throws IOException {
+		try (Parser parser = new Parser(TokenStream.open(source))) {
+			parser.setCheckpoints(checkpoint, interval);
+			parser.parse(new ParseListener() {
+				@Override
+				public void consume(Token token, long position, long end) {
+					if (position > dieAt) {
+						throw new Died();
+					}
+				}
+			}, maxErrors);
+			fail("Parsed to the end");
+		} catch (Died e) {
+			// The checkpoint is what is left
+		}
+		
+		ParseCheckpoint saved = ParseCheckpoint.read(checkpoint, Grammar.html());
+		assertTrue(saved.getPosition() <= dieAt && saved.getPosition() > dieAt - interval - 1000);
+		try (Parser parser = Parser.resume(source, saved, Grammar.html())) {
+			return parser.parse(null, maxErrors);
+		}
+	}
+	
+	@Test
+	public void resumedLikeWhole() throws Exception {
+		write(new DocumentGenerator(3).size(1 << 20).generate());
+		ParseResult whole = parse(1);
+		assertTrue(whole.isAccepted());
+		for (long dieAt : new long[] { 100000, 500000, 1000000 }) {
+			assertEquals(whole.toString(), resumed(1, 64 * 1024, dieAt).toString());
+		}
+		assertTrue(Files.size(checkpoint) < 4096);
+	}
+	
+	// Errors before the checkpoint are in the result of the resumed parse
+	@Test
+	public void errorsBeforeCheckpoint() throws Exception {
+		String text = new DocumentGenerator(4).size(1 << 19).generate();
+		write(text.replace("2017", "20#17"));
+		ParseResult whole = parse(100000);
+		assertTrue(whole.getErrors().size() > 3);
+		
+		ParseResult resumed = resumed(100000, 32 * 1024, 300000);
+		assertEquals(whole.toString(), resumed.toString());
+		assertEquals(whole.getErrors().toString(), resumed.getErrors().toString());
+	}
+	
+	@Test
+	public void otherGrammarOrVersion() throws Exception {
+		write(new DocumentGenerator(5).size(1 << 18).generate());
+		resumed(1, 16 * 1024, 100000);
+		byte[] bytes = Files.readAllBytes(checkpoint);
+		
+		Grammar other = Grammar.load(Paths.get("doc/html-extended.bnf"), null);
+		try {
+			ParseCheckpoint.read(new ByteArrayInputStream(bytes), other);
+			fail("Read for other rules");
+		} catch (IOException e) {
+			assertEquals("Checkpoint of other rules", e.getMessage());
+		}
+		
+		bytes[7]++;
+		try {
+			ParseCheckpoint.read(new ByteArrayInputStream(bytes), Grammar.html());
+			fail("Read another version");
+		} catch (IOException e) {
+			assertEquals("Not a checkpoint of this version", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void sourceChanged() throws Exception {
+		write(new DocumentGenerator(6).size(1 << 18).generate());
+		resumed(1, 16 * 1024, 100000);
+		ParseCheckpoint saved = ParseCheckpoint.read(checkpoint, Grammar.html());
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		saved.write(out, Grammar.html());
+		assertEquals(Files.size(checkpoint), out.size());
+		
+		write(new DocumentGenerator(7).size(1 << 18).generate());
+		try {
+			Parser.resume(source, saved, Grammar.html()).close();
+			fail("Resumed another source");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("The source has changed"));
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+package parsing;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lexicalanalysis.Terminal;
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestParseMetrics {
+	
+	private static ParseResult parse(String text, ParseMetrics metrics) throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			parser.setMetrics(metrics);
+			return parser.parse();
+		}
+	}
+	
+	@Test
+	public void countsMatchResult() throws Exception {
+		String text = new DocumentGenerator(500).size(64 * 1024).generate();
+		ParseMetrics metrics = new ParseMetrics();
+		ParseResult result = parse(text, metrics);
+		assertTrue(result.isAccepted());
+		
+		assertEquals(result.getTokens(), metrics.getTokenCounts().values().stream().mapToLong(Long::longValue).sum());
+		assertEquals(result.getExpansions(), metrics.getExpansionCounts().values().stream().mapToLong(Long::longValue).sum());
+		assertEquals(1, metrics.getTokens(Terminal.newLiteralTerminal("<body>")));
+		assertEquals(1, metrics.getExpansions(Parser.getRules().get(0)));
+		assertEquals(text.length(), metrics.getBytes());
+		assertEquals(1, metrics.getDocuments());
+		assertTrue(metrics.getMaxStackDepth() > 0);
+		
+		// Counters of another parse add up
+		ParseMetrics total = new ParseMetrics();
+		total.add(metrics);
+		total.add(metrics);
+		assertEquals(2, total.getDocuments());
+		assertEquals(2 * result.getTokens(), total.getTokenCounts().values().stream().mapToLong(Long::longValue).sum());
+		assertEquals(metrics.getMaxStackDepth(), total.getMaxStackDepth());
+	}
+	
+	@Test
+	public void sameResultWithMetrics() throws Exception {
+		String text = new DocumentGenerator(501).size(64 * 1024).generate();
+		ParseResult without = parse(text, null);
+		ParseResult with = parse(text, new ParseMetrics());
+		assertEquals(without.getTokens(), with.getTokens());
+		assertEquals(without.getExpansions(), with.getExpansions());
+	}
+	
+	// A run is one token of the result, its characters the tokens the same parse reads without runs
+	@Test
+	public void textRunsCounted() throws Exception {
+		String text = new DocumentGenerator(503).size(64 * 1024).generate();
+		ParseMetrics characters = new ParseMetrics();
+		parse(text, characters);
+		
+		ParseMetrics runs = new ParseMetrics();
+		ParseResult result;
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			parser.setMetrics(runs);
+			parser.setTextRuns(true);
+			result = parser.parse();
+		}
+		assertTrue(result.isAccepted());
+		assertTrue(runs.getTextRuns() > 0);
+		long tokens = runs.getTokenCounts().values().stream().mapToLong(Long::longValue).sum();
+		assertEquals(result.getTokens(), tokens + runs.getTextRuns());
+		assertEquals(characters.getTokenCounts().values().stream().mapToLong(Long::longValue).sum(), tokens + runs.getTextCharacters());
+		assertEquals(0, characters.getTextRuns());
+	}
+	
+	@Test
+	public void recordsEvents() throws Exception {
+		Path file = Files.createTempFile("metrics", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				recording.enable("parsing.Document");
+				recording.enable("parsing.Phase");
+				recording.start();
+				parse("<html><head></head><body><p>a</ul></body></html>", null);
+				parse(new DocumentGenerator(502).size(4 * 1024).generate(), new ParseMetrics());
+				recording.stop();
+				recording.dump(file);
+			}
+			
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			long documents = events.stream().filter(e -> e.getEventType().getName().equals("parsing.Document")).count();
+			assertEquals(2, documents);
+			assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("parsing.Document")
+					&& !e.getBoolean("accepted") && e.getInt("errors") == 1));
+			assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("parsing.Document")
+					&& e.getBoolean("accepted") && e.getInt("maxStackDepth") > 0 && e.getLong("bytes") > 0));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	// The same metrics keep the deepest stack of all documents, an event the one of its document
+	@Test
+	public void eventStackDepthPerDocument() throws Exception {
+		Path file = Files.createTempFile("metrics", ".jfr");
+		try {
+			ParseMetrics metrics = new ParseMetrics();
+			try (Recording recording = new Recording()) {
+				recording.enable("parsing.Document");
+				recording.start();
+				StringBuilder deep = new StringBuilder("<html><head></head><body>");
+				for (int i = 0; i < 1000; i++) {
+					deep.append("<p>x ");
+				}
+				parse(deep.append("</body></html>").toString(), metrics);
+				parse("<html><head></head><body><p>x</p></body></html>", metrics);
+				recording.stop();
+				recording.dump(file);
+			}
+			
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			assertEquals(2, events.size());
+			events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+			assertEquals(metrics.getMaxStackDepth(), events.get(0).getInt("maxStackDepth"));
+			assertTrue(events.get(0).getInt("maxStackDepth") > 1000);
+			assertTrue(events.get(1).getInt("maxStackDepth") < 20);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package parsing;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import lexicalanalysis.TokenStream;
+import parsing.ParseClient.Answer;
+import parsing.ParseServer.Stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestParseServer {
+	
+	private ParseServer server;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new ParseServer(0, 16, 2, 1, Grammar.html());
+		server.start();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.close();
+	}
+	
+	private static String testDocument(int i) throws Exception {
+		return new String(Files.readAllBytes(Paths.get("src/test/resources/test" + i + ".html")), StandardCharsets.UTF_8);
+	}
+	
+	private static ParseResult parse(String text) throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			return parser.parse();
+		}
+	}
+	
+	@Test
+	public void sameResultsAsParser() throws Exception {
+		try (ParseClient client = new ParseClient(server.getPort())) {
+			for (int i = 1; i <= 4; i++) {
+				String text = testDocument(i);
+				Answer answer = client.validate(text);
+				assertTrue(answer.isAccepted());
+				assertEquals(parse(text) + "\n", answer.getText());
+			}
+			String rejected = "<html><head></head><body><p>text</td></body></html>";
+			Answer answer = client.validate(rejected);
+			assertEquals(ParseServer.REJECTED, answer.getStatus());
+			assertEquals(parse(rejected) + "\n", answer.getText());
+		}
+	}
+	
+	// Positions are byte offsets, the same as for the file given to Program
+	@Test
+	public void positionsInBytes() throws Exception {
+		String text = "<html><head><title>Caf\u00e9 \u00e0 \u5317\u4eac</title></head><body><p>\u00e9l\u00e8ve</td></body></html>";
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		Path file = Files.createTempFile("server", ".html");
+		try {
+			Files.write(file, bytes);
+			ParseResult expected;
+			try (Parser parser = new Parser(Grammar.html().open(file), Grammar.html())) {
+				expected = parser.parse();
+			}
+			assertFalse(expected.isAccepted());
+			assertEquals(text.substring(0, text.indexOf("</td>")).getBytes(StandardCharsets.UTF_8).length, expected.getErrorPosition());
+			
+			try (ParseClient client = new ParseClient(server.getPort())) {
+				assertEquals(expected + "\n", client.validate(text).getText());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void traceAndEvents() throws Exception {
+		String text = testDocument(1);
+		StringBuilder trace = new StringBuilder(parse(text) + "\n");
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			parser.parse(new TraceListener(step -> trace.append(step).append('\n')));
+		}
+		
+		try (ParseClient client = new ParseClient(server.getPort())) {
+			assertEquals(trace.toString(), client.trace(text).getText());
+			String[] events = client.events(text).getText().split("\n");
+			assertEquals(parse(text).toString(), events[0]);
+			assertTrue(events[1].startsWith("start "));
+			assertTrue(events[events.length - 1].startsWith("end "));
+		}
+	}
+	
+	// Clients wait for documents in flight rather than all being parsed at once
+	@Test
+	public void manyClients() throws Exception {
+		List<String> documents = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			documents.add(new DocumentGenerator(i).size(32 * 1024).unclosed(i % 2 == 0).generate());
+		}
+		
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<>();
+			for (int c = 0; c < 8; c++) {
+				futures.add(clients.submit(() -> {
+					List<String> answers = new ArrayList<>();
+					try (ParseClient client = new ParseClient(server.getPort())) {
+						for (String document : documents) {
+							answers.add(client.validate(document).getText());
+						}
+					}
+					return answers;
+				}));
+			}
+			List<String> expected = new ArrayList<>();
+			for (String document : documents) {
+				expected.add(parse(document) + "\n");
+			}
+			for (Future<List<String>> future : futures) {
+				assertEquals(expected, future.get());
+			}
+		} finally {
+			clients.shutdown();
+		}
+		
+		Stats stats = server.getStats();
+		assertEquals(8 * 16, stats.getDocuments());
+		assertTrue(stats.getPeakInFlight() <= 2);
+		assertEquals(0, stats.getInFlight());
+		assertTrue(stats.getLatencyNanos(50) <= stats.getLatencyNanos(99));
+		assertTrue(stats.getLatencyNanos(99) <= stats.getLatencyNanos(100));
+		
+		try (ParseClient client = new ParseClient(server.getPort())) {
+			Answer answer = client.stats();
+			assertEquals(ParseServer.OK, answer.getStatus());
+			assertTrue(answer.getText(), answer.getText().startsWith("128 documents"));
+		}
+	}
+	
+	@Test
+	public void badRequests() throws Exception {
+		try (ParseClient client = new ParseClient(server.getPort())) {
+			assertEquals(ParseServer.FAILED, client.send((byte) 'X', new byte[0]).getStatus());
+		}
+		try (ParseClient client = new ParseClient(server.getPort())) {
+			Answer answer = client.send(ParseServer.VALIDATE, "<html>".getBytes(StandardCharsets.UTF_8));
+			assertFalse(answer.isAccepted());
+			assertEquals(ParseServer.REJECTED, answer.getStatus());
+		}
+	}
+
+	@Test
+	public void connectionsOverTheLimitWait() throws Exception {
+		ExecutorService clients = Executors.newSingleThreadExecutor();
+		try (ParseServer limited = new ParseServer(0, 1, 1, 1, Grammar.html())) {
+			limited.start();
+			ParseClient first = new ParseClient(limited.getPort());
+			assertTrue(first.validate(testDocument(1)).isAccepted());
+			
+			Future<Answer> second = clients.submit(() -> {
+				try (ParseClient client = new ParseClient(limited.getPort())) {
+					return client.validate(testDocument(2));
+				}
+			});
+			try {
+				second.get(300, TimeUnit.MILLISECONDS);
+				fail("Served over the limit of connections");
+			} catch (TimeoutException e) {
+				// Waits in the backlog until the first is closed
+			}
+			first.close();
+			assertTrue(second.get(10, TimeUnit.SECONDS).isAccepted());
+		} finally {
+			clients.shutdownNow();
+		}
+}
+
+}
@@ -0,0 +1,143 @@
+package parsing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Table;
+
+import lexicalanalysis.FirstFollow;
+import lexicalanalysis.Terminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestParseTable {
+	
+	@Test
+	public void sameRulesAsRuleTable() {
+		FirstFollow firstFollow = Parser.getFirstFollow();
+		Table<NonTerminal, Terminal, Rule> ruleTable = firstFollow.createRuleTable();
+		ParseTable parseTable = firstFollow.compileRuleTable();
+		
+		for (Table.Cell<NonTerminal, Terminal, Rule> cell : ruleTable.cellSet()) {
+			int nt = parseTable.getNonTerminalId(cell.getRowKey());
+			assertSame(cell.getValue(), parseTable.getRule(parseTable.getRuleId(nt, cell.getColumnKey().getId())));
+		}
+		
+		int cells = 0;
+		for (int nt = 0; nt < parseTable.getNonTerminalCount(); nt++) {
+			for (int t = 0; t < parseTable.getTerminalCount(); t++) {
+				if (parseTable.getRuleId(nt, t) != ParseTable.NO_RULE) {
+					cells++;
+				}
+			}
+		}
+		assertEquals(ruleTable.size(), cells);
+	}
+	
+	// The table compiled by the build is the one the rules give now
+	@Test
+	public void generatedTableEqualsComputed() throws Exception {
+		ParseTable computed = new FirstFollow(Parser.getRules()).compileRuleTable();
+		try (InputStream in = Grammar.class.getResourceAsStream(Grammar.PARSE_TABLE_RESOURCE)) {
+			assertNotNull(in);
+			assertEquals(computed, ParseTable.read(Parser.getRules(), in));
+		}
+		assertEquals(computed, Parser.getParseTable());
+		
+		for (int nt = 0; nt < computed.getNonTerminalCount(); nt++) {
+			for (Terminal terminal : Parser.getFirstFollow().getFollow(computed.getNonTerminal(nt))) {
+				assertTrue(computed.canFollow(nt, terminal.getId()));
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void otherRulesRejected() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Parser.getParseTable().write(out);
+		ParseTable.read(Parser.getRules().subList(1, Parser.getRules().size()), new ByteArrayInputStream(out.toByteArray()));
+	}
+	
+	// Offset of the rule in the first cell written of a row of the nonterminal
+	private static int firstRuleOffset(byte[] bytes, int nonTerminal) throws IOException {
+		DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+		data.skipBytes(16);
+		int nonTerminals = data.readInt();
+		data.skipBytes(4);
+		int names = data.readInt();
+		for (int i = 0; i < names; i++) {
+			data.readUTF();
+		}
+		for (int nt = 0; nt < nonTerminals; nt++) {
+			int cells = data.readInt();
+			if (nt == nonTerminal && cells > 0) {
+				return bytes.length - data.available() + 4;
+			}
+			data.skipBytes(cells * 8);
+		}
+		throw new IllegalArgumentException("No cells of " + nonTerminal);
+	}
+
+	private static void assertRejected(byte[] bytes) {
+		try {
+			ParseTable.read(Parser.getRules(), new ByteArrayInputStream(bytes));
+			fail("Damaged table read");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+	
+	@Test
+	public void damagedRuleIdsRejected() throws Exception {
+		ParseTable parseTable = Parser.getParseTable();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		parseTable.write(out);
+		byte[] bytes = out.toByteArray();
+		int nt = parseTable.getRuleNonTerminal(0);
+		int offset = firstRuleOffset(bytes, nt);
+		int other = 0;
+		while (parseTable.getRuleNonTerminal(other) == nt) {
+			other++;
+		}
+		
+		for (int rule : new int[] { parseTable.getRuleCount(), Integer.MAX_VALUE, -1, other }) {
+			byte[] damaged = bytes.clone();
+			for (int i = 0; i < 4; i++) {
+				damaged[offset + i] = (byte) (rule >> 24 - 8 * i);
+			}
+			assertRejected(damaged);
+		}
+	}
+	
+	// Ids past those of a short are read back as they were written
+	@Test
+	public void largeIdsReadBack() throws Exception {
+		List<Rule> rules = new ArrayList<>();
+		rules.add(Rule.define("large-document", NonTerminal.withName("large-word"), Terminal.newLiteralTerminal("large-end")));
+		for (int i = 0; i < 40000; i++) {
+			rules.add(Rule.define("large-word", Terminal.newLiteralTerminal("large-" + i)));
+		}
+		ParseTable parseTable = new FirstFollow(rules).compileRuleTable();
+		Terminal last = Terminal.newLiteralTerminal("large-39999");
+		assertTrue(last.getId() > Short.MAX_VALUE);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		parseTable.write(out);
+		ParseTable read = ParseTable.read(rules, new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(parseTable, read);
+		int word = read.getNonTerminalId(NonTerminal.withName("large-word"));
+		assertSame(rules.get(40000), read.getRule(read.getRuleId(word, last.getId())));
+	}
+	
+}
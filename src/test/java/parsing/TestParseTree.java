@@ -0,0 +1,105 @@
+package parsing;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestParseTree {
+	
+	private static ParseTree build(String text) throws Exception {
+		ParseTreeBuilder builder = new ParseTreeBuilder();
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			assertTrue(parser.parse(builder).isAccepted());
+		}
+		return builder.getTree();
+	}
+	
+	private static List<String> textsOf(ParseTree tree, String nonTerminal, String source) {
+		List<String> texts = new ArrayList<>();
+		tree.walk((t, node) -> {
+			if (t.getNonTerminal(node).getName().equals(nonTerminal)) {
+				texts.add(t.getText(node, source).toString());
+			}
+		});
+		return texts;
+	}
+	
+	@Test
+	public void nodesSpanTheirSource() throws Exception {
+		String text = new String(Files.readAllBytes(Paths.get("src/test/resources/test2.html")), "UTF-8");
+		ParseTree tree = build(text);
+		
+		int root = tree.getRoot();
+		assertEquals("htmldocument", tree.getNonTerminal(root).getName());
+		assertEquals(text.trim(), tree.getText(root, text).toString());
+		
+		assertEquals(textsOf(tree, "titletag", text).get(0), "<title>Sample \"Hello, World\" Application</title>");
+		List<String> contents = textsOf(tree, "content", text);
+		assertTrue(contents.contains("Sample \"Hello, World\" Application"));
+		assertTrue(contents.contains("To a servlet."));
+		assertEquals(2, textsOf(tree, "paragraph", text).size());
+	}
+	
+	@Test
+	public void childrenAreOrdered() throws Exception {
+		String text = "<html><head></head><body><ul><li>Coffee <li>Tea <li>Milk</ul></body></html>";
+		ParseTree tree = build(text);
+		
+		List<String> items = new ArrayList<>();
+		tree.walk((t, node) -> {
+			if (t.getNonTerminal(node).getName().equals("listitems")) {
+				for (int child = t.getFirstChild(node); child >= 0; child = t.getNextSibling(child)) {
+					items.add(t.getText(child, text).toString());
+				}
+			}
+		});
+		assertEquals(3, items.size());
+		assertEquals("Coffee", items.get(0));
+		assertEquals("Milk", items.get(2));
+	}
+	
+	@Test
+	public void deepDocuments() throws Exception {
+		StringBuilder builder = new StringBuilder("<html><head></head><body>");
+		for (int i = 0; i < 100000; i++) {
+			builder.append("<p>x ");
+		}
+		String text = builder.append("</body></html>").toString();
+		
+		ParseTree tree = build(text);
+		int[] depth = { 0, 0 };
+		tree.walk(new ParseTree.Visitor() {
+			@Override
+			public void enter(ParseTree t, int node) {
+				depth[1] = Math.max(depth[1], ++depth[0]);
+			}
+			@Override
+			public void leave(ParseTree t, int node) {
+				depth[0]--;
+			}
+		});
+		assertTrue(depth[1] > 100000);
+		assertEquals(0, depth[0]);
+	}
+	
+	@Test
+	public void memoryPerInput() throws Exception {
+		for (double textRatio : new double[] { 0.2, 0.5, 0.8 }) {
+			String text = new DocumentGenerator(9).size(4 * 1024 * 1024).textRatio(textRatio).generate();
+			ParseTree tree = build(text);
+			// Nodes of 32 bytes, and up to as many again for the room the arrays grow by
+			assertTrue(tree.memoryUsage() <= 2L * 32 * tree.size());
+			assertTrue(tree.memoryUsage() < 4L * text.length());
+		}
+	}
+
+}
@@ -0,0 +1,241 @@
+package parsing;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestParser {
+	
+	private static String repeat(String text, int times) {
+		StringBuilder builder = new StringBuilder(text.length() * times);
+		for (int i = 0; i < times; i++) {
+			builder.append(text);
+		}
+		return builder.toString();
+	}
+	
+	private static String document(String body) {
+		return "<html><head></head><body>" + body + "</body></html>";
+	}
+	
+	// Parses to the end, returns the number of steps and the highest stack depth
+	private static long[] parse(String text) throws Exception {
+		long steps = 0;
+		long maxDepth = 0;
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			while (!parser.step().isDone()) {
+				steps++;
+				maxDepth = Math.max(maxDepth, parser.getStackDepth());
+			}
+		}
+		return new long[] { steps, maxDepth };
+	}
+	
+	@Test
+	public void deeplyNestedParagraphs() throws Exception {
+		String text = document(repeat("<p>text ", 50000));
+		assertTrue(parse(text)[1] > 50000);
+	}
+	
+	@Test
+	public void deeplyNestedCells() throws Exception {
+		String text = document(repeat("<table><tr><td>cell ", 20000) + repeat("</tr></table>", 20000));
+		assertTrue(parse(text)[1] > 20000);
+	}
+	
+	@Test
+	public void generatedDocument() throws Exception {
+		String text = new DocumentGenerator(6).size(1024 * 1024).unclosed(true).generate();
+		ParseResult result = parse(text, 1);
+		assertTrue(result.isAccepted());
+		assertEquals(parse(text)[0] + 1, result.getSteps());
+	}
+	
+	@Test
+	public void parseCountsSteps() throws Exception {
+		String text = new DocumentGenerator(7).size(64 * 1024).generate();
+		
+		long[] stepped = parse(text);
+		List<String> trace = new ArrayList<>();
+		ParseResult result;
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			result = parser.parse(new TraceListener(step -> trace.add(step.toString())));
+		}
+		assertTrue(result.isAccepted());
+		assertEquals(stepped[0] + 1, result.getSteps());
+		assertEquals(result.getSteps(), trace.size());
+		assertEquals("# ; $ -> A", trace.get(trace.size() - 1));
+		
+		// Without a listener, runs of text are only counted
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			ParseResult counted = parser.parse();
+			assertEquals(result.getTokens(), counted.getTokens());
+			assertEquals(result.getExpansions(), counted.getExpansions());
+		}
+	}
+	
+	@Test
+	public void parseReportsErrorPosition() throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(document("<p>x</td>"))))) {
+			ParseResult result = parser.parse();
+			assertFalse(result.isAccepted());
+			assertEquals(29, result.getErrorPosition());
+		}
+		try (Parser parser = new Parser(new TokenStream(new StringReader(document("<p>x = y"))))) {
+			assertEquals(30, parser.parse().getErrorPosition());
+		}
+	}
+	
+	private static ParseResult parse(String text, int maxErrors) throws Exception {
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			return parser.parse(null, maxErrors);
+		}
+	}
+	
+	@Test
+	public void recoveryCollectsErrors() throws Exception {
+		String text = document("<p>a</p> </ul> b <x> <table><tr><td>c</td></tr></table> \u20ac d");
+		ParseResult result = parse(text, 10);
+		assertFalse(result.isAccepted());
+		assertEquals(3, result.getErrors().size());
+		assertEquals(text.indexOf("</ul>"), result.getErrors().get(0).getPosition());
+		assertEquals(text.indexOf("<x>"), result.getErrors().get(1).getPosition());
+		assertEquals(text.indexOf("\u20ac"), result.getErrors().get(2).getPosition());
+		
+		ParseResult first = parse(text, 1);
+		assertEquals(1, first.getErrors().size());
+		assertEquals(first.getErrorPosition(), result.getErrorPosition());
+		assertEquals(first.getErrorMessage(), result.getErrorMessage());
+		assertEquals(2, parse(text, 2).getErrors().size());
+	}
+	
+	@Test
+	public void recoveryTerminates() throws Exception {
+		String[] garbage = { "</p>", "<td>", "</tr>", "<li>", "</ul>", "<", "=", "</body>", "<html>", "<meta name=", "\u20ac" };
+		String text = new DocumentGenerator(9).size(4 * 1024).unclosed(true).generate();
+		Random random = new Random(10);
+		for (int i = 0; i < 300; i++) {
+			StringBuilder broken = new StringBuilder(text);
+			for (int j = 0; j < 1 + random.nextInt(5); j++) {
+				int offset = random.nextInt(broken.length());
+				if (random.nextBoolean()) {
+					broken.delete(offset, Math.min(broken.length(), offset + random.nextInt(10)));
+				} else {
+					broken.insert(offset, garbage[random.nextInt(garbage.length)]);
+				}
+			}
+			
+			ParseResult first = parse(broken.toString(), 1);
+			ParseResult result = parse(broken.toString(), 50);
+			assertEquals(first.isAccepted(), result.isAccepted());
+			assertEquals(first.getErrorPosition(), result.getErrorPosition());
+			assertTrue(result.getErrors().size() <= 50);
+			for (int e = 1; e < result.getErrors().size(); e++) {
+				assertTrue(result.getErrors().get(e - 1).getPosition() <= result.getErrors().get(e).getPosition());
+			}
+		}
+	}
+	
+	// parse() counts the steps step() takes one by one
+	@Test
+	public void parseWithoutTrace() throws Exception {
+		String text = new DocumentGenerator(8).size(1024 * 1024).generate();
+		long steps = 0;
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			ParseStep step;
+			do {
+				step = parser.step();
+				steps++;
+			} while (!step.isDone());
+		}
+		
+		ParseResult result;
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			result = parser.parse();
+		}
+		assertTrue(result.isAccepted());
+		assertEquals(steps, result.getSteps());
+	}
+	
+	@Test
+	public void handlerEventsMatchTree() throws Exception {
+		String text = new DocumentGenerator(10).size(256 * 1024).unclosed(true).generate();
+		
+		ParseTreeBuilder builder = new ParseTreeBuilder();
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			parser.parse(builder);
+		}
+		List<String> expected = new ArrayList<>();
+		builder.getTree().walk(new ParseTree.Visitor() {
+			@Override
+			public void enter(ParseTree tree, int node) {
+				expected.add("<" + tree.getNonTerminal(node) + " " + tree.getStart(node));
+			}
+			@Override
+			public void leave(ParseTree tree, int node) {
+				expected.add(tree.getNonTerminal(node) + " " + tree.getEnd(node) + ">");
+			}
+		});
+		
+		List<String> events = new ArrayList<>();
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			assertTrue(parser.parse(new ParseHandler() {
+				@Override
+				public void startElement(NonTerminal nonTerminal, long position) {
+					events.add("<" + nonTerminal + " " + position);
+				}
+				@Override
+				public void endElement(NonTerminal nonTerminal, long position) {
+					events.add(nonTerminal + " " + position + ">");
+				}
+			}).isAccepted());
+		}
+		assertEquals(expected, events);
+	}
+	
+	@Test
+	public void handlerReportsText() throws Exception {
+		String text = document("<p>Hello,  World</p><ul><li>x</ul>");
+		List<String> texts = new ArrayList<>();
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			parser.parse(new ParseHandler() {
+				@Override
+				public void text(long start, long end) {
+					texts.add(text.substring((int) start, (int) end));
+				}
+			});
+		}
+		assertEquals(2, texts.size());
+		assertEquals("Hello,  World", texts.get(0));
+		assertEquals("x", texts.get(1));
+	}
+	
+	@Test
+	public void handlerInConstantMemory() throws Exception {
+		String text = document(repeat("<p>" + repeat("word ", 20000) + "</p>", 50));
+		int[] maxDepth = { 0 };
+		try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+			assertTrue(parser.parse(new ParseHandler() {
+				@Override
+				public void text(long start, long end) {
+					maxDepth[0] = Math.max(maxDepth[0], parser.getStackDepth());
+				}
+				@Override
+				public void endElement(NonTerminal nonTerminal, long position) {
+					maxDepth[0] = Math.max(maxDepth[0], parser.getStackDepth());
+				}
+			}).isAccepted());
+		}
+		assertTrue(maxDepth[0] < 32);
+	}
+	
+}
@@ -0,0 +1,173 @@
+package parsing;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import lexicalanalysis.Token;
+import lexicalanalysis.TokenStream;
+import parsing.PushParser.Status;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestPushParser {
+	
+	private static class Recorder implements ParseListener {
+		
+		private final List<String> steps = new ArrayList<>();
+		
+		@Override
+		public void expand(int ruleId, Token token, long position) {
+			steps.add("E " + ruleId + " " + token + " " + position);
+		}
+		
+		@Override
+		public void consume(Token token, long position, long end) {
+			steps.add("C " + token + " " + position + " " + end);
+		}
+		
+		@Override
+		public void accept(long position) {
+			steps.add("A " + position);
+		}
+	
+	}
+	
+	// Steps and result of the mapped file, which has byte positions too
+	private static List<String> expected(byte[] bytes) throws Exception {
+		Path file = Files.createTempFile("push", ".html");
+		try {
+			Files.write(file, bytes);
+			Recorder recorder = new Recorder();
+			try (Parser parser = new Parser(TokenStream.open(file))) {
+				recorder.steps.add(parser.parse(recorder).toString());
+			}
+			return recorder.steps;
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	private static List<String> pushed(byte[] bytes, Random random, int maxChunk) {
+		Recorder recorder = new Recorder();
+		PushParser parser = new PushParser(Grammar.html(), recorder);
+		int offset = 0;
+		while (offset < bytes.length && parser.getStatus() == Status.NEED_MORE_INPUT) {
+			int length = Math.min(bytes.length - offset, 1 + random.nextInt(maxChunk));
+			ByteBuffer chunk = ByteBuffer.wrap(bytes, offset, length);
+			parser.feed(chunk);
+			assertEquals(0, chunk.remaining());
+			offset += length;
+		}
+		recorder.steps.add(parser.end().toString());
+		return recorder.steps;
+	}
+	
+	private static void assertSameParse(String text) throws Exception {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		List<String> expected = expected(bytes);
+		Random random = new Random(bytes.length);
+		for (int maxChunk : new int[] { 1, 3, 16, 4096, 1 << 20 }) {
+			assertEquals(expected, pushed(bytes, random, maxChunk));
+		}
+	}
+	
+	private static String document(String body) {
+		return "<html><head><title>Pushed</title></head><body>" + body + "</body></html>";
+	}
+	
+	@Test
+	public void testDocuments() throws Exception {
+		for (int i = 1; i <= 4; i++) {
+			assertSameParse(new String(Files.readAllBytes(Paths.get("src/test/resources/test" + i + ".html")), StandardCharsets.UTF_8));
+		}
+	}
+	
+	@Test
+	public void generatedDocuments() throws Exception {
+		for (long seed = 0; seed < 6; seed++) {
+			assertSameParse(new DocumentGenerator(seed).size(20000).unclosed(seed % 2 == 0).generate());
+		}
+	}
+	
+	@Test
+	public void errors() throws Exception {
+		assertSameParse(document("a # b"));
+		assertSameParse(document("<table>text</table>"));
+		assertSameParse(document("text") + " trailing");
+		assertSameParse("<html><head><title>unclosed");
+		assertSameParse(document("xÿࠀy café €"));
+		assertSameParse("");
+	}
+	
+	// The literal waits for the rest of it, text before it does not
+	@Test
+	public void literalAcrossChunks() {
+		PushParser parser = new PushParser();
+		assertEquals(Status.NEED_MORE_INPUT, parser.feed(ByteBuffer.wrap("<html><head></head><body>text <ta".getBytes(StandardCharsets.UTF_8))));
+		assertEquals(3, parser.getBuffered());
+		assertNull(parser.getResult());
+		assertEquals(Status.NEED_MORE_INPUT, parser.feed(ByteBuffer.wrap("ble><tr><td>x</td></tr></table></body></html>".getBytes(StandardCharsets.UTF_8))));
+		assertTrue(parser.end().isAccepted());
+		assertEquals(Status.ACCEPTED, parser.getStatus());
+		
+		byte[] letter = "é".getBytes(StandardCharsets.UTF_8);
+		parser = new PushParser();
+		parser.feed(ByteBuffer.wrap("<html><head></head><body>".getBytes(StandardCharsets.UTF_8)));
+		parser.feed(ByteBuffer.wrap(letter, 0, 1));
+		assertEquals(1, parser.getBuffered());
+		parser.feed(ByteBuffer.wrap(letter, 1, 1));
+		assertEquals(0, parser.getBuffered());
+		parser.feed(ByteBuffer.wrap("</body></html>".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(parser.end().isAccepted());
+	}
+	
+	@Test
+	public void rejectedBeforeEnd() {
+		PushParser parser = new PushParser();
+		assertEquals(Status.REJECTED, parser.feed(ByteBuffer.wrap("<html><body></body></html>".getBytes(StandardCharsets.UTF_8))));
+		ByteBuffer ignored = ByteBuffer.wrap("more".getBytes(StandardCharsets.UTF_8));
+		assertEquals(Status.REJECTED, parser.feed(ignored));
+		assertEquals(0, ignored.remaining());
+		assertEquals(6, parser.end().getErrorPosition());
+	}
+	
+	// One thread takes turns with all documents, none of them holds it while waiting for input
+	@Test
+	public void manyDocumentsOnOneThread() throws Exception {
+		int count = 1000;
+		List<byte[]> documents = new ArrayList<>();
+		List<PushParser> parsers = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			documents.add(new DocumentGenerator(i).size(4096).unclosed(i % 3 == 0).generate().getBytes(StandardCharsets.UTF_8));
+			parsers.add(new PushParser());
+		}
+		
+		for (int offset = 0, fed = count; fed > 0; offset += 64) {
+			fed = 0;
+			for (int i = 0; i < count; i++) {
+				byte[] bytes = documents.get(i);
+				if (offset < bytes.length) {
+					parsers.get(i).feed(ByteBuffer.wrap(bytes, offset, Math.min(64, bytes.length - offset)));
+					fed++;
+				}
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			try (Parser parser = new Parser(new TokenStream(new ByteArrayInputStream(documents.get(i))))) {
+				assertEquals(parser.parse().toString(), parsers.get(i).end().toString());
+			}
+		}
+	}
+
+}
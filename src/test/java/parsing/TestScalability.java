@@ -0,0 +1,177 @@
+package parsing;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertTrue;
+
+// Parses documents of a few shapes from 1 KB up to -Dscalability.maxSize (16m by default, a few g for
+// a full run) on a thread with a small stack, so that recursion per token fails the test. Time and heap
+// kept by the parser are recorded per size in target/scalability.csv.
+public class TestScalability {
+	
+	private static final long KB = 1024;
+	
+	private static final long STACK_SIZE = 256 * KB;
+	
+	// Heap the parser may keep for documents that do not nest
+	private static final long FLAT_HEAP = 4 * KB * KB;
+	
+	private interface Shape {
+		
+		void write(Path file, long size) throws IOException;
+	
+	}
+	
+	private static PrintWriter csv;
+	
+	@BeforeClass
+	public static void openReport() throws IOException {
+		Files.createDirectories(Paths.get("target"));
+		csv = new PrintWriter(Files.newBufferedWriter(Paths.get("target/scalability.csv"), StandardCharsets.UTF_8));
+		csv.println("shape;bytes;millis;MB/s;heap bytes");
+	}
+	
+	@AfterClass
+	public static void closeReport() {
+		csv.close();
+	}
+	
+	private static long maxSize() {
+		String value = System.getProperty("scalability.maxSize", "16m").toLowerCase();
+		int shift = value.endsWith("g") ? 30 : value.endsWith("m") ? 20 : value.endsWith("k") ? 10 : 0;
+		if (shift > 0) {
+			value = value.substring(0, value.length() - 1);
+		}
+		return Long.parseLong(value) << shift;
+	}
+	
+	private static List<Long> sizes() {
+		List<Long> sizes = new ArrayList<>();
+		for (long size = KB; size <= maxSize(); size *= 16) {
+			sizes.add(size);
+		}
+		if (sizes.get(sizes.size() - 1) < maxSize()) {
+			sizes.add(maxSize());
+		}
+		return sizes;
+	}
+	
+	// Writes head, the unit until the size is reached, as many closing units and then the tail
+	private static Shape repeat(String head, String unit, String closing, String tail) {
+		return (file, size) -> {
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				writer.write(head);
+				long count = Math.max(1, (size - head.length() - tail.length()) / (unit.length() + closing.length()));
+				for (long i = 0; i < count; i++) {
+					writer.write(unit);
+				}
+				for (long i = 0; i < count && !closing.isEmpty(); i++) {
+					writer.write(closing);
+				}
+				writer.write(tail);
+			}
+		};
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	// Parses on a thread of its own, returns the time taken and the heap still held by the parser
+	private static long[] parse(Path file) throws Exception {
+		long[] measured = new long[2];
+		Throwable[] failure = new Throwable[1];
+		Thread thread = new Thread(null, () -> {
+			try {
+				long before = usedHeap();
+				long start = System.nanoTime();
+				try (Parser parser = new Parser(TokenStream.open(file))) {
+					ParseResult result = parser.parse();
+					measured[0] = System.nanoTime() - start;
+					assertTrue(file + ": " + result, result.isAccepted());
+					measured[1] = Math.max(0, usedHeap() - before);
+					assertTrue(parser.getStackDepth() == 0);
+				}
+			} catch (Throwable e) {
+				failure[0] = e;
+			}
+		}, "scalability", STACK_SIZE);
+		thread.start();
+		thread.join();
+		if (failure[0] instanceof Exception) {
+			throw (Exception) failure[0];
+		} else if (failure[0] != null) {
+			throw new AssertionError(failure[0]);
+		}
+		return measured;
+	}
+	
+	private static void run(String name, Shape shape, long heapPerByte) throws Exception {
+		for (long size : sizes()) {
+			Path file = Files.createTempFile("scalability", ".html");
+			try {
+				shape.write(file, size);
+				long bytes = Files.size(file);
+				long[] measured = parse(file);
+				
+				String line = String.format("%s;%d;%d;%.1f;%d", name, bytes, measured[0] / 1000000,
+						bytes * 1e3 / Math.max(1, measured[0]), measured[1]);
+				System.out.println(line);
+				csv.println(line);
+				assertTrue(line, measured[1] < FLAT_HEAP + heapPerByte * bytes);
+			} finally {
+				Files.delete(file);
+			}
+		}
+	}
+	
+	@Test
+	public void generated() throws Exception {
+		run("generated", (file, size) -> new DocumentGenerator(size).size(size).generate(file), 0);
+	}
+	
+	@Test
+	public void whitespaceRun() throws Exception {
+		run("whitespace", repeat("<html><head></head><body>a", " \t\n\r\n  ", "", "b</body></html>"), 0);
+	}
+	
+	@Test
+	public void textRun() throws Exception {
+		run("text", repeat("<html><head></head><body><p>", "abcdefghij", "", "</p></body></html>"), 0);
+	}
+	
+	@Test
+	public void wideTable() throws Exception {
+		run("wide table", repeat("<html><head></head><body><table><tr>", "<td>x</td>", "", "</tr></table></body></html>"), 0);
+	}
+	
+	// The stack of the parser grows with the nesting, it is kept on the heap
+	@Test
+	public void deepParagraphs() throws Exception {
+		run("nested paragraphs", repeat("<html><head></head><body>", "<p>x ", "", "</body></html>"), 8);
+	}
+	
+	@Test
+	public void deepCells() throws Exception {
+		run("nested cells", repeat("<html><head></head><body>", "<table><tr><td>x ", "</tr></table>", "</body></html>"), 8);
+	}
+
+}
@@ -0,0 +1,108 @@
+package parsing;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static parsing.ParseResults.assertSameResult;
+
+public class TestSplitParser {
+	
+	private final List<Path> files = new ArrayList<>();
+	
+	@After
+	public void tearDown() throws Exception {
+		for (Path file : files) {
+			Files.delete(file);
+		}
+	}
+	
+	private Path write(String text) throws Exception {
+		Path file = Files.createTempFile("split", ".html");
+		files.add(file);
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+	
+	private static ParseResult parseWhole(Path path) throws Exception {
+		try (Parser parser = new Parser(TokenStream.open(path))) {
+			return parser.parse();
+		}
+	}
+	
+	private static ParseResult parseSplit(Path path, int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			return new SplitParser(executor, threads).parse(path);
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void sameResultAsWholeDocument() throws Exception {
+		for (int i = 0; i < 6; i++) {
+			Path file = write(new DocumentGenerator(300 + i).size(2 * 1024 * 1024).unclosed(i % 3 == 2).generate());
+			ParseResult whole = parseWhole(file);
+			assertTrue(whole.isAccepted());
+			for (int threads : new int[] { 2, 3, 8 }) {
+				assertSameResult(whole, parseSplit(file, threads));
+			}
+		}
+	}
+	
+	@Test
+	public void errorInPieceFallsBack() throws Exception {
+		String text = new DocumentGenerator(310).size(2 * 1024 * 1024).generate();
+		List<Long> points = SplitParser.findSplitPoints(write(text));
+		int middle = points.get(points.size() / 2).intValue();
+		// Splitting does not notice the stray item, the piece with it is rejected
+		Path file = write(text.substring(0, middle) + "<li>" + text.substring(middle));
+		assertEquals(points.size(), SplitParser.findSplitPoints(file).size());
+		
+		ParseResult whole = parseWhole(file);
+		assertFalse(whole.isAccepted());
+		assertSameResult(whole, parseSplit(file, 4));
+	}
+	
+	@Test
+	public void splitPoints() throws Exception {
+		Path file = write("<html><head></head><body>a<p>b</p><table><tr><td><p>c</td></tr></table>"
+				+ "<ul><li>d</ul>e<p>f<dl><dt>g</dl></body></html>");
+		String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		List<Long> expected = new ArrayList<>();
+		expected.add((long) text.indexOf("<p>b"));
+		expected.add((long) text.indexOf("<table>"));
+		expected.add((long) text.indexOf("<ul>"));
+		// Nothing after an unclosed paragraph at the top level, it takes in the tags that follow
+		expected.add((long) text.indexOf("<p>f"));
+		expected.add((long) text.indexOf("</body>"));
+		assertEquals(expected, SplitParser.findSplitPoints(file));
+		
+		assertTrue(SplitParser.findSplitPoints(write("<html><head></head><body><p>a</ul></body></html>")).isEmpty());
+		assertTrue(SplitParser.findSplitPoints(write("<html><head></head><body><p>a")).isEmpty());
+	}
+	
+	@Test
+	public void sameResultOnAnyNumberOfThreads() throws Exception {
+		Path file = write(new DocumentGenerator(320).size(256 * 1024).generate());
+		ParseResult whole = parseWhole(file);
+		assertTrue(whole.isAccepted());
+		for (int threads = 2; threads <= Math.max(Runtime.getRuntime().availableProcessors(), 4); threads *= 2) {
+			assertSameResult(whole, parseSplit(file, threads));
+		}
+	}
+
+}
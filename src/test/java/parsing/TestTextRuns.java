@@ -0,0 +1,172 @@
+package parsing;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import lexicalanalysis.TextRun;
+import lexicalanalysis.Token;
+import lexicalanalysis.TokenStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestTextRuns {
+	
+	private static class Recorder implements ParseHandler {
+		
+		private final List<String> events = new ArrayList<>();
+		
+		@Override
+		public void startElement(NonTerminal nonTerminal, long position) {
+			events.add("S " + nonTerminal + " " + position);
+		}
+		
+		@Override
+		public void endElement(NonTerminal nonTerminal, long position) {
+			events.add("/ " + nonTerminal + " " + position);
+		}
+		
+		@Override
+		public void text(long start, long end) {
+			events.add("T " + start + " " + end);
+		}
+		
+		@Override
+		public void error(String message, long position) {
+			events.add("! " + message + " " + position);
+		}
+	
+	}
+	
+	private interface Streams {
+		
+		TokenStream open() throws Exception;
+	
+	}
+	
+	private static Parser parser(Streams streams, boolean textRuns) throws Exception {
+		Parser parser = new Parser(streams.open());
+		parser.setTextRuns(textRuns);
+		return parser;
+	}
+	
+	private static String describe(ParseResult result) {
+		return result.isAccepted() + " " + result.getErrorPosition() + " " + result.getErrorMessage() + " " + result.getErrors();
+	}
+	
+	// Results, errors recovered from and handler events are the same with and without runs, the counts are not
+	private static void assertSameParse(Streams streams) throws Exception {
+		List<String> results = new ArrayList<>();
+		List<List<String>> events = new ArrayList<>();
+		for (boolean textRuns : new boolean[] { false, true }) {
+			try (Parser parser = parser(streams, textRuns)) {
+				results.add(describe(parser.parse()));
+			}
+			try (Parser parser = parser(streams, textRuns)) {
+				results.add(describe(parser.parse(null, 10)));
+			}
+			Recorder recorder = new Recorder();
+			try (Parser parser = parser(streams, textRuns)) {
+				results.add(describe(parser.parse(recorder)));
+			}
+			events.add(recorder.events);
+		}
+		assertEquals(results.subList(0, 3), results.subList(3, 6));
+		assertEquals(events.get(0), events.get(1));
+	}
+	
+	private static void assertSameParse(String text) throws Exception {
+		assertSameParse(() -> new TokenStream(new StringReader(text)));
+		Path file = Files.createTempFile("text-runs", ".html");
+		try {
+			Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+			assertSameParse(() -> TokenStream.open(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	private static String document(String body) {
+		return "<html><head><title>Runs</title></head><body>" + body + "</body></html>";
+	}
+	
+	@Test
+	public void testDocuments() throws Exception {
+		for (int i = 1; i <= 4; i++) {
+			assertSameParse(new String(Files.readAllBytes(Paths.get("src/test/resources/test" + i + ".html")), StandardCharsets.UTF_8));
+		}
+	}
+	
+	@Test
+	public void generatedDocuments() throws Exception {
+		for (long seed = 0; seed < 10; seed++) {
+			assertSameParse(new DocumentGenerator(seed).size(20000).unclosed(seed % 2 == 0).generate());
+		}
+	}
+	
+	@Test
+	public void textAroundLiterals() throws Exception {
+		assertSameParse("<html><head><meta name=generator content=x></head><body>name content=x</body></html>");
+		assertSameParse(document("café naïve – 12.5   words\n\t\tmore"));
+		assertSameParse(document("text > text"));
+		assertSameParse(document("   "));
+	}
+	
+	@Test
+	public void errors() throws Exception {
+		assertSameParse(document("a # b"));
+		assertSameParse(document("<table>text</table>"));
+		assertSameParse(document("text") + " trailing text");
+		assertSameParse("<html><head><title>unclosed");
+		assertSameParse(document("x\u0001y"));
+	}
+	
+	@Test
+	public void longTextIsOneRun() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append("word ");
+		}
+		assertSameParse(document(text.toString()));
+		
+		ParseTable parseTable = Grammar.html().getParseTable();
+		boolean[] content = Grammar.html().getTextTerminals()[parseTable.getNonTerminalId(NonTerminal.withName("content"))];
+		try (TokenStream tokenStream = new TokenStream(new StringReader(text + "<p>"))) {
+			assertSame(Token.TEXT, tokenStream.read(content));
+			TextRun run = tokenStream.getTextRun();
+			assertEquals(0, run.getStart());
+			assertEquals(text.length() - 1, run.getEnd());
+			assertEquals(4000, run.getLength());
+			assertEquals("<p>", tokenStream.read(content).getText());
+		}
+	}
+	
+	// A 10 KB paragraph is one run for content, instead of three expansions and a token a character
+	@Test
+	public void fewerStepsForText() throws Exception {
+		StringBuilder paragraph = new StringBuilder();
+		while (paragraph.length() < 10 * 1024) {
+			paragraph.append("Lorem ipsum dolor sit amet, consectetur 2017 - \"quoted\" a/b x_y:z ");
+		}
+		String text = document("<p>" + paragraph + "</p>");
+		long[] steps = new long[2];
+			for (int mode = 0; mode < 2; mode++) {
+				try (Parser parser = new Parser(new TokenStream(new StringReader(text)))) {
+					parser.setTextRuns(mode == 1);
+				ParseResult result = parser.parse();
+				assertTrue(result.isAccepted());
+				steps[mode] = result.getSteps();
+				}
+			}
+		assertTrue(steps[0] + " steps by character, " + steps[1] + " by run", steps[0] > 10 * steps[1]);
+	}
+
+}
@@ -0,0 +1,171 @@
+package lexicalanalysis;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Classifies a vector of characters at once. A class is a few ranges of ASCII characters, a character
+// is in a range when its distance from the start is below the length, compared as unsigned so that
+// characters before the start are far outside. Every class has the same number of ranges, the unused
+// ones empty, so the compares are unrolled into the loop over the text. Only compiled by the vector
+// profile, TextScanner loads it once jdk.incubator.vector is there.
+final class VectorTextScanner extends TextScanner {
+	
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+	
+	private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+	
+	// Most runs of text are words, they end sooner than a vector is set up
+	private static final int SHORT_RUN = 16;
+	
+	// Until compiled, every vector is an object of its own, so the first scanner has the methods compiled
+	// on a thread of its own and all of them scan a character at a time meanwhile
+	private static final int WARM_UP_PASSES = 100;
+	private static final int WARM_UP_LENGTH = 1024;
+	private static boolean warmUpStarted;
+	private static volatile boolean warm;
+	
+	// Ranges of a class, more of them scan a character at a time
+	private static final int RANGES = 12;
+	
+	// Starts and lengths of the ranges of a class
+	private final short[] plainRanges;
+	private final short[] skippedRanges;
+	
+	VectorTextScanner(boolean[] plain, boolean[] skipped) {
+		super(plain, skipped);
+		this.plainRanges = ranges(plain);
+		this.skippedRanges = ranges(skipped);
+		startWarmUp();
+	}
+	
+	private static short[] ranges(boolean[] table) {
+		short[] ranges = new short[RANGES * 2];
+		int r = 0;
+		for (int c = 0; c < ASCII; c++) {
+			if (table[c] && (c == 0 || !table[c - 1])) {
+				if (r == ranges.length) {
+					throw new IllegalStateException("More than " + RANGES + " ranges in a class");
+				}
+				int end = c;
+				while (end < ASCII && table[end]) {
+					end++;
+				}
+				ranges[r++] = (short) c;
+				ranges[r++] = (short) (end - c);
+			}
+		}
+		return ranges;
+	}
+	
+	private void startWarmUp() {
+		synchronized (VectorTextScanner.class) {
+			if (warmUpStarted) {
+				return;
+			}
+			warmUpStarted = true;
+		}
+		Thread thread = new Thread(this::warmUp, "vector-warm-up");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	// Runs of words and of whitespace of any length ended by markup or by a character outside of ASCII,
+	// from every character and in all kinds of buffers the streams read, so that no branch is left for
+	// the compiled methods to give up on later
+	private void warmUp() {
+		char[] chars = new char[WARM_UP_LENGTH];
+		ByteBuffer heap = ByteBuffer.allocate(WARM_UP_LENGTH);
+		ByteBuffer direct = ByteBuffer.allocateDirect(WARM_UP_LENGTH);
+		for (int i = 0, run = 0; i < WARM_UP_LENGTH; run++) {
+			int words = i + run * 7 % 101;
+			int spaces = words + run * 13 % 67;
+			for (; i < WARM_UP_LENGTH && i <= spaces; i++) {
+				char c = i == spaces ? (run % 2 == 0 ? '\u00e9' : '<') : i >= words ? ' ' : i % 5 == 0 ? ' ' : 'a';
+				chars[i] = c;
+				heap.put(i, c < ASCII ? (byte) c : (byte) 0xc3);
+				direct.put(i, c < ASCII ? (byte) c : (byte) 0xc3);
+			}
+		}
+		ByteBuffer mapped = direct.asReadOnlyBuffer();
+		for (int pass = 0; pass < WARM_UP_PASSES; pass++) {
+			for (int i = 0; i < WARM_UP_LENGTH; i++) {
+				find(plainRanges, plain, chars, i, WARM_UP_LENGTH);
+				find(skippedRanges, skipped, chars, i, WARM_UP_LENGTH);
+				find(plainRanges, plain, heap, i, WARM_UP_LENGTH);
+				find(skippedRanges, skipped, heap, i, WARM_UP_LENGTH);
+				find(plainRanges, plain, mapped, i, WARM_UP_LENGTH);
+				find(skippedRanges, skipped, mapped, i, WARM_UP_LENGTH);
+			}
+		}
+		warm = true;
+	}
+	
+	@Override
+	public boolean isVectorized() {
+		return true;
+	}
+	
+	@Override
+	public int plainEnd(char[] buffer, int offset, int end) {
+		return warm ? find(plainRanges, plain, buffer, offset, end) : find(plain, buffer, offset, end);
+	}
+	
+	@Override
+	public int plainEnd(ByteBuffer buffer, int offset, int end) {
+		return warm ? find(plainRanges, plain, buffer, offset, end) : find(plain, buffer, offset, end);
+	}
+	
+	@Override
+	public int skippedEnd(char[] buffer, int offset, int end) {
+		return warm ? find(skippedRanges, skipped, buffer, offset, end) : find(skipped, buffer, offset, end);
+	}
+	
+	@Override
+	public int skippedEnd(ByteBuffer buffer, int offset, int end) {
+		return warm ? find(skippedRanges, skipped, buffer, offset, end) : find(skipped, buffer, offset, end);
+	}
+	
+	private static int find(short[] ranges, boolean[] table, char[] buffer, int offset, int end) {
+		int i = find(table, buffer, offset, Math.min(end, offset + SHORT_RUN));
+		if (i < offset + SHORT_RUN) {
+			return i;
+		}
+		for (; i <= end - CHARS.length(); i += CHARS.length()) {
+			ShortVector chars = ShortVector.fromCharArray(CHARS, buffer, i);
+			VectorMask<Short> inside = chars.sub(ranges[0]).compare(VectorOperators.UNSIGNED_LT, ranges[1]);
+			for (int r = 2; r < RANGES * 2; r += 2) {
+				inside = inside.or(chars.sub(ranges[r]).compare(VectorOperators.UNSIGNED_LT, ranges[r + 1]));
+			}
+			if (!inside.allTrue()) {
+				return i + inside.not().firstTrue();
+			}
+		}
+		return find(table, buffer, i, end);
+	}
+	
+	// Bytes outside of ASCII are negative, as unsigned they are in no range
+	private static int find(short[] ranges, boolean[] table, ByteBuffer buffer, int offset, int end) {
+		int i = find(table, buffer, offset, Math.min(end, offset + SHORT_RUN));
+		if (i < offset + SHORT_RUN) {
+			return i;
+		}
+		for (; i <= end - BYTES.length(); i += BYTES.length()) {
+			ByteVector bytes = ByteVector.fromByteBuffer(BYTES, buffer, i, ByteOrder.nativeOrder());
+			VectorMask<Byte> inside = bytes.sub((byte) ranges[0]).compare(VectorOperators.UNSIGNED_LT, (byte) ranges[1]);
+			for (int r = 2; r < RANGES * 2; r += 2) {
+				inside = inside.or(bytes.sub((byte) ranges[r]).compare(VectorOperators.UNSIGNED_LT, (byte) ranges[r + 1]));
+			}
+			if (!inside.allTrue()) {
+				return i + inside.not().firstTrue();
+			}
+		}
+		return find(table, buffer, i, end);
+	}
+
+}